@@ -0,0 +1,62 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.amazonaws.util.IOUtils;
+
+/**
+ * Canned service responses used by the benchmarks, loaded from the class
+ * path.
+ */
+public final class CannedResponses {
+
+    /** An EC2 DescribeInstances response with several reservations. */
+    public static final byte[] EC2_DESCRIBE_INSTANCES = load("ec2-describe-instances.xml");
+
+    /** A DynamoDB Query response with a page of items. */
+    public static final byte[] DYNAMODB_QUERY = load("dynamodb-query.json");
+
+    /** A DynamoDB GetItem response with a single item. */
+    public static final byte[] DYNAMODB_GET_ITEM = load("dynamodb-get-item.json");
+
+    /** A DynamoDB PutItem response. */
+    public static final byte[] DYNAMODB_PUT_ITEM = load("dynamodb-put-item.json");
+
+    /** A DynamoDB ProvisionedThroughputExceededException error response. */
+    public static final byte[] DYNAMODB_ERROR = load("dynamodb-error.json");
+
+    /** An S3 ListObjects response with a page of keys. */
+    public static final byte[] S3_LIST_OBJECTS = load("s3-list-objects.xml");
+
+    private CannedResponses() {
+    }
+
+    private static byte[] load(String name) {
+        InputStream in = CannedResponses.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalStateException("Missing canned response " + name);
+        }
+        try {
+            return IOUtils.toByteArray(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load canned response " + name, e);
+        } finally {
+            IOUtils.closeQuietly(in, null);
+        }
+    }
+}
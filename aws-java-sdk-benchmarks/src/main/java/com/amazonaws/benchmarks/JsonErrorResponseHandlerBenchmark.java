@@ -0,0 +1,88 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.JsonErrorResponseHandler;
+import com.amazonaws.services.dynamodbv2.model.transform.ConditionalCheckFailedExceptionUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.InternalServerErrorExceptionUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.ItemCollectionSizeLimitExceededExceptionUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.LimitExceededExceptionUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.ProvisionedThroughputExceededExceptionUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.ResourceInUseExceptionUnmarshaller;
+import com.amazonaws.services.dynamodbv2.model.transform.ResourceNotFoundExceptionUnmarshaller;
+import com.amazonaws.transform.JsonErrorUnmarshaller;
+
+/**
+ * Handling of a canned DynamoDB throttling error response by
+ * JsonErrorResponseHandler, with the error unmarshallers of the DynamoDB
+ * client: parsing the body into a JSONObject and unmarshalling the matching
+ * exception. Throttling errors are the ones a client sees in bulk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class JsonErrorResponseHandlerBenchmark {
+
+    private final Request<?> request = new DefaultRequest<Void>("AmazonDynamoDBv2");
+
+    private final JsonErrorResponseHandler handler =
+            new JsonErrorResponseHandler(newDynamoDBErrorUnmarshallers());
+
+    @Benchmark
+    public AmazonServiceException dynamoDBThrottlingError() throws Exception {
+        HttpResponse response = new HttpResponse(request, null);
+        response.setStatusCode(400);
+        response.setContent(new ByteArrayInputStream(CannedResponses.DYNAMODB_ERROR));
+        return handler.handle(response);
+    }
+
+    /**
+     * The error unmarshallers of AmazonDynamoDBClient, in the same order.
+     */
+    private static List<JsonErrorUnmarshaller> newDynamoDBErrorUnmarshallers() {
+        List<JsonErrorUnmarshaller> unmarshallers = new ArrayList<JsonErrorUnmarshaller>();
+        unmarshallers.add(new ProvisionedThroughputExceededExceptionUnmarshaller());
+        unmarshallers.add(new ItemCollectionSizeLimitExceededExceptionUnmarshaller());
+        unmarshallers.add(new LimitExceededExceptionUnmarshaller());
+        unmarshallers.add(new ConditionalCheckFailedExceptionUnmarshaller());
+        unmarshallers.add(new InternalServerErrorExceptionUnmarshaller());
+        unmarshallers.add(new ResourceInUseExceptionUnmarshaller());
+        unmarshallers.add(new ResourceNotFoundExceptionUnmarshaller());
+        unmarshallers.add(new JsonErrorUnmarshaller());
+        return unmarshallers;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.AmazonWebServiceResponse;
+import com.amazonaws.DefaultRequest;
+import com.amazonaws.Request;
+import com.amazonaws.http.HttpResponse;
+import com.amazonaws.http.StaxResponseHandler;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.transform.DescribeInstancesResultStaxUnmarshaller;
+
+/**
+ * Handling of a canned EC2 DescribeInstances response by one
+ * StaxResponseHandler shared by 1, 8 and 64 threads, as a client shares it
+ * between all its callers. Unlike {@link UnmarshallerBenchmark}, the XML
+ * event readers come from the handler itself, so contention on reader
+ * creation shows up as the thread count grows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class StaxResponseHandlerBenchmark {
+
+    private final Request<?> request = new DefaultRequest<Void>("AmazonEC2");
+
+    private final StaxResponseHandler<DescribeInstancesResult> handler =
+            new StaxResponseHandler<DescribeInstancesResult>(
+                    DescribeInstancesResultStaxUnmarshaller.getInstance());
+
+    @Benchmark
+    @Threads(1)
+    public AmazonWebServiceResponse<DescribeInstancesResult> ec2DescribeInstances1Thread()
+            throws Exception {
+        return handle();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public AmazonWebServiceResponse<DescribeInstancesResult> ec2DescribeInstances8Threads()
+            throws Exception {
+        return handle();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public AmazonWebServiceResponse<DescribeInstancesResult> ec2DescribeInstances64Threads()
+            throws Exception {
+        return handle();
+    }
+
+    private AmazonWebServiceResponse<DescribeInstancesResult> handle() throws Exception {
+        HttpResponse response = new HttpResponse(request, null);
+        response.setStatusCode(200);
+        response.setContent(new ByteArrayInputStream(CannedResponses.EC2_DESCRIBE_INSTANCES));
+        return handler.handle(response);
+    }
+}
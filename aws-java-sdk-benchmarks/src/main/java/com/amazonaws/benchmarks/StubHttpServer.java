@@ -0,0 +1,159 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A local HTTP server that answers every request with a canned payload, so
+ * that benchmarks measure the client's request and response handling rather
+ * than the network or a service.
+ * <p>
+ * JSON services are told apart by their <code>X-Amz-Target</code> header;
+ * every other request gets the default payload, or the payload computed by a
+ * {@link Responder} for services whose responses have to match the request.
+ */
+public class StubHttpServer {
+
+    static {
+        // Without this the JDK server's small writes interact with delayed
+        // ACKs and add tens of milliseconds to every POST round trip.
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Map<String, byte[]> responsesByTarget = new HashMap<String, byte[]>();
+    private final byte[] defaultResponse;
+    private final String contentType;
+    private Responder responder;
+
+    /**
+     * Computes the payload returned for a request from its body.
+     */
+    public interface Responder {
+        byte[] respond(byte[] requestBody);
+    }
+
+    /**
+     * @param defaultResponse
+     *            the payload returned for requests without a registered
+     *            target.
+     * @param contentType
+     *            the content type of all responses.
+     */
+    public StubHttpServer(byte[] defaultResponse, String contentType)
+            throws IOException {
+        this.defaultResponse = defaultResponse;
+        this.contentType = contentType;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        this.executor = Executors.newCachedThreadPool();
+        server.setExecutor(executor);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                respond(exchange);
+            }
+        });
+    }
+
+    /**
+     * Returns the given payload for requests with the given
+     * <code>X-Amz-Target</code> header, such as
+     * <code>DynamoDB_20120810.Query</code>. Must be called before
+     * {@link #start()}.
+     */
+    public StubHttpServer withResponse(String target, byte[] response) {
+        responsesByTarget.put(target, response);
+        return this;
+    }
+
+    /**
+     * Computes the payload returned for requests without a registered target
+     * with the given responder, instead of returning the default payload.
+     * Must be called before {@link #start()}.
+     */
+    public StubHttpServer withResponder(Responder responder) {
+        this.responder = responder;
+        return this;
+    }
+
+    public StubHttpServer start() {
+        server.start();
+        return this;
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the endpoint of this server, to be set on a client.
+     */
+    public String getEndpoint() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void respond(HttpExchange exchange) throws IOException {
+        byte[] requestBody = drain(exchange.getRequestBody());
+
+        String target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+        byte[] response = target == null ? null : responsesByTarget.get(target);
+        if (response == null) {
+            response = responder == null ? defaultResponse : responder.respond(requestBody);
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(response);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.getResponseHeaders().add("x-amz-request-id", "BENCHMARK");
+        exchange.getResponseHeaders().add("x-amz-crc32", Long.toString(crc32.getValue()));
+        exchange.sendResponseHeaders(200, response.length);
+
+        OutputStream out = exchange.getResponseBody();
+        try {
+            out.write(response);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] drain(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        try {
+            int read;
+            while ((read = in.read(buffer)) != -1)
+                body.write(buffer, 0, read);
+        } finally {
+            in.close();
+        }
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLEventReader;
+import javax.xml.stream.XMLInputFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.transform.QueryResultJsonUnmarshaller;
+import com.amazonaws.services.ec2.model.DescribeInstancesResult;
+import com.amazonaws.services.ec2.model.transform.DescribeInstancesResultStaxUnmarshaller;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.transform.XmlResponsesSaxParser;
+import com.amazonaws.transform.JsonUnmarshallerContextImpl;
+import com.amazonaws.transform.StaxUnmarshallerContext;
+import com.fasterxml.jackson.core.JsonFactory;
+
+/**
+ * Unmarshalling of canned responses, without any HTTP handling: the StAX
+ * unmarshallers of the query protocol services, the JSON unmarshallers of the
+ * JSON protocol services, and the SAX parser of Amazon S3.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 10, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class UnmarshallerBenchmark {
+
+    private final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+    @Benchmark
+    public DescribeInstancesResult ec2DescribeInstances() throws Exception {
+        XMLEventReader eventReader = xmlInputFactory.createXMLEventReader(
+                new ByteArrayInputStream(CannedResponses.EC2_DESCRIBE_INSTANCES));
+        try {
+            return DescribeInstancesResultStaxUnmarshaller.getInstance()
+                    .unmarshall(new StaxUnmarshallerContext(eventReader));
+        } finally {
+            eventReader.close();
+        }
+    }
+
+    @Benchmark
+    public QueryResult dynamoDBQuery() throws Exception {
+        return QueryResultJsonUnmarshaller.getInstance().unmarshall(
+                new JsonUnmarshallerContextImpl(jsonFactory.createParser(
+                        CannedResponses.DYNAMODB_QUERY)));
+    }
+
+    @Benchmark
+    public ObjectListing s3ListObjects() throws Exception {
+        return new XmlResponsesSaxParser().parseListBucketObjectsResponse(
+                new ByteArrayInputStream(CannedResponses.S3_LIST_OBJECTS))
+                .getObjectListing();
+    }
+}
@@ -35,7 +35,6 @@ import com.amazonaws.services.cloudhsm.model.*;
 import com.amazonaws.transform.Marshaller;
 import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.StringUtils;
-import com.amazonaws.util.StringInputStream;
 import com.amazonaws.util.json.*;
 
 /**
@@ -69,7 +68,7 @@ public class DescribeHapgRequestMarshaller implements Marshaller<Request<Describ
 
           String snippet = stringWriter.toString();
           byte[] content = snippet.getBytes(UTF8);
-          request.setContent(new StringInputStream(snippet));
+          request.setContent(new ByteArrayInputStream(content));
           request.addHeader("Content-Length", Integer.toString(content.length));
           request.addHeader("Content-Type", "application/x-amz-json-1.1");
         } catch(Throwable t) {
@@ -22,7 +22,6 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 
 import com.amazonaws.metrics.AwsSdkMetrics;
@@ -37,67 +36,45 @@ import com.amazonaws.util.json.Jackson;
 
 /**
  * An internal builder used to retrieve the next batch of requests to be sent to
- * Amazon CloudWatch. Calling method {@link #nextUploadUnits()} blocks as
- * necessary.
+ * Amazon CloudWatch. Calling method {@link #nextUploadUnits()} blocks until the
+ * end of the current upload interval.
  */
 class BlockingRequestBuilder {
     private static final String OS_METRIC_NAME = MachineMetric.getOSMetricName();
     private final MachineMetricFactory machineMetricFactory = new MachineMetricFactory();
-    private final BlockingQueue<MetricDatum> queue;
-    private final long timeoutNano;
+    private final MetricAggregator aggregator;
+    private final long intervalNano;
+    /** The time the current upload interval ends. */
+    private long intervalEndNano;
 
-    BlockingRequestBuilder(CloudWatchMetricConfig config, BlockingQueue<MetricDatum> queue) {
-        this.queue = queue;
-        this.timeoutNano = TimeUnit.MILLISECONDS.toNanos(config.getQueuePollTimeoutMilli());
+    BlockingRequestBuilder(CloudWatchMetricConfig config, MetricAggregator aggregator) {
+        this.aggregator = aggregator;
+        this.intervalNano = TimeUnit.MILLISECONDS.toNanos(config.getQueuePollTimeoutMilli());
+        this.intervalEndNano = System.nanoTime() + intervalNano;
     }
 
     /**
      * Returns the next batch of {@link PutMetricDataRequest} to be sent to
-     * Amazon CloudWatch, blocking as necessary to gather and accumulate the
-     * necessary statistics. If there is no metrics data, this call blocks
-     * indefinitely. If there is metrics data, this call will block up to about
-     * {@link CloudWatchMetricConfig#getQueuePollTimeoutMilli()} number of
-     * milliseconds.
+     * Amazon CloudWatch, blocking until the end of the current upload interval
+     * of {@link CloudWatchMetricConfig#getQueuePollTimeoutMilli()} number of
+     * milliseconds. The batch holds the statistics of the metrics recorded
+     * during the interval, if any, and the machine metrics unless they are
+     * excluded.
      */
     Iterable<PutMetricDataRequest> nextUploadUnits() throws InterruptedException {
-        final Map<String,MetricDatum> uniqueMetrics = new HashMap<String,MetricDatum>();
-        long startNano = System.nanoTime();
-        
-        while(true) {
-            final long elapsedNano = System.nanoTime() - startNano;
-            if (elapsedNano >= timeoutNano) {
-                return toPutMetricDataRequests(uniqueMetrics);
-            }
-            MetricDatum datum = queue.poll(timeoutNano - elapsedNano, TimeUnit.NANOSECONDS);
-            if (datum == null) {
-                // timed out
-                if (uniqueMetrics.size() > 0) {
-                    // return whatever we have so far
-                    return toPutMetricDataRequests(uniqueMetrics);
-                }
-                // zero AWS related metrics
-                if (AwsSdkMetrics.isMachineMetricExcluded()) {
-                    // Short note: nothing to do, so just wait indefinitely.
-                    // (Long note: There exists a pedagogical case where the
-                    // next statement is executed followed by no subsequent AWS
-                    // traffic whatsoever, and then the machine metric is enabled 
-                    // via JMX.
-                    // In such case, we require the metric generation to be
-                    // disabled and then re-enabled (eg via JMX).
-                    // So why not always wake up periodically instead of going
-                    // into long wait ?
-                    // I (hchar@) think we should optimize for the most typical
-                    // cases instead of the edge cases. Going into long wait has
-                    // the benefit of relatively less runtime footprint.)
-                    datum = queue.take();   
-                    startNano = System.nanoTime();
-                }
-            }
-            // Note at this point datum is null if and only if there is no
-            // pending AWS related metrics but machine metrics is enabled
-            if (datum != null)
-                summarize(datum, uniqueMetrics);
+        long waitNano = intervalEndNano - System.nanoTime();
+        if (waitNano > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNano);
+        }
+        // Keep a steady cadence, unless the uploader has fallen behind by more
+        // than an interval.
+        intervalEndNano = Math.max(intervalEndNano + intervalNano,
+                                   System.nanoTime());
+        List<MetricDatum> data = aggregator.drain();
+        if (data.isEmpty() && AwsSdkMetrics.isMachineMetricExcluded()) {
+            return Collections.emptyList();
         }
+        return toPutMetricDataRequests(data);
     }
 
     /**
@@ -139,15 +116,18 @@ class BlockingRequestBuilder {
      * Consolidates the input metrics into a list of PutMetricDataRequest, each
      * within the maximum size limit imposed by CloudWatch.
      */
-    private Iterable<PutMetricDataRequest> toPutMetricDataRequests(Map<String, MetricDatum> uniqueMetrics) {
+    private Iterable<PutMetricDataRequest> toPutMetricDataRequests(List<MetricDatum> aggregated) {
         // Opportunistically generates some machine metrics whenever there
         // is metrics consolidation
+        final Map<String,MetricDatum> uniqueMetrics = new HashMap<String,MetricDatum>();
         for (MetricDatum datum: machineMetricFactory.generateMetrics()) {
             summarize(datum, uniqueMetrics);
         }
+        List<MetricDatum> all = new ArrayList<MetricDatum>(aggregated);
+        all.addAll(uniqueMetrics.values());
         List<PutMetricDataRequest> list = new ArrayList<PutMetricDataRequest>();
         List<MetricDatum> data = new ArrayList<MetricDatum>();
-        for (MetricDatum m: uniqueMetrics.values()) {
+        for (MetricDatum m: all) {
             data.add(m);
             if (data.size() == CloudWatchMetricConfig.MAX_METRICS_DATUM_SIZE) {
                 list.addAll(newPutMetricDataRequests(data));
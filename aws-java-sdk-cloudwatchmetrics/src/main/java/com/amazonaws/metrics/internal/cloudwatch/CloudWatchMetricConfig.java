@@ -19,6 +19,7 @@ import org.apache.http.annotation.NotThreadSafe;
 
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.metrics.AwsSdkMetrics;
+import com.amazonaws.metrics.internal.cloudwatch.spi.Dimensions;
 
 /**
  * Configuration for the default AWS SDK collection implementation. This class
@@ -65,9 +66,8 @@ public class CloudWatchMetricConfig {
      */
     static final int MAX_METRICS_DATUM_SIZE = 20;
     /**
-     * Default metrics queue size. If the queue size
-     * exceeds this value, then excessive metrics will be dropped to prevent
-     * resource exhaustion.
+     * Default metrics queue size. No longer used by the default collector,
+     * which aggregates metrics as they are collected instead of queuing them.
      */
     public static final int DEFAULT_METRICS_QSIZE = 1000;
     /**
@@ -80,8 +80,8 @@ public class CloudWatchMetricConfig {
     private AWSCredentialsProvider credentialsProvider;
 
     /**
-     * Number of milliseconds to wait before the polling of the metrics queue
-     * times out.
+     * Number of milliseconds over which metrics are aggregated before being
+     * uploaded.
      */
     private long queuePollTimeoutMilli = DEFAULT_QUEUE_POLL_TIMEOUT_MILLI;
 
@@ -93,6 +93,9 @@ public class CloudWatchMetricConfig {
     
     private int metricQueueSize = DEFAULT_METRICS_QSIZE;
 
+    /** Percentiles of each metric to be uploaded in addition to its statistics. */
+    private double[] percentiles = {};
+
     /**
      * Returns the credential provider that holds the credentials to connect to
      * Amazon CloudWatch.
@@ -115,7 +118,8 @@ public class CloudWatchMetricConfig {
     }
 
     /**
-     * Returns the metrics queue polling timeout in millisecond.
+     * Returns the metrics queue polling timeout in millisecond, which is the
+     * interval over which metrics are aggregated before being uploaded.
      */
     public long getQueuePollTimeoutMilli() {
         return queuePollTimeoutMilli;
@@ -153,6 +157,11 @@ public class CloudWatchMetricConfig {
         return this;
     }
 
+    /**
+     * Returns the metric queue size. Metrics are now aggregated as they are
+     * collected rather than queued, so this value is no longer used by the
+     * default collector.
+     */
     public int getMetricQueueSize() {
         return metricQueueSize;
     }
@@ -174,4 +183,34 @@ public class CloudWatchMetricConfig {
         setMetricQueueSize(metricQueueSize);
         return this;
     }
+
+    /**
+     * Returns the percentiles, such as 50 or 99.9, of each metric to be
+     * uploaded in addition to its statistics; empty by default.
+     */
+    public double[] getPercentiles() {
+        return percentiles.clone();
+    }
+
+    /**
+     * Sets the percentiles, such as 50 or 99.9, of each metric to be uploaded
+     * in addition to its statistics. Each percentile is uploaded once per
+     * upload interval as a separate metric datum, with the same name and
+     * dimensions as the metric plus a {@link Dimensions#Percentile} dimension
+     * such as "p99.9". Each must be greater than 0 and at most 100.
+     */
+    public void setPercentiles(double... percentiles) {
+        for (double p: percentiles) {
+            if (!(p > 0 && p <= 100)) {
+                throw new IllegalArgumentException(
+                    "Percentile must be greater than 0 and at most 100: " + p);
+            }
+        }
+        this.percentiles = percentiles.clone();
+    }
+
+    public CloudWatchMetricConfig withPercentiles(double... percentiles) {
+        setPercentiles(percentiles);
+        return this;
+    }
 }
@@ -38,6 +38,7 @@ public class DefaultMetricCollectorFactory
         Regions region = AwsSdkMetrics.getRegion();
         Integer qSize = AwsSdkMetrics.getMetricQueueSize();
         Long timeoutMilli = AwsSdkMetrics.getQueuePollTimeoutMilli();
+        double[] percentiles = AwsSdkMetrics.getPercentiles();
         CloudWatchMetricConfig config = new CloudWatchMetricConfig();
         if (provider != null)
             config.setCredentialsProvider(provider);
@@ -49,6 +50,8 @@ public class DefaultMetricCollectorFactory
             config.setMetricQueueSize(qSize.intValue());
         if (timeoutMilli != null)
             config.setQueuePollTimeoutMilli(timeoutMilli.longValue());
+        if (percentiles != null)
+            config.setPercentiles(percentiles);
         MetricCollectorSupport.startSingleton(config);
         return MetricCollectorSupport.getInstance();
     }
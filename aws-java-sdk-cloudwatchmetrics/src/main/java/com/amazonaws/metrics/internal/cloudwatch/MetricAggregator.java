@@ -0,0 +1,277 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.metrics.internal.cloudwatch;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.http.annotation.ThreadSafe;
+
+import com.amazonaws.metrics.internal.cloudwatch.spi.Dimensions;
+import com.amazonaws.services.cloudwatch.model.Dimension;
+import com.amazonaws.services.cloudwatch.model.MetricDatum;
+import com.amazonaws.services.cloudwatch.model.StatisticSet;
+
+/**
+ * Aggregates metric data points, as they are collected, into one histogram per
+ * unique metric for the current upload interval.
+ * <p>
+ * Recording a data point is lock-free and takes constant memory per unique
+ * metric no matter how many data points are recorded, so that nothing has to
+ * be dropped under load. At the end of each interval the uploader thread
+ * swaps in a fresh interval and turns the histograms of the old one into a
+ * {@link StatisticSet} per metric, plus the configured percentiles.
+ * <p>
+ * Histogram buckets grow by 5% from one to the next, which bounds the
+ * relative error of a percentile to about 2.5%.
+ */
+@ThreadSafe
+class MetricAggregator {
+    private static final double BUCKET_RATIO = 1.05;
+    private static final double LOG_BUCKET_RATIO = Math.log(BUCKET_RATIO);
+    /** Upper bound of the first bucket, which also takes all smaller values. */
+    private static final double MIN_BUCKET_VALUE = 1e-3;
+    /** Lower bound of the last bucket, which also takes all larger values. */
+    private static final double MAX_BUCKET_VALUE = 1e13;
+    private static final int NUM_BUCKETS =
+        bucketIndex0(MAX_BUCKET_VALUE) + 1;
+
+    /** The percentiles to publish, in ascending order; may be empty. */
+    private final double[] percentiles;
+    private final String[] percentileNames;
+
+    private volatile Interval current = new Interval();
+
+    MetricAggregator(double[] percentiles) {
+        this.percentiles = percentiles.clone();
+        Arrays.sort(this.percentiles);
+        this.percentileNames = new String[this.percentiles.length];
+        for (int i = 0; i < this.percentiles.length; i++) {
+            percentileNames[i] = "p" + BigDecimal.valueOf(this.percentiles[i])
+                .stripTrailingZeros().toPlainString();
+        }
+    }
+
+    /**
+     * Records the value of the given metric datum into the histogram of its
+     * metric for the current interval. Data points with no value are ignored.
+     */
+    void record(MetricDatum datum) {
+        Double value = datum.getValue();
+        if (value == null || value.isNaN()) {
+            return;
+        }
+        MetricKey key = new MetricKey(datum);
+        while (true) {
+            Interval interval = current;
+            interval.writers.incrementAndGet();
+            try {
+                // Once the interval has been swapped out, its histograms may be
+                // read at any time; retry on the new interval instead.
+                if (interval == current) {
+                    interval.histogram(key).record(value.doubleValue());
+                    return;
+                }
+            } finally {
+                interval.writers.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Ends the current interval and returns the aggregated statistics of each
+     * metric recorded during it, followed by a datum for each configured
+     * percentile of each metric. Must not be called concurrently.
+     */
+    List<MetricDatum> drain() {
+        Interval interval = current;
+        current = new Interval();
+        // Wait for the writers that saw the old interval before the swap.
+        while (interval.writers.get() != 0) {
+            Thread.yield();
+        }
+        List<MetricDatum> data = new ArrayList<MetricDatum>(
+            interval.histograms.size() * (1 + percentiles.length));
+        for (Map.Entry<MetricKey, Histogram> e : interval.histograms.entrySet()) {
+            MetricKey key = e.getKey();
+            Histogram histogram = e.getValue();
+            data.add(key.newDatum()
+                .withStatisticValues(new StatisticSet()
+                    .withSampleCount((double) histogram.count.get())
+                    .withSum(histogram.getSum())
+                    .withMinimum(histogram.getMin())
+                    .withMaximum(histogram.getMax())));
+            for (int i = 0; i < percentiles.length; i++) {
+                data.add(key.newDatum()
+                    .withDimensions(new Dimension()
+                        .withName(Dimensions.Percentile.name())
+                        .withValue(percentileNames[i]))
+                    .withValue(histogram.percentile(percentiles[i])));
+            }
+        }
+        return data;
+    }
+
+    private static int bucketIndex0(double value) {
+        if (value <= MIN_BUCKET_VALUE) {
+            return 0;
+        }
+        return (int) Math.ceil(Math.log(value / MIN_BUCKET_VALUE) / LOG_BUCKET_RATIO);
+    }
+
+    private static int bucketIndex(double value) {
+        return Math.min(bucketIndex0(value), NUM_BUCKETS - 1);
+    }
+
+    /**
+     * The histograms of one upload interval, and the number of threads
+     * currently recording into them.
+     */
+    private class Interval {
+        final ConcurrentMap<MetricKey, Histogram> histograms =
+            new ConcurrentHashMap<MetricKey, Histogram>();
+        final AtomicInteger writers = new AtomicInteger();
+
+        Histogram histogram(MetricKey key) {
+            Histogram histogram = histograms.get(key);
+            if (histogram == null) {
+                histogram = new Histogram(percentiles.length > 0);
+                Histogram existing = histograms.putIfAbsent(key, histogram);
+                if (existing != null) {
+                    histogram = existing;
+                }
+            }
+            return histogram;
+        }
+    }
+
+    /**
+     * The count, sum, min, max and, if percentiles are to be published, the
+     * log-bucketed distribution of the values of a metric. Doubles are kept
+     * as their raw long bits so they can be updated by compare-and-set.
+     */
+    private static class Histogram {
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong sumBits = new AtomicLong(Double.doubleToRawLongBits(0.0));
+        final AtomicLong minBits = new AtomicLong(Double.doubleToRawLongBits(Double.POSITIVE_INFINITY));
+        final AtomicLong maxBits = new AtomicLong(Double.doubleToRawLongBits(Double.NEGATIVE_INFINITY));
+        /** The count of values in each bucket; or null if not needed. */
+        final AtomicLongArray buckets;
+
+        Histogram(boolean withBuckets) {
+            this.buckets = withBuckets ? new AtomicLongArray(NUM_BUCKETS) : null;
+        }
+
+        void record(double value) {
+            count.incrementAndGet();
+            long bits;
+            do {
+                bits = sumBits.get();
+            } while (!sumBits.compareAndSet(bits,
+                Double.doubleToRawLongBits(Double.longBitsToDouble(bits) + value)));
+            while (value < Double.longBitsToDouble(bits = minBits.get())) {
+                if (minBits.compareAndSet(bits, Double.doubleToRawLongBits(value)))
+                    break;
+            }
+            while (value > Double.longBitsToDouble(bits = maxBits.get())) {
+                if (maxBits.compareAndSet(bits, Double.doubleToRawLongBits(value)))
+                    break;
+            }
+            if (buckets != null) {
+                buckets.incrementAndGet(bucketIndex(value));
+            }
+        }
+
+        double getSum() { return Double.longBitsToDouble(sumBits.get()); }
+        double getMin() { return Double.longBitsToDouble(minBits.get()); }
+        double getMax() { return Double.longBitsToDouble(maxBits.get()); }
+
+        /**
+         * Returns an estimate of the given percentile: the geometric middle of
+         * the bucket it falls in, bounded by the min and max values.
+         */
+        double percentile(double percentile) {
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count.get()));
+            long seen = 0;
+            int i = 0;
+            for (; i < NUM_BUCKETS - 1; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    break;
+                }
+            }
+            double estimate = i == 0
+                ? MIN_BUCKET_VALUE
+                : MIN_BUCKET_VALUE * Math.pow(BUCKET_RATIO, i - 0.5);
+            return Math.max(getMin(), Math.min(getMax(), estimate));
+        }
+    }
+
+    /**
+     * Identifies a unique metric by its name, unit and dimensions, regardless
+     * of the order of the dimensions.
+     */
+    private static class MetricKey {
+        private final String metricName;
+        private final String unit;
+        private final Dimension[] dimensions;
+        private final int hashCode;
+
+        MetricKey(MetricDatum datum) {
+            this.metricName = datum.getMetricName();
+            this.unit = datum.getUnit();
+            List<Dimension> dims = datum.getDimensions();
+            this.dimensions = dims.toArray(new Dimension[dims.size()]);
+            Arrays.sort(dimensions, DimensionComparator.INSTANCE);
+            int h = metricName == null ? 0 : metricName.hashCode();
+            h = 31 * h + (unit == null ? 0 : unit.hashCode());
+            this.hashCode = 31 * h + Arrays.hashCode(dimensions);
+        }
+
+        /** Returns a new datum of this metric, with no value. */
+        MetricDatum newDatum() {
+            return new MetricDatum()
+                .withMetricName(metricName)
+                .withUnit(unit)
+                .withDimensions(dimensions);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof MetricKey))
+                return false;
+            MetricKey that = (MetricKey) obj;
+            return hashCode == that.hashCode
+                && (metricName == null ? that.metricName == null : metricName.equals(that.metricName))
+                && (unit == null ? that.unit == null : unit.equals(that.unit))
+                && Arrays.equals(dimensions, that.dimensions);
+        }
+    }
+}
@@ -14,9 +14,6 @@
  */
 package com.amazonaws.metrics.internal.cloudwatch;
 
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.annotation.ThreadSafe;
@@ -25,7 +22,6 @@ import com.amazonaws.metrics.MetricCollector;
 import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.metrics.ServiceMetricCollector;
 import com.amazonaws.services.cloudwatch.AmazonCloudWatchClient;
-import com.amazonaws.services.cloudwatch.model.MetricDatum;
 
 /**
  * This is the default implementation of an AWS SDK request metric collection
@@ -86,7 +82,7 @@ public class MetricCollectorSupport extends MetricCollector {
     private final RequestMetricCollectorSupport requestMetricCollector;
     private final ServiceMetricCollectorSupport serviceMetricCollector;
 
-    private final BlockingQueue<MetricDatum> queue;
+    private final MetricAggregator aggregator;
 //    private final PredefinedMetricTransformer transformer = new PredefinedMetricTransformer();
     private final CloudWatchMetricConfig config;
     private MetricUploaderThread uploaderThread;
@@ -96,9 +92,9 @@ public class MetricCollectorSupport extends MetricCollector {
             throw new IllegalArgumentException();
         }
         this.config = config;
-        this.queue = new LinkedBlockingQueue<MetricDatum>(config.getMetricQueueSize());
-        this.requestMetricCollector = new RequestMetricCollectorSupport(queue);
-        this.serviceMetricCollector = new ServiceMetricCollectorSupport(queue);
+        this.aggregator = new MetricAggregator(config.getPercentiles());
+        this.requestMetricCollector = new RequestMetricCollectorSupport(aggregator);
+        this.serviceMetricCollector = new ServiceMetricCollectorSupport(aggregator);
     }
 
     @Override
@@ -107,7 +103,7 @@ public class MetricCollectorSupport extends MetricCollector {
             if (uploaderThread != null) {
                 return false;   // already started
             }
-            uploaderThread = new MetricUploaderThread(config, queue);
+            uploaderThread = new MetricUploaderThread(config, aggregator);
             uploaderThread.start();
         }
         return true;
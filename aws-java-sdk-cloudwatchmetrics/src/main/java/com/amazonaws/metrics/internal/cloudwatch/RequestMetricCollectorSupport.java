@@ -40,16 +40,25 @@ public class RequestMetricCollectorSupport extends RequestMetricCollector
 {
     protected final static Log log = LogFactory.getLog(RequestMetricCollectorSupport.class);
     private final BlockingQueue<MetricDatum> queue;
+    /** The aggregator metrics are recorded into; or null if queued instead. */
+    private final MetricAggregator aggregator;
     private final PredefinedMetricTransformer transformer = new PredefinedMetricTransformer();
 
     protected RequestMetricCollectorSupport(BlockingQueue<MetricDatum> queue) {
         this.queue = queue;
+        this.aggregator = null;
+    }
+
+    RequestMetricCollectorSupport(MetricAggregator aggregator) {
+        this.queue = null;
+        this.aggregator = aggregator;
     }
 
     /**
      * Collects the metrics at the end of a request/response cycle, transforms
      * the metric data points into a cloud watch metric datum representation,
-     * and then adds it to a memory queue so it will get summarized into the
+     * and then adds it to a memory queue, or records it into the statistics of
+     * the current upload interval, so it will get summarized into the
      * necessary statistics and uploaded to Amazon CloudWatch.
      */
     @Override
@@ -92,9 +101,15 @@ public class RequestMetricCollectorSupport extends RequestMetricCollector
 
     /**
      * Adds the given metric to the queue, returning true if successful or false
-     * if no space available.
+     * if no space available. A collector created by the default
+     * {@link MetricCollectorSupport} records the metric into the statistics of
+     * the current upload interval instead, which always succeeds.
      */
     protected boolean addMetricsToQueue(MetricDatum metric) {
+        if (aggregator != null) {
+            aggregator.record(metric);
+            return true;
+        }
         return queue.offer(metric); 
     }
     /** Returns the predefined metrics transformer. */
@@ -47,9 +47,17 @@ public class ServiceMetricCollectorSupport extends ServiceMetricCollector
     static final double NANO_PER_SEC = TimeUnit.SECONDS.toNanos(1);
     protected final static Log log = LogFactory.getLog(ServiceMetricCollectorSupport.class);
     private final BlockingQueue<MetricDatum> queue;
+    /** The aggregator metrics are recorded into; or null if queued instead. */
+    private final MetricAggregator aggregator;
 
     protected ServiceMetricCollectorSupport(BlockingQueue<MetricDatum> queue) {
         this.queue = queue;
+        this.aggregator = null;
+    }
+
+    ServiceMetricCollectorSupport(MetricAggregator aggregator) {
+        this.queue = null;
+        this.aggregator = aggregator;
     }
 
     @Override
@@ -151,9 +159,15 @@ public class ServiceMetricCollectorSupport extends ServiceMetricCollector
     }
     /**
      * Adds the given metric to the queue, returning true if successful or false
-     * if no space available.
+     * if no space available. A collector created by the default
+     * {@link MetricCollectorSupport} records the metric into the statistics of
+     * the current upload interval instead, which always succeeds.
      */
     protected boolean addMetricsToQueue(MetricDatum metric) {
+        if (aggregator != null) {
+            aggregator.record(metric);
+            return true;
+        }
         return queue.offer(metric); 
     }
 }
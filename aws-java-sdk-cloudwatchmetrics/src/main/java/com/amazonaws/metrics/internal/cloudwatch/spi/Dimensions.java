@@ -38,5 +38,10 @@ public enum Dimensions {
      * JVM used for per-JVM level metrics with a single metric namespace.
      */
     JVM,
+    /**
+     * Percentile, such as p99, of the values of a metric over an upload
+     * interval.
+     */
+    Percentile,
     ;
 }
\ No newline at end of file
@@ -40,6 +40,7 @@ import com.amazonaws.regions.Region;
 import com.amazonaws.regions.Regions;
 import com.amazonaws.util.AWSRequestMetrics;
 import com.amazonaws.util.AWSRequestMetrics.Field;
+import com.amazonaws.util.AWSRequestMetricsFullSupport;
 import com.amazonaws.util.AwsHostNameUtils;
 import com.amazonaws.util.Classes;
 
@@ -661,6 +662,10 @@ public abstract class AmazonWebServiceClient {
             RequestMetricCollector c = findRequestMetricCollector(request);
             c.collectMetrics(request, response);
             awsRequestMetrics.log();
+            if (AwsSdkMetrics.isRequestMetricsRecycled()
+                    && awsRequestMetrics instanceof AWSRequestMetricsFullSupport) {
+                ((AWSRequestMetricsFullSupport) awsRequestMetrics).recycle();
+            }
         }
     }
 
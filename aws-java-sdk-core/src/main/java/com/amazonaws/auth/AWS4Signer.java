@@ -36,8 +36,11 @@ import java.net.URI;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -49,7 +52,6 @@ import com.amazonaws.Request;
 import com.amazonaws.auth.internal.AWS4SignerRequestParams;
 import com.amazonaws.auth.internal.AWS4SignerUtils;
 import com.amazonaws.auth.internal.SignerKey;
-import com.amazonaws.internal.FIFOCache;
 import com.amazonaws.util.BinaryUtils;
 import com.amazonaws.util.DateUtils;
 import com.amazonaws.util.HttpUtils;
@@ -89,7 +91,13 @@ public class AWS4Signer extends AbstractAWSSigner implements
 
     private static final int SIGNER_CACHE_MAX_SIZE = 300;
 
-    private static final FIFOCache<SignerKey> signerCache = new FIFOCache<SignerKey>(SIGNER_CACHE_MAX_SIZE);
+    /**
+     * Signing keys by secret key, region and service. Each key is only valid
+     * for the date it was derived for, so entries for other dates are evicted
+     * first when the cache is full. Lookups don't take any lock.
+     */
+    private static final ConcurrentMap<String, SignerKey> signerCache =
+            new ConcurrentHashMap<String, SignerKey>();
 
     /**
      * Construct a new AWS4 signer instance. By default, enable double
@@ -359,11 +367,33 @@ public class AWS4Signer extends AbstractAWSSigner implements
                 signerRequestParams.getFormattedSigningDate(),
                 signerRequestParams.getRegionName(),
                 signerRequestParams.getServiceName());
-        signerCache.add(cacheKey, new SignerKey(
+        if (signerCache.size() >= SIGNER_CACHE_MAX_SIZE) {
+            evictSigningKeys(daysSinceEpochSigningDate);
+        }
+        signerCache.put(cacheKey, new SignerKey(
                 daysSinceEpochSigningDate, signingKey));
         return signingKey;
     }
 
+    /**
+     * Makes room in the signing key cache, evicting the keys derived for any
+     * other date than the given one, and then arbitrary keys if that's not
+     * enough.
+     */
+    private static void evictSigningKeys(long daysSinceEpochSigningDate) {
+        Iterator<SignerKey> signerKeys = signerCache.values().iterator();
+        while (signerKeys.hasNext()) {
+            if (signerKeys.next().getNumberOfDaysSinceEpoch() != daysSinceEpochSigningDate) {
+                signerKeys.remove();
+            }
+        }
+        signerKeys = signerCache.values().iterator();
+        while (signerCache.size() >= SIGNER_CACHE_MAX_SIZE && signerKeys.hasNext()) {
+            signerKeys.next();
+            signerKeys.remove();
+        }
+    }
+
     /**
      * Computes the name to be used to reference the signing key in the cache.
      */
@@ -452,12 +482,12 @@ public class AWS4Signer extends AbstractAWSSigner implements
         final Map<String, String> requestHeaders = request.getHeaders();
         StringBuilder buffer = new StringBuilder();
         for (String header : sortedHeaders) {
-            String key = header.toLowerCase().replaceAll("\\s+", " ");
             String value = requestHeaders.get(header);
 
-            buffer.append(key).append(":");
+            appendCompactedString(buffer, header.toLowerCase());
+            buffer.append(":");
             if (value != null) {
-                buffer.append(value.replaceAll("\\s+", " "));
+                appendCompactedString(buffer, value);
             }
 
             buffer.append("\n");
@@ -466,6 +496,37 @@ public class AWS4Signer extends AbstractAWSSigner implements
         return buffer.toString();
     }
 
+    /**
+     * Appends the given string with every run of whitespace replaced by a
+     * single space; the same as <code>source.replaceAll("\\s+", " ")</code>,
+     * but without compiling and running a regular expression for every header.
+     */
+    private static void appendCompactedString(StringBuilder destination,
+            String source) {
+        boolean previousIsWhiteSpace = false;
+        for (int i = 0; i < source.length(); i++) {
+            char ch = source.charAt(i);
+            if (isWhiteSpace(ch)) {
+                if (!previousIsWhiteSpace) {
+                    destination.append(' ');
+                }
+                previousIsWhiteSpace = true;
+            } else {
+                destination.append(ch);
+                previousIsWhiteSpace = false;
+            }
+        }
+    }
+
+    /**
+     * Returns true if the given character is matched by <code>\s</code> in a
+     * regular expression.
+     */
+    private static boolean isWhiteSpace(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000b'
+                || ch == '\r' || ch == '\f';
+    }
+
     protected String getSignedHeadersString(Request<?> request) {
         final List<String> sortedHeaders = new ArrayList<String>(request
                 .getHeaders().keySet());
@@ -22,6 +22,7 @@ import java.io.InputStream;
 import java.net.URI;
 import java.security.DigestInputStream;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
@@ -49,6 +50,23 @@ import com.amazonaws.util.HttpUtils;
  */
 public abstract class AbstractAWSSigner implements Signer {
 
+    /**
+     * Per-thread SHA-256 digest for hashing in-memory data, so that signing
+     * doesn't look up the JCE provider for every request.
+     */
+    private static final ThreadLocal<MessageDigest> SHA256_MESSAGE_DIGEST =
+            new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new AmazonClientException(
+                        "Unable to get SHA256 Function: " + e.getMessage(), e);
+            }
+        }
+    };
+
     /**
      * Computes an RFC 2104-compliant HMAC signature and returns the result as a
      * Base64 encoded string.
@@ -89,7 +107,7 @@ public abstract class AbstractAWSSigner implements Signer {
     protected byte[] sign(byte[] data, byte[] key,
             SigningAlgorithm algorithm) throws AmazonClientException {
         try {
-            Mac mac = Mac.getInstance(algorithm.toString());
+            Mac mac = algorithm.getMac();
             mac.init(new SecretKeySpec(key, algorithm.toString()));
             return mac.doFinal(data);
         } catch (Exception e) {
@@ -113,7 +131,7 @@ public abstract class AbstractAWSSigner implements Signer {
      */
     public byte[] hash(String text) throws AmazonClientException {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = getMessageDigestInstance();
             md.update(text.getBytes(UTF8));
             return md.digest();
         } catch (Exception e) {
@@ -125,6 +143,8 @@ public abstract class AbstractAWSSigner implements Signer {
 
     protected byte[] hash(InputStream input) throws AmazonClientException {
         try {
+            // Not the per-thread digest, since reading the stream may itself
+            // hash data on this thread
             MessageDigest md = MessageDigest.getInstance("SHA-256");
             @SuppressWarnings("resource")
             DigestInputStream digestInputStream = new SdkDigestInputStream(
@@ -153,7 +173,7 @@ public abstract class AbstractAWSSigner implements Signer {
      */
     public byte[] hash(byte[] data) throws AmazonClientException {
         try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            MessageDigest md = getMessageDigestInstance();
             md.update(data);
             return md.digest();
         } catch (Exception e) {
@@ -162,6 +182,16 @@ public abstract class AbstractAWSSigner implements Signer {
                             + e.getMessage(), e);
         }
     }
+    /**
+     * Returns the SHA-256 digest owned by the current thread, reset for a new
+     * computation.
+     */
+    private static MessageDigest getMessageDigestInstance() {
+        MessageDigest messageDigest = SHA256_MESSAGE_DIGEST.get();
+        messageDigest.reset();
+        return messageDigest;
+    }
+
     /**
      * Examines the specified query string parameters and returns a
      * canonicalized form.
@@ -14,9 +14,45 @@
  */
 package com.amazonaws.auth;
 
+import java.security.NoSuchAlgorithmException;
+
+import javax.crypto.Mac;
+
+import com.amazonaws.AmazonClientException;
+
 public enum SigningAlgorithm {
     
     HmacSHA1,
     HmacSHA256;
 
+    /**
+     * Per-thread Mac for this algorithm, so that signing doesn't look up the
+     * JCE provider for every request.
+     */
+    private final ThreadLocal<Mac> macReference;
+
+    private SigningAlgorithm() {
+        final String algorithmName = this.name();
+        macReference = new ThreadLocal<Mac>() {
+            @Override
+            protected Mac initialValue() {
+                try {
+                    return Mac.getInstance(algorithmName);
+                } catch (NoSuchAlgorithmException e) {
+                    throw new AmazonClientException(
+                            "Unable to fetch Mac instance for Algorithm "
+                                    + algorithmName + ": " + e.getMessage(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the Mac for this algorithm owned by the current thread. The
+     * caller must initialize it with a key before use, and must not keep it
+     * beyond the current computation.
+     */
+    public Mac getMac() {
+        return macReference.get();
+    }
 }
@@ -14,6 +14,7 @@
  */
 package com.amazonaws.event;
 
+import static com.amazonaws.event.ProgressEventType.BYTE_TRANSFER_EVENT;
 import static com.amazonaws.event.ProgressEventType.HTTP_REQUEST_CONTENT_RESET_EVENT;
 import static com.amazonaws.event.ProgressEventType.HTTP_RESPONSE_CONTENT_RESET_EVENT;
 import static com.amazonaws.event.ProgressEventType.REQUEST_BYTE_TRANSFER_EVENT;
@@ -21,11 +22,20 @@ import static com.amazonaws.event.ProgressEventType.REQUEST_CONTENT_LENGTH_EVENT
 import static com.amazonaws.event.ProgressEventType.RESPONSE_BYTE_TRANSFER_EVENT;
 import static com.amazonaws.event.ProgressEventType.RESPONSE_CONTENT_LENGTH_EVENT;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.apache.commons.logging.LogFactory;
 
@@ -33,6 +43,14 @@ import org.apache.commons.logging.LogFactory;
  * This class is responsible for executing the callback method of
  * ProgressListener; listener callbacks are executed sequentially in a separate
  * single thread.
+ * <p>
+ * Events to a listener that is not safe to call synchronously go through a
+ * lock-free mailbox per listener, which is drained by a single task at a time
+ * so the listener sees its events in order. Byte transfer events waiting in a
+ * mailbox are coalesced into one event carrying their total, and are
+ * delivered at most {@link #getMaxByteTransferEventsPerSecond()} times per
+ * second per listener, so that the cost of progress reporting grows with the
+ * duration of a transfer rather than with the number of bytes transferred.
  */
 public class SDKProgressPublisher {
     protected static final boolean SYNC = false;  // for testing purposes only
@@ -42,6 +60,56 @@ public class SDKProgressPublisher {
      */
     private static volatile Future<?> latestFutureTask;
 
+    /**
+     * Default max number of byte transfer events delivered per second to a
+     * listener that is not safe to call synchronously.
+     */
+    public static final int DEFAULT_MAX_BYTE_TRANSFER_EVENTS_PER_SECOND = 10;
+
+    private static volatile int maxByteTransferEventsPerSecond =
+        DEFAULT_MAX_BYTE_TRANSFER_EVENTS_PER_SECOND;
+
+    /** The executor set by the user; or null if the default is used. */
+    private static volatile ScheduledExecutorService customExecutor;
+
+    /**
+     * The mailboxes of the listeners with events being delivered, by listener
+     * identity, as listeners that are equal are still distinct listeners.
+     */
+    private static final ConcurrentMap<ListenerKey, Mailbox> mailboxes =
+        new ConcurrentHashMap<ListenerKey, Mailbox>();
+
+    /**
+     * Returns the max number of byte transfer events delivered per second to
+     * each listener that is not safe to call synchronously.
+     */
+    public static int getMaxByteTransferEventsPerSecond() {
+        return maxByteTransferEventsPerSecond;
+    }
+
+    /**
+     * Sets the max number of byte transfer events delivered per second to each
+     * listener that is not safe to call synchronously; byte transfer events
+     * in excess are coalesced. Zero means no limit, in which case only the
+     * events that pile up while the listener is busy are coalesced.
+     */
+    public static void setMaxByteTransferEventsPerSecond(int eventsPerSecond) {
+        if (eventsPerSecond < 0)
+            throw new IllegalArgumentException("eventsPerSecond must not be negative");
+        maxByteTransferEventsPerSecond = eventsPerSecond;
+    }
+
+    /**
+     * Sets the executor to call the listeners that are not safe to call
+     * synchronously on, so that progress delivery can share the event loop of
+     * an application; or null to use the default single thread executor.
+     * The executor must run the tasks submitted to it even if the listeners
+     * are slow, as the listener of a task waits for the previous one.
+     */
+    public static void setExecutorService(ScheduledExecutorService executor) {
+        customExecutor = executor;
+    }
+
     /**
      * Used to deliver a progress event to the given listener.
      * 
@@ -73,16 +141,24 @@ public class SDKProgressPublisher {
                 }
             }
         }
-        // Not safe to call the listener directly; so submit an async task.
-        // This is unfortunate as the listener should never block in the first
-        // place, but such task submission is necessary to remain backward
-        // compatible.
-        return latestFutureTask = LazyHolder.executor.submit(new Runnable() {
-            @Override
-            public void run() {
-                listener.progressChanged(event);
+        // Not safe to call the listener directly; so hand the event to the
+        // mailbox of the listener. This is unfortunate as the listener should
+        // never block in the first place, but such asynchronous delivery is
+        // necessary to remain backward compatible.
+        ListenerKey key = new ListenerKey(listener);
+        while (true) {
+            Mailbox mailbox = mailboxes.get(key);
+            if (mailbox == null) {
+                Mailbox newMailbox = new Mailbox(key);
+                mailbox = mailboxes.putIfAbsent(key, newMailbox);
+                if (mailbox == null)
+                    mailbox = newMailbox;
             }
-        });
+            if (mailbox.post(event))
+                return mailbox.drainTask;
+            // The mailbox has just been closed; help remove it and retry.
+            mailboxes.remove(key, mailbox);
+        }
     }
 
     private static Future<?> quietlyCallListener(final ProgressListener listener,
@@ -222,7 +298,12 @@ public class SDKProgressPublisher {
      * Returns the executor service used for performing the callbacks.
      */
     protected static ExecutorService getExecutorService() {
-        return LazyHolder.executor;
+        return getScheduledExecutorService();
+    }
+
+    private static ScheduledExecutorService getScheduledExecutorService() {
+        ScheduledExecutorService executor = customExecutor;
+        return executor == null ? LazyHolder.executor : executor;
     }
     
     protected static Future<?> setLatestFutureTask(Future<?> f) {
@@ -247,14 +328,14 @@ public class SDKProgressPublisher {
      */
     private static final class LazyHolder {
         /** A single thread pool for executing all ProgressListener callbacks. **/
-        private static final ExecutorService executor = createNewExecutorService();
+        private static final ScheduledExecutorService executor = createNewExecutorService();
 
         /**
          * Creates a new single threaded executor service for performing the
          * callbacks.
          */
-        private static ExecutorService createNewExecutorService() {
-            return Executors.newSingleThreadExecutor(new ThreadFactory() {
+        private static ScheduledExecutorService createNewExecutorService() {
+            return Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
                 public Thread newThread(Runnable r) {
                     Thread t = new Thread(r);
                     t.setName("java-sdk-progress-listener-callback-thread");
@@ -266,7 +347,9 @@ public class SDKProgressPublisher {
     }
 
     /**
-     * Can be used to shutdown the (legacy) executor.
+     * Can be used to shutdown the (legacy) executor. An executor set by
+     * {@link #setExecutorService(ScheduledExecutorService)} belongs to the
+     * application, and is left running.
      * <p>
      * However, the recommended best practice is to always make use of progress
      * listeners that are short-lived (ie do not block) and are subclasses of
@@ -282,4 +365,281 @@ public class SDKProgressPublisher {
         else
             LazyHolder.executor.shutdown();
     }
+
+    /** The types of the byte transfer events coalesced by a mailbox. */
+    @SuppressWarnings("deprecation") // events of the legacy ProgressEvent(long)
+    private static final ProgressEventType[] COALESCED_TYPES = {
+        REQUEST_BYTE_TRANSFER_EVENT,
+        RESPONSE_BYTE_TRANSFER_EVENT,
+        BYTE_TRANSFER_EVENT,
+    };
+    private static final int NUM_COALESCED_TYPES = COALESCED_TYPES.length;
+
+    /**
+     * Returns the index of the given event type among the byte transfer
+     * events coalesced by a mailbox; or -1 if events of the type are
+     * delivered one by one.
+     */
+    private static int coalescedIndex(ProgressEventType type) {
+        switch (type) {
+            case REQUEST_BYTE_TRANSFER_EVENT:
+                return 0;
+            case RESPONSE_BYTE_TRANSFER_EVENT:
+                return 1;
+            case BYTE_TRANSFER_EVENT:
+                return 2;
+            default:
+                return -1;
+        }
+    }
+
+    /**
+     * The byte transfer events of a type coalesced in a mailbox. Bytes are
+     * added until the mailbox takes the total for delivery, after which the
+     * total is sealed and bytes go to a new instance.
+     */
+    private static final class CoalescedBytes {
+        private static final long SEALED = -1;
+
+        final ProgressEventType type;
+        private final AtomicLong bytes;
+
+        CoalescedBytes(ProgressEventType type, long bytes) {
+            this.type = type;
+            this.bytes = new AtomicLong(bytes);
+        }
+
+        /** Returns false if the total has already been sealed. */
+        boolean add(long delta) {
+            while (true) {
+                long current = bytes.get();
+                if (current == SEALED)
+                    return false;
+                if (bytes.compareAndSet(current, current + delta))
+                    return true;
+            }
+        }
+
+        long seal() {
+            return bytes.getAndSet(SEALED);
+        }
+    }
+
+    /**
+     * Identifies a listener by identity rather than by equality.
+     */
+    private static final class ListenerKey {
+        final ProgressListener listener;
+
+        ListenerKey(ProgressListener listener) {
+            this.listener = listener;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(listener);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ListenerKey
+                && ((ListenerKey) obj).listener == listener;
+        }
+    }
+
+    /**
+     * The events waiting to be delivered to a listener. A mailbox is drained
+     * by a single task at a time, and is closed and discarded once it has
+     * nothing left to deliver; later events then go to a new mailbox.
+     */
+    private static final class Mailbox implements Runnable {
+        private static final int CLOSED = -1;
+
+        private final ListenerKey key;
+        private final ProgressListener listener;
+
+        /**
+         * The events, and the {@link CoalescedBytes} of byte transfer
+         * events, in order of arrival.
+         */
+        private final ConcurrentLinkedQueue<Object> entries =
+            new ConcurrentLinkedQueue<Object>();
+
+        /**
+         * The number of entries posted but not yet delivered; or
+         * {@link #CLOSED}. The poster that takes it from zero starts the
+         * drain task, and only the drain task closes the mailbox.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /** The number of pending entries that are not coalesced bytes. */
+        private final AtomicInteger pendingEvents = new AtomicInteger();
+
+        /**
+         * The coalesced bytes of each type still open to more bytes, which
+         * are the latest entries of their type.
+         */
+        private final AtomicReferenceArray<CoalescedBytes> openBytes =
+            new AtomicReferenceArray<CoalescedBytes>(NUM_COALESCED_TYPES);
+
+        private volatile Future<?> drainTask;
+
+        /** The earliest time to deliver the next byte transfer events. */
+        private long nextByteTransferNanos = System.nanoTime();
+
+        /**
+         * True if the drain task holds on to one pending count, so that the
+         * mailbox stays open and bytes keep being coalesced until the next
+         * byte transfer events may be delivered.
+         */
+        private boolean lingering;
+
+        Mailbox(ListenerKey key) {
+            this.key = key;
+            this.listener = key.listener;
+        }
+
+        /**
+         * Posts the given event, returning false if the mailbox has been
+         * closed.
+         */
+        boolean post(ProgressEvent event) {
+            int index = coalescedIndex(event.getEventType());
+            if (index >= 0) {
+                // Entries still open are pending, so the mailbox can't be
+                // closed under them.
+                CoalescedBytes open = openBytes.get(index);
+                if (open != null && open.add(event.getBytes()))
+                    return true;
+            }
+            int count;
+            do {
+                count = pending.get();
+                if (count == CLOSED)
+                    return false;
+            } while (!pending.compareAndSet(count, count + 1));
+            if (index >= 0) {
+                CoalescedBytes bytes = new CoalescedBytes(event.getEventType(), event.getBytes());
+                openBytes.set(index, bytes);
+                entries.add(bytes);
+            } else {
+                // Bytes transferred after this event must be delivered after
+                // it, and so can't be added to the entries before it.
+                for (int i = 0; i < NUM_COALESCED_TYPES; i++)
+                    openBytes.set(i, null);
+                pendingEvents.incrementAndGet();
+                entries.add(event);
+            }
+            if (count == 0)
+                schedule(0);
+            return true;
+        }
+
+        private void schedule(long delayNanos) {
+            ScheduledExecutorService executor = getScheduledExecutorService();
+            try {
+                drainTask = setLatestFutureTask(delayNanos > 0
+                    ? executor.schedule(this, delayNanos, TimeUnit.NANOSECONDS)
+                    : executor.submit(this));
+            } catch (RejectedExecutionException e) {
+                // The executor has been shut down; drop the pending events.
+                pending.set(CLOSED);
+                mailboxes.remove(key, this);
+                entries.clear();
+                LogFactory.getLog(SDKProgressPublisher.class)
+                    .debug("Progress events dropped", e);
+            }
+        }
+
+        /** Delivers the pending events in order. */
+        @Override
+        public void run() {
+            if (lingering) {
+                lingering = false;
+                if (release(1))
+                    return;
+            }
+            while (true) {
+                Object entry = entries.peek();
+                if (entry == null) {
+                    // Counted as pending, but not yet added by its poster.
+                    Thread.yield();
+                    continue;
+                }
+                int delivered;
+                if (entry instanceof CoalescedBytes) {
+                    long waitNanos = nextByteTransferNanos - System.nanoTime();
+                    if (waitNanos > 0 && pendingEvents.get() == 0) {
+                        // Nothing else to deliver; let more bytes add up.
+                        schedule(waitNanos);
+                        return;
+                    }
+                    delivered = deliverCoalescedBytes();
+                    long lingerNanos = nextByteTransferNanos - System.nanoTime();
+                    if (lingerNanos > 0 && pendingEvents.get() == 0) {
+                        // Stay open until more bytes may be delivered, rather
+                        // than let the next bytes go to a new mailbox.
+                        if (delivered > 1)
+                            release(delivered - 1);
+                        lingering = true;
+                        schedule(lingerNanos);
+                        return;
+                    }
+                } else {
+                    entries.poll();
+                    pendingEvents.decrementAndGet();
+                    quietlyCallListener(listener, (ProgressEvent) entry);
+                    delivered = 1;
+                }
+                if (release(delivered))
+                    return;
+            }
+        }
+
+        /**
+         * Delivers the total of each type of the coalesced bytes at the head
+         * of the mailbox, and returns the number of entries they took.
+         */
+        private int deliverCoalescedBytes() {
+            long[] totals = new long[NUM_COALESCED_TYPES];
+            int count = 0;
+            Object entry;
+            while ((entry = entries.peek()) instanceof CoalescedBytes) {
+                CoalescedBytes bytes = (CoalescedBytes) entry;
+                int index = coalescedIndex(bytes.type);
+                entries.poll();
+                openBytes.compareAndSet(index, bytes, null);
+                totals[index] += bytes.seal();
+                count++;
+            }
+            for (ProgressEventType type : COALESCED_TYPES) {
+                long total = totals[coalescedIndex(type)];
+                if (total > 0)
+                    quietlyCallListener(listener, new ProgressEvent(type, total));
+            }
+            int maxPerSecond = maxByteTransferEventsPerSecond;
+            nextByteTransferNanos = maxPerSecond == 0
+                ? System.nanoTime()
+                : System.nanoTime() + TimeUnit.SECONDS.toNanos(1) / maxPerSecond;
+            return count;
+        }
+
+        /**
+         * Takes the given number of delivered entries off the pending count,
+         * closing the mailbox if none are left. Returns true if closed.
+         */
+        private boolean release(int delivered) {
+            while (true) {
+                int count = pending.get();
+                if (count == delivered) {
+                    if (pending.compareAndSet(count, CLOSED)) {
+                        mailboxes.remove(key, this);
+                        return true;
+                    }
+                } else if (pending.compareAndSet(count, count - delivered)) {
+                    return false;
+                }
+            }
+        }
+    }
 }
@@ -55,7 +55,7 @@ public class ExecutionContext {
                             AmazonWebServiceClient awsClient) {
         this.requestHandler2s = requestHandler2s;
         awsRequestMetrics = isMetricEnabled
-                          ? new AWSRequestMetricsFullSupport()
+                          ? AWSRequestMetricsFullSupport.obtain()
                           : new AWSRequestMetrics();
         this.awsClient = awsClient;
     }
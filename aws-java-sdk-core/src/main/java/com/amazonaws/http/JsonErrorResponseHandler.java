@@ -14,9 +14,10 @@
  */
 package com.amazonaws.http;
 
-import java.io.BufferedReader;
+import static com.amazonaws.util.StringUtils.UTF8;
+
+import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.util.List;
 import java.util.Map.Entry;
 
@@ -24,7 +25,13 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.transform.JsonErrorUnmarshaller;
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.json.JSONArray;
+import com.amazonaws.util.json.JSONException;
 import com.amazonaws.util.json.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 
 public class JsonErrorResponseHandler implements HttpResponseHandler<AmazonServiceException> {
 
@@ -34,6 +41,9 @@ public class JsonErrorResponseHandler implements HttpResponseHandler<AmazonServi
      */
     private static final String X_AMZN_ERROR_TYPE = "x-amzn-ErrorType";
 
+    /** Shared, thread safe factory for streaming JSON parsers */
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
     /**
      * The list of error response unmarshallers to try to apply to error
      * responses.
@@ -45,14 +55,13 @@ public class JsonErrorResponseHandler implements HttpResponseHandler<AmazonServi
     }
 
     public AmazonServiceException handle(HttpResponse response) throws Exception {
-        String streamContents = readStreamContents(response.getContent());
+        byte[] streamContents = readStreamContents(response.getContent());
         JSONObject jsonErrorMessage;
         try {
-            String s = streamContents;
-            if (s.length() == 0 || s.trim().length() == 0) s = "{}";
-            jsonErrorMessage = new JSONObject(s);
+            jsonErrorMessage = parseJsonObject(streamContents);
         } catch (Exception e) {
-            throw new AmazonClientException("Unable to parse error response: '" + streamContents + "'", e);
+            throw new AmazonClientException("Unable to parse error response: '"
+                    + new String(streamContents, UTF8) + "'", e);
         }
 
         String errorTypeFromHeader = parseErrorTypeFromHeader(response);
@@ -100,23 +109,75 @@ public class JsonErrorResponseHandler implements HttpResponseHandler<AmazonServi
         return false;
     }
 
-    private String readStreamContents(final InputStream stream) {
+    private byte[] readStreamContents(final InputStream stream) {
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(stream));
-            StringBuilder sb = new StringBuilder();
-            while (true) {
-                String line = reader.readLine();
-                if (line == null) break;
-                sb.append(line);
-            }
-
-            return sb.toString();
+            return IOUtils.toByteArray(stream);
         } catch (Exception e) {
             try {stream.close();} catch (Exception ex) {}
             throw new AmazonClientException("Unable to read error response: " + e.getMessage(), e);
         }
     }
 
+    /**
+     * Parses the error response content with a streaming Jackson parser into
+     * the JSONObject expected by the error unmarshallers, without going
+     * through an intermediate String and the character based JSONTokener. An
+     * empty or blank payload results in an empty JSONObject.
+     */
+    private JSONObject parseJsonObject(byte[] content) throws IOException, JSONException {
+        JsonParser parser = jsonFactory.createParser(content);
+        try {
+            JsonToken token = parser.nextToken();
+            if (token == null) return new JSONObject();
+            if (token != JsonToken.START_OBJECT) {
+                throw new JSONException("A JSONObject text must begin with '{'");
+            }
+            return readObject(parser);
+        } finally {
+            parser.close();
+        }
+    }
+
+    private JSONObject readObject(JsonParser parser) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.getCurrentName();
+            parser.nextToken();
+            object.put(name, readValue(parser));
+        }
+        return object;
+    }
+
+    private JSONArray readArray(JsonParser parser) throws IOException, JSONException {
+        JSONArray array = new JSONArray();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            array.put(readValue(parser));
+        }
+        return array;
+    }
+
+    private Object readValue(JsonParser parser) throws IOException, JSONException {
+        switch (parser.getCurrentToken()) {
+        case START_OBJECT:
+            return readObject(parser);
+        case START_ARRAY:
+            return readArray(parser);
+        case VALUE_STRING:
+            return parser.getText();
+        case VALUE_NUMBER_INT:
+        case VALUE_NUMBER_FLOAT:
+            return parser.getNumberValue();
+        case VALUE_TRUE:
+            return Boolean.TRUE;
+        case VALUE_FALSE:
+            return Boolean.FALSE;
+        case VALUE_NULL:
+            return JSONObject.NULL;
+        default:
+            throw new JSONException("Unexpected JSON token: " + parser.getCurrentToken());
+        }
+    }
+
     /**
      * Attempt to parse the error type from the response headers.
      * Returns null if such information is not available in the header.
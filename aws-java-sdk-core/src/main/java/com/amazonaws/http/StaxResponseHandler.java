@@ -47,8 +47,18 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
     /** Shared logger for profiling information */
     private static final Log log = LogFactory.getLog("com.amazonaws.request");
 
-    /** Shared factory for creating XML event readers */
-    private static final XMLInputFactory xmlInputFactory = XMLInputFactory.newInstance();
+    /**
+     * Per-thread factories for creating XML event readers. XMLInputFactory is
+     * not guaranteed to be thread safe, and a single shared factory would
+     * serialize every XML response in the JVM through one monitor.
+     */
+    private static final ThreadLocal<XMLInputFactory> xmlInputFactory =
+        new ThreadLocal<XMLInputFactory>() {
+            @Override
+            protected XMLInputFactory initialValue() {
+                return XMLInputFactory.newInstance();
+            }
+        };
 
 
     /**
@@ -84,10 +94,7 @@ public class StaxResponseHandler<T> implements HttpResponseHandler<AmazonWebServ
         InputStream content = response.getContent();
         if (content == null) content = new ByteArrayInputStream("<eof/>".getBytes());
 
-        XMLEventReader eventReader;
-        synchronized (xmlInputFactory) {
-            eventReader = xmlInputFactory.createXMLEventReader(content);
-        }
+        XMLEventReader eventReader = xmlInputFactory.get().createXMLEventReader(content);
 
         try {
             AmazonWebServiceResponse<T> awsResponse = new AmazonWebServiceResponse<T>();
@@ -27,6 +27,8 @@ import java.util.Set;
 
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.Request;
+import com.amazonaws.Response;
 import com.amazonaws.SDKGlobalConfiguration;
 import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
@@ -188,6 +190,18 @@ public enum AwsSdkMetrics {
      */
     public static final String HOST_METRIC_NAME = "hostMetricName";
 
+    /**
+     * Used to specify the percentiles of each metric to be uploaded in
+     * addition to its statistics, separated by colons. By default, no
+     * percentiles are uploaded.
+     * 
+     * <pre>
+     * Example:
+     *  -Dcom.amazonaws.sdk.enableDefaultMetrics=percentiles=50:99:99.9
+     * </pre>
+     */
+    public static final String PERCENTILES = "percentiles";
+
     private static final String DEFAULT_METRIC_COLLECTOR_FACTORY =
         "com.amazonaws.metrics.internal.cloudwatch.DefaultMetricCollectorFactory";
     /**
@@ -232,12 +246,18 @@ public enum AwsSdkMetrics {
      */
     private static volatile String jvmMetricName;
     private static volatile String hostMetricName;
+    private static volatile double[] percentiles;
     /**
      * True if the same metric namespace is to be used for all levels (such as
      * JVM level, host-level, etc.) of AWS Cloudwatch Metrics for the Java SDK;
      * false otherwise.
      */
     private static volatile boolean singleMetricNamespace;
+    /**
+     * True if the request metrics of a request are recycled for a later
+     * request once they have been collected; false otherwise.
+     */
+    private static volatile boolean requestMetricsRecycled;
 
     static {
         String defaultMetrics = System.getProperty(DEFAULT_METRICS_SYSTEM_PROPERTY);
@@ -281,6 +301,15 @@ public enum AwsSdkMetrics {
                                 jvmMetricName = value;
                             } else if (HOST_METRIC_NAME.equals(key)) {
                                 hostMetricName = value;
+                            } else if (PERCENTILES.equals(key)) {
+                                String[] parts = value.split(":");
+                                double[] p = new double[parts.length];
+                                for (int i = 0; i < parts.length; i++) {
+                                    p[i] = Double.parseDouble(parts[i].trim());
+                                    if (!(p[i] > 0 && p[i] <= 100))
+                                        throw new IllegalArgumentException(PERCENTILES + " must be greater than 0 and at most 100");
+                                }
+                                percentiles = p;
                             } else {
                                 LogFactory.getLog(AwsSdkMetrics.class).debug("Ignoring unrecognized parameter: " + part);
                             }
@@ -461,6 +490,32 @@ public enum AwsSdkMetrics {
         AwsSdkMetrics.singleMetricNamespace = singleMetricNamespace;
     }
 
+    /**
+     * Returns true if the request metrics of a request are recycled for a
+     * later request once they have been collected; false otherwise.
+     */
+    public static boolean isRequestMetricsRecycled() {
+        return requestMetricsRecycled;
+    }
+
+    /**
+     * Used to set whether the request metrics of a request are recycled for a
+     * later request on the same thread once the request metric collector is
+     * done with them, which saves allocating them anew for each request.
+     * <p>
+     * This must only be enabled if no {@link RequestMetricCollector} in use
+     * keeps a reference to the {@link Request} or its
+     * {@link com.amazonaws.util.AWSRequestMetrics} after returning from
+     * {@link RequestMetricCollector#collectMetrics(Request, Response)},
+     * as the default metric collector does not.
+     *
+     * @param requestMetricsRecycled
+     *            true if request metrics are to be recycled; false otherwise.
+     */
+    public static void setRequestMetricsRecycled(boolean requestMetricsRecycled) {
+        AwsSdkMetrics.requestMetricsRecycled = requestMetricsRecycled;
+    }
+
     /**
      * Returns true if metrics at the AWS SDK level is enabled; false
      * if disabled.
@@ -756,6 +811,25 @@ public enum AwsSdkMetrics {
         AwsSdkMetrics.hostMetricName = hostMetricName;
     }
 
+    /**
+     * Returns the percentiles of each metric to be uploaded by the default AWS
+     * SDK metric collector in addition to its statistics; or null if the
+     * default is to be used.
+     */
+    public static double[] getPercentiles() {
+        double[] p = percentiles;
+        return p == null ? null : p.clone();
+    }
+
+    /**
+     * Sets the percentiles, such as 50 or 99.9, of each metric to be uploaded
+     * by the default AWS SDK metric collector in addition to its statistics;
+     * or null if the default is to be used.
+     */
+    public static void setPercentiles(double... percentiles) {
+        AwsSdkMetrics.percentiles = percentiles == null ? null : percentiles.clone();
+    }
+
     /**
      * Used as a registry for the predefined metrics to be captured by the
      * metric collector at the AWS SDK level.
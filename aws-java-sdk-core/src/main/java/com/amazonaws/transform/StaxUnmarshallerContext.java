@@ -41,7 +41,16 @@ public class StaxUnmarshallerContext {
     private final XMLEventReader eventReader;
 
     public final Stack<String> stack = new Stack<String>();
-    private String stackString = "";
+
+    /**
+     * The current document path ("/a/b/c", optionally followed by "/@attr"),
+     * maintained in place so that path matching never has to rebuild or
+     * concatenate strings.
+     */
+    private final StringBuilder stackPath = new StringBuilder();
+
+    /** Length of {@link #stackPath} up to and including each open element. */
+    private int[] stackPathLengths = new int[16];
 
     private Map<String, String> metadata = new HashMap<String, String>();
     private List<MetadataExpression> metadataExpressions = new ArrayList<MetadataExpression>();
@@ -102,14 +111,24 @@ public class StaxUnmarshallerContext {
             return attribute.getValue();
         }
 
-        StringBuilder sb = new StringBuilder();
+        // The common case is a single characters event, which needs no
+        // intermediate buffer
+        String text = null;
+        StringBuilder sb = null;
         while (true) {
             XMLEvent event = eventReader.peek();
             if (event.getEventType() == XMLStreamConstants.CHARACTERS) {
                 eventReader.nextEvent();
-                sb.append(event.asCharacters().getData());
+                String data = event.asCharacters().getData();
+                if (text == null) {
+                    text = data;
+                } else {
+                    if (sb == null) sb = new StringBuilder(text);
+                    sb.append(data);
+                }
             } else if (event.getEventType() == XMLStreamConstants.END_ELEMENT) {
-                return sb.toString();
+                if (sb != null) return sb.toString();
+                return text == null ? "" : text;
             } else {
                 throw new RuntimeException("Encountered unexpected event: " + event.toString());
             }
@@ -138,7 +157,7 @@ public class StaxUnmarshallerContext {
      */
     public boolean testExpression(String expression) {
         if (expression.equals(".")) return true;
-        return stackString.endsWith(expression);
+        return pathEndsWith(expression, false);
     }
 
     /**
@@ -158,17 +177,17 @@ public class StaxUnmarshallerContext {
     public boolean testExpression(String expression, int startingStackDepth) {
         if (expression.equals(".")) return true;
 
-        int index = -1;
-        while ((index = expression.indexOf("/", index + 1)) > -1) {
+        final int length = expression.length();
+        for (int i = 0; i < length; i++) {
             // Don't consider attributes a new depth level
-            if (expression.charAt(index + 1) != '@') {
+            if (expression.charAt(i) == '/'
+                    && (i + 1 == length || expression.charAt(i + 1) != '@')) {
                 startingStackDepth++;
             }
         }
 
-
         return (startingStackDepth == getCurrentDepth()
-                && stackString.endsWith("/" + expression));
+                && pathEndsWith(expression, true));
     }
 
     /**
@@ -267,26 +286,56 @@ public class StaxUnmarshallerContext {
         }
     }
 
+    /**
+     * Returns true if the current document path ends with the specified
+     * expression, optionally preceded by a '/' separator. Compares characters
+     * in place so that no intermediate strings are created.
+     */
+    private boolean pathEndsWith(String expression, boolean leadingSlash) {
+        final int exprLength = expression.length();
+        final int offset = stackPath.length() - exprLength;
+        if (leadingSlash) {
+            if (offset < 1 || stackPath.charAt(offset - 1) != '/') return false;
+        } else if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < exprLength; i++) {
+            if (stackPath.charAt(offset + i) != expression.charAt(i)) return false;
+        }
+        return true;
+    }
+
     private void updateContext(XMLEvent event) {
         if (event == null) return;
 
         if (event.isEndElement()) {
             stack.pop();
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
-            }
+            stackPath.setLength(pathLength(stack.size()));
         } else if (event.isStartElement()) {
-            stack.push(event.asStartElement().getName().getLocalPart());
-            stackString += "/" + event.asStartElement().getName().getLocalPart();
+            final int depth = stack.size();
+            if (depth == stackPathLengths.length) {
+                int[] grown = new int[depth * 2];
+                System.arraycopy(stackPathLengths, 0, grown, 0, depth);
+                stackPathLengths = grown;
+            }
+            String localPart = event.asStartElement().getName().getLocalPart();
+            stack.push(localPart);
+            stackPath.setLength(pathLength(depth));
+            stackPath.append('/').append(localPart);
+            stackPathLengths[depth] = stackPath.length();
         } else if (event.isAttribute()) {
             Attribute attribute = (Attribute)event;
-            stackString = "";
-            for (String s : stack) {
-                stackString += "/" + s;
-            }
-            stackString += "/@" + attribute.getName().getLocalPart();
+            stackPath.setLength(pathLength(stack.size()));
+            stackPath.append("/@").append(attribute.getName().getLocalPart());
         }
     }
 
+    /**
+     * Returns the length of the element-only document path at the specified
+     * depth.
+     */
+    private int pathLength(int depth) {
+        return depth == 0 ? 0 : stackPathLengths[depth - 1];
+    }
+
 }
@@ -34,17 +34,45 @@ import com.amazonaws.metrics.RequestMetricCollector;
  * support of AWS SDK request metrics, this class is the full support of AWS SDK
  * request metrics including features such as properties and sub-events.
  * <p>
+ * Properties and events of the predefined {@link AWSRequestMetrics.Field}s are
+ * kept in arrays indexed by the ordinal of the field, so that recording them
+ * takes no map lookup and no allocation beyond the recorded values; custom
+ * {@link MetricType}s and names go to maps that are only created when first
+ * needed.
+ * <p>
  * This class is instantiated instead of {@link AWSRequestMetrics} when request
  * metric collection is required during a particular service request/response
  * cycle.
  */
 @NotThreadSafe
 public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
-    /* Stores some key value pairs. */
-    private final Map<String, List<Object>> properties = new HashMap<String, List<Object>>();
-    
-    /* A map to store events that are being profiled. */
-    private final Map<String, TimingInfo> eventsBeingProfiled = new HashMap<String, TimingInfo>();
+    private static final Field[] FIELDS = Field.values();
+    private static final Map<String, Field> FIELDS_BY_NAME = new HashMap<String, Field>();
+    static {
+        for (Field field : FIELDS) {
+            FIELDS_BY_NAME.put(field.name(), field);
+        }
+    }
+
+    /* The instance recycled on each thread, if any; see recycle(). */
+    private static final ThreadLocal<AWSRequestMetricsFullSupport> recycled =
+            new ThreadLocal<AWSRequestMetricsFullSupport>();
+
+    /* Stores some key value pairs, by field and by name for other properties. */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private final List<Object>[] propertiesByField = new List[FIELDS.length];
+    private Map<String, List<Object>> properties;
+
+    /* The start times of the events that are being profiled, by field and by name for other events. */
+    private final long[] eventStartTimesByField = new long[FIELDS.length];
+    private final boolean[] eventsBeingProfiledByField = new boolean[FIELDS.length];
+    private Map<String, Long> eventsBeingProfiled;
+
+    private final TimingInfoFullSupport timingInfoFullSupport;
+
+    /* True while this instance waits in the pool of its thread. */
+    private boolean isRecycled;
+
     /* Latency Logger */
     private static final Log latencyLogger = LogFactory.getLog("com.amazonaws.latency");
     private static final Object KEY_VALUE_SEPARATOR = "=";
@@ -58,8 +86,59 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     public AWSRequestMetricsFullSupport() {
         super(TimingInfo.startTimingFullSupport());
+        this.timingInfoFullSupport = (TimingInfoFullSupport) timingInfo;
     }
-    
+
+    /**
+     * Returns an instance to collect the metrics of a new request, reusing the
+     * one last recycled on the current thread if there is one.
+     *
+     * @see #recycle()
+     */
+    public static AWSRequestMetricsFullSupport obtain() {
+        AWSRequestMetricsFullSupport metrics = recycled.get();
+        if (metrics == null) {
+            return new AWSRequestMetricsFullSupport();
+        }
+        recycled.remove();
+        metrics.isRecycled = false;
+        metrics.timingInfoFullSupport.restartTiming(
+                Long.valueOf(System.currentTimeMillis()), System.nanoTime());
+        return metrics;
+    }
+
+    /**
+     * Clears this instance and keeps it for reuse by the next call to
+     * {@link #obtain()} on the current thread. This instance, and the timing
+     * info and property lists obtained from it, must no longer be used by
+     * anyone once this method has been called.
+     *
+     * @see AwsSdkMetrics#setRequestMetricsRecycled(boolean)
+     */
+    public void recycle() {
+        if (isRecycled) {
+            return;
+        }
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (propertiesByField[i] != null) {
+                propertiesByField[i].clear();
+            }
+            eventsBeingProfiledByField[i] = false;
+        }
+        properties = null;
+        eventsBeingProfiled = null;
+        isRecycled = true;
+        recycled.set(this);
+    }
+
+    /**
+     * Returns the predefined field of the given name; or null if there is
+     * none.
+     */
+    static Field fieldOf(String name) {
+        return FIELDS_BY_NAME.get(name);
+    }
+
     /**
      * Start an event which will be timed. The startTime and endTime are added
      * to timingInfo only after endEvent is called. For every startEvent there
@@ -81,14 +160,28 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void startEvent(String eventName) {
+        Field field = fieldOf(eventName);
+        if (field != null) {
+            startEvent(field);
+            return;
+        }
+        if (eventsBeingProfiled == null) {
+            eventsBeingProfiled = new HashMap<String, Long>();
+        }
         /* This will overwrite past events */
-        eventsBeingProfiled.put // ignoring the wall clock time
-            (eventName, TimingInfo.startTimingFullSupport(System.nanoTime()));
+        eventsBeingProfiled.put(eventName, System.nanoTime());
     }
 
     @Override
     public void startEvent(MetricType f) {
-        startEvent(f.name());
+        if (f instanceof Field) {
+            int i = ((Field) f).ordinal();
+            /* This will overwrite past events */
+            eventStartTimesByField[i] = System.nanoTime();
+            eventsBeingProfiledByField[i] = true;
+        } else {
+            startEvent(f.name());
+        }
     }
 
     /**
@@ -101,24 +194,43 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void endEvent(String eventName) {
-        TimingInfo event = eventsBeingProfiled.get(eventName);
+        Field field = fieldOf(eventName);
+        if (field != null) {
+            endEvent(field);
+            return;
+        }
+        Long startTimeNano = eventsBeingProfiled == null ? null : eventsBeingProfiled.get(eventName);
         /* Somebody tried to end an event that was not started. */
-        if (event == null) {
+        if (startTimeNano == null) {
             LogFactory.getLog(getClass()).warn
                 ("Trying to end an event which was never started: " + eventName);
             return;
         }
-        event.endTiming();
         this.timingInfo.addSubMeasurement(
             eventName,
             TimingInfo.unmodifiableTimingInfo(
-                event.getStartTimeNano(),
-                event.getEndTimeNano()));
+                startTimeNano.longValue(),
+                System.nanoTime()));
     }
 
     @Override
     public void endEvent(MetricType f) {
-        endEvent(f.name());
+        if (!(f instanceof Field)) {
+            endEvent(f.name());
+            return;
+        }
+        Field field = (Field) f;
+        /* Somebody tried to end an event that was not started. */
+        if (!eventsBeingProfiledByField[field.ordinal()]) {
+            LogFactory.getLog(getClass()).warn
+                ("Trying to end an event which was never started: " + field.name());
+            return;
+        }
+        timingInfoFullSupport.addSubMeasurement(
+            field,
+            TimingInfo.unmodifiableTimingInfo(
+                eventStartTimesByField[field.ordinal()],
+                System.nanoTime()));
     }
 
     /**
@@ -140,7 +252,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void incrementCounter(MetricType f) {
-        incrementCounter(f.name());
+        if (f instanceof Field) {
+            timingInfoFullSupport.incrementCounter((Field) f);
+        } else {
+            incrementCounter(f.name());
+        }
     }
     
     @Override
@@ -150,7 +266,11 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void setCounter(MetricType f, long count) {
-        setCounter(f.name(), count);
+        if (f instanceof Field) {
+            timingInfoFullSupport.setCounter((Field) f, count);
+        } else {
+            setCounter(f.name(), count);
+        }
     }
     
     /**
@@ -169,6 +289,14 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
      */
     @Override
     public void addProperty(String propertyName, Object value) {
+        Field field = fieldOf(propertyName);
+        if (field != null) {
+            addProperty(field, value);
+            return;
+        }
+        if (properties == null) {
+            properties = new HashMap<String, List<Object>>();
+        }
         List<Object> propertyList = properties.get(propertyName);
         if (propertyList == null) {
             propertyList = new ArrayList<Object>();
@@ -180,7 +308,18 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public void addProperty(MetricType f, Object value) {
-        addProperty(f.name(), value);
+        if (!(f instanceof Field)) {
+            addProperty(f.name(), value);
+            return;
+        }
+        int i = ((Field) f).ordinal();
+        List<Object> propertyList = propertiesByField[i];
+        if (propertyList == null) {
+            propertyList = new ArrayList<Object>();
+            propertiesByField[i] = propertyList;
+        }
+
+        propertyList.add(value);
     }
 
     @Override
@@ -188,8 +327,16 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
         if (latencyLogger.isInfoEnabled()) {
             StringBuilder builder = new StringBuilder();
 
-            for (Entry<String, List<Object>> entry : properties.entrySet()) {
-                keyValueFormat(entry.getKey(), entry.getValue(), builder);
+            for (int i = 0; i < FIELDS.length; i++) {
+                List<Object> propertyList = propertiesByField[i];
+                if (propertyList != null && !propertyList.isEmpty()) {
+                    keyValueFormat(FIELDS[i].name(), propertyList, builder);
+                }
+            }
+            if (properties != null) {
+                for (Entry<String, List<Object>> entry : properties.entrySet()) {
+                    keyValueFormat(entry.getKey(), entry.getValue(), builder);
+                }
             }
 
             for (Entry<String, Number> entry : timingInfo.getAllCounters()
@@ -210,12 +357,21 @@ public class AWSRequestMetricsFullSupport extends AWSRequestMetrics {
 
     @Override
     public List<Object> getProperty(String propertyName){
-    	return properties.get(propertyName);
+        Field field = fieldOf(propertyName);
+        if (field != null) {
+            return getProperty(field);
+        }
+    	return properties == null ? null : properties.get(propertyName);
     }
 
     @Override
     public List<Object> getProperty(MetricType f){
-        return getProperty(f.name());
+        if (!(f instanceof Field)) {
+            return getProperty(f.name());
+        }
+        List<Object> propertyList = propertiesByField[((Field) f).ordinal()];
+        // A list emptied by recycling reads as if it had never been created.
+        return propertyList == null || propertyList.isEmpty() ? null : propertyList;
     }
 
     /** Always returns true. */
@@ -157,9 +157,9 @@ public class TimingInfo {
     @Deprecated
     public final long getStartTime() {
         return isStartEpochTimeMilliKnown()
-             ? startEpochTimeMilli
+             ? startEpochTimeMilli()
                // best effort even though technically this is incorrect
-             : TimeUnit.NANOSECONDS.toMillis(startTimeNano)
+             : TimeUnit.NANOSECONDS.toMillis(startTimeNano())
              ;
     }
 
@@ -170,11 +170,11 @@ public class TimingInfo {
     }
 
     public final Long getStartEpochTimeMilliIfKnown() {
-        return startEpochTimeMilli;
+        return startEpochTimeMilli();
     }
 
     public final long getStartTimeNano() {
-        return startTimeNano;
+        return startTimeNano();
     }
 
     @Deprecated
@@ -191,8 +191,8 @@ public class TimingInfo {
     public final Long getEndEpochTimeMilliIfKnown() {
         return isStartEpochTimeMilliKnown() && isEndTimeKnown()
                // make use of the wall clock time and elpased time
-             ? startEpochTimeMilli.longValue()
-                 + TimeUnit.NANOSECONDS.toMillis(endTimeNano.longValue() - startTimeNano)
+             ? startEpochTimeMilli().longValue()
+                 + TimeUnit.NANOSECONDS.toMillis(endTimeNano.longValue() - startTimeNano())
              : null;
     }
 
@@ -212,7 +212,7 @@ public class TimingInfo {
 
     public final Double getTimeTakenMillisIfKnown() {
         return isEndTimeKnown() 
-             ? durationMilliOf(startTimeNano, endTimeNano)
+             ? durationMilliOf(startTimeNano(), endTimeNano)
              : null
              ;
     }
@@ -237,7 +237,7 @@ public class TimingInfo {
     }
 
     public final boolean isStartEpochTimeMilliKnown() {
-        return startEpochTimeMilli != null;
+        return startEpochTimeMilli() != null;
     }
 
     public final String toString() {
@@ -258,6 +258,31 @@ public class TimingInfo {
         return this;
     }
 
+    /**
+     * Returns the start time since epoch in millisecond; or null if unknown.
+     * Only overridden by {@link TimingInfoFullSupport}, whose recycled
+     * instances are restarted.
+     */
+    Long startEpochTimeMilli() {
+        return startEpochTimeMilli;
+    }
+
+    /**
+     * Returns the start time in nanosecond.
+     *
+     * @see #startEpochTimeMilli()
+     */
+    long startTimeNano() {
+        return startTimeNano;
+    }
+
+    /**
+     * Forgets the end time, so that the timing is measured again.
+     */
+    void clearEndTime() {
+        this.endTimeNano = null;
+    }
+
     public void addSubMeasurement(String subMeasurementName, TimingInfo timingInfo) {}
     public TimingInfo getSubMeasurement(String subMeasurementName) { return null; }
     public TimingInfo getSubMeasurement(String subMesurementName, int index) { return null; }
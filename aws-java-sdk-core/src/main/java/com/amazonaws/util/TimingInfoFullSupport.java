@@ -16,25 +16,49 @@ package com.amazonaws.util;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.LogFactory;
 import org.apache.http.annotation.NotThreadSafe;
 
+import com.amazonaws.util.AWSRequestMetrics.Field;
+
 /**
  * In contrast to {@link TimingInfo}, which is intended to be a minimal support
  * of the timing info, this class is the full support of timing info including
  * features related to sub-measurements and counters.
  * <p>
+ * Sub-measurements and counters named after a predefined
+ * {@link AWSRequestMetrics.Field} are kept in arrays indexed by the ordinal of
+ * the field; any other names go to maps that are only created when first
+ * needed.
+ * <p>
  * This class is instantiated instead of {@link TimingInfo} when
  * request metric collection is required during a particular service
  * request/response cycle.
  */
 @NotThreadSafe
 class TimingInfoFullSupport extends TimingInfo {
-    private final Map<String, List<TimingInfo>> subMeasurementsByName = new HashMap<String, List<TimingInfo>>();
-    private final Map<String, Number> countersByName = new HashMap<String, Number>();
+    private static final Field[] FIELDS = Field.values();
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private final List<TimingInfo>[] subMeasurementsByField = new List[FIELDS.length];
+    private final Number[] countersByField = new Number[FIELDS.length];
+
+    /* Sub-measurements and counters not named after a predefined field; or null if none. */
+    private Map<String, List<TimingInfo>> subMeasurementsByName;
+    private Map<String, Number> countersByName;
+
+    /*
+     * The start times of a restarted instance, which replace the final ones
+     * given at construction. Only recycled instances are restarted, on the
+     * thread that recycled them, so these fields need no safe publication.
+     */
+    private boolean restarted;
+    private Long restartEpochTimeMilli;
+    private long restartTimeNano;
 
     /**
      * A private ctor to facilitate the deprecation of using millisecond and
@@ -53,13 +77,65 @@ class TimingInfoFullSupport extends TimingInfo {
         super(startEpochTimeMilli, startTimeNano, endTimeNano);
     }
 
+    /**
+     * Starts the timing measurement over from the given start time, as when
+     * a recycled instance is reused for a new request, and clears all the
+     * sub-measurements and counters.
+     */
+    void restartTiming(Long startEpochTimeMilli, long startTimeNano) {
+        restarted = true;
+        restartEpochTimeMilli = startEpochTimeMilli;
+        restartTimeNano = startTimeNano;
+        clearEndTime();
+        for (int i = 0; i < FIELDS.length; i++) {
+            List<TimingInfo> timings = subMeasurementsByField[i];
+            if (timings != null) {
+                timings.clear();
+            }
+            countersByField[i] = null;
+        }
+        subMeasurementsByName = null;
+        countersByName = null;
+    }
+
+    @Override
+    Long startEpochTimeMilli() {
+        return restarted ? restartEpochTimeMilli : super.startEpochTimeMilli();
+    }
+
+    @Override
+    long startTimeNano() {
+        return restarted ? restartTimeNano : super.startTimeNano();
+    }
+
     @Override
     public void addSubMeasurement(String subMeasurementName, TimingInfo ti) {
+        Field field = AWSRequestMetricsFullSupport.fieldOf(subMeasurementName);
+        if (field != null) {
+            addSubMeasurement(field, ti);
+            return;
+        }
+        if (subMeasurementsByName == null) {
+            subMeasurementsByName = new HashMap<String, List<TimingInfo>>();
+        }
         List<TimingInfo> timings = subMeasurementsByName.get(subMeasurementName);
         if (timings == null) {
             timings = new ArrayList<TimingInfo>();
             subMeasurementsByName.put(subMeasurementName, timings);
         }
+        addTiming(timings, subMeasurementName, ti);
+    }
+
+    void addSubMeasurement(Field field, TimingInfo ti) {
+        List<TimingInfo> timings = subMeasurementsByField[field.ordinal()];
+        if (timings == null) {
+            timings = new ArrayList<TimingInfo>();
+            subMeasurementsByField[field.ordinal()] = timings;
+        }
+        addTiming(timings, field.name(), ti);
+    }
+
+    private void addTiming(List<TimingInfo> timings, String subMeasurementName, TimingInfo ti) {
         if (ti.isEndTimeKnown()) {
             timings.add(ti);
         } else {
@@ -77,7 +153,7 @@ class TimingInfoFullSupport extends TimingInfo {
     @Override
     public TimingInfo getSubMeasurement(String subMesurementName, int index) {
 
-        List<TimingInfo> timings = subMeasurementsByName.get(subMesurementName);
+        List<TimingInfo> timings = getAllSubMeasurements(subMesurementName);
         if (index < 0 || timings == null || timings.size() == 0
                 || index >= timings.size()) {
             return null;
@@ -89,11 +165,7 @@ class TimingInfoFullSupport extends TimingInfo {
     @Override
     public TimingInfo getLastSubMeasurement(String subMeasurementName) {
 
-        if (subMeasurementsByName == null || subMeasurementsByName.size() == 0) {
-            return null;
-        }
-
-        List<TimingInfo> timings = subMeasurementsByName.get(subMeasurementName);
+        List<TimingInfo> timings = getAllSubMeasurements(subMeasurementName);
         if (timings == null || timings.size() == 0) {
             return null;
         }
@@ -103,39 +175,99 @@ class TimingInfoFullSupport extends TimingInfo {
 
     @Override
     public List<TimingInfo> getAllSubMeasurements(String subMeasurementName) {
-        return subMeasurementsByName.get(subMeasurementName);
+        Field field = AWSRequestMetricsFullSupport.fieldOf(subMeasurementName);
+        if (field != null) {
+            List<TimingInfo> timings = subMeasurementsByField[field.ordinal()];
+            // A list emptied by a restart reads as if it had never been created.
+            return timings == null || timings.isEmpty() ? null : timings;
+        }
+        return subMeasurementsByName == null ? null : subMeasurementsByName.get(subMeasurementName);
     }
 
+    /**
+     * Returns a new map of all the sub-measurements, predefined fields first
+     * in the order of their declaration.
+     */
     @Override
     public Map<String, List<TimingInfo>> getSubMeasurementsByName() {
-        return subMeasurementsByName;
+        Map<String, List<TimingInfo>> all = new LinkedHashMap<String, List<TimingInfo>>();
+        for (int i = 0; i < FIELDS.length; i++) {
+            List<TimingInfo> timings = subMeasurementsByField[i];
+            if (timings != null && !timings.isEmpty()) {
+                all.put(FIELDS[i].name(), timings);
+            }
+        }
+        if (subMeasurementsByName != null) {
+            all.putAll(subMeasurementsByName);
+        }
+        return all;
     }
 
     @Override
     public Number getCounter(String key) {
-        return countersByName.get(key);
+        Field field = AWSRequestMetricsFullSupport.fieldOf(key);
+        if (field != null) {
+            return countersByField[field.ordinal()];
+        }
+        return countersByName == null ? null : countersByName.get(key);
     }
 
+    /**
+     * Returns a new map of all the counters, predefined fields first in the
+     * order of their declaration.
+     */
     @Override
     public Map<String, Number> getAllCounters() {
-        return countersByName;
+        Map<String, Number> all = new LinkedHashMap<String, Number>();
+        for (int i = 0; i < FIELDS.length; i++) {
+            if (countersByField[i] != null) {
+                all.put(FIELDS[i].name(), countersByField[i]);
+            }
+        }
+        if (countersByName != null) {
+            all.putAll(countersByName);
+        }
+        return all;
     }
 
     @Override
     public void setCounter(String key, long count) {
+        Field field = AWSRequestMetricsFullSupport.fieldOf(key);
+        if (field != null) {
+            setCounter(field, count);
+            return;
+        }
+        if (countersByName == null) {
+            countersByName = new HashMap<String, Number>();
+        }
         countersByName.put(key, count);
     }
 
+    void setCounter(Field field, long count) {
+        countersByField[field.ordinal()] = count;
+    }
+
     @Override
     public void incrementCounter(String key) {
+        Field field = AWSRequestMetricsFullSupport.fieldOf(key);
+        if (field != null) {
+            incrementCounter(field);
+            return;
+        }
+        setCounter(key, increment(getCounter(key)));
+    }
+
+    void incrementCounter(Field field) {
+        setCounter(field, increment(countersByField[field.ordinal()]));
+    }
 
+    private static int increment(Number counter) {
         int count = 0;
-        Number counter = getCounter(key);
 
         if (counter != null) {
             count = counter.intValue();
         }
 
-        setCounter(key, ++count);
+        return ++count;
     }
 }
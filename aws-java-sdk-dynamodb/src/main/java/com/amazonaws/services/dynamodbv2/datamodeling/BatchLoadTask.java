@@ -0,0 +1,341 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.metrics.RequestMetricCollector;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+
+/**
+ * Fetches a set of keys from DynamoDB in BatchGetItem requests of at most
+ * {@link #MAX_KEYS_PER_BATCH} keys, dispatched on an executor.
+ * <p>
+ * Unprocessed keys returned by the service are put back at the end of the
+ * queue of pending keys and fetched as part of a later request. Responses are
+ * handed to a {@link ResponseHandler} on the calling thread as they arrive, so
+ * the handler and the queues of this class need no synchronization.
+ */
+class BatchLoadTask {
+
+    /** The max number of keys allowed in a BatchGetItem request */
+    static final int MAX_KEYS_PER_BATCH = 100;
+
+    /**
+     * Receives the items of each BatchGetItem response, on the thread that
+     * called {@link BatchLoadTask#execute(ResponseHandler)}.
+     */
+    interface ResponseHandler {
+        void handle(Map<String, List<Map<String, AttributeValue>>> responses);
+    }
+
+    private final AmazonDynamoDB db;
+
+    private final boolean consistentReads;
+
+    private final RequestMetricCollector requestMetricCollector;
+
+    private final Executor executor;
+
+    /**
+     * The keys of the caller not yet requested, by table name.
+     */
+    private final Map<String, LinkedList<Map<String, AttributeValue>>> pendingKeys =
+            new LinkedHashMap<String, LinkedList<Map<String, AttributeValue>>>();
+
+    /**
+     * The unprocessed keys of previous responses not yet requested again, by
+     * table name.
+     */
+    private final Map<String, LinkedList<Map<String, AttributeValue>>> unprocessedKeys =
+            new LinkedHashMap<String, LinkedList<Map<String, AttributeValue>>>();
+
+    /** The number of keys in {@link #unprocessedKeys}. */
+    private int unprocessedCount;
+
+    private final Set<Future<BatchGetItemResult>> inFlight =
+            new HashSet<Future<BatchGetItemResult>>();
+
+    /**
+     * The number of consecutive responses that returned nothing but
+     * unprocessed keys.
+     */
+    private int retries;
+
+    /**
+     * @param db
+     *            The service object to send the requests with.
+     * @param keys
+     *            The keys to fetch, by table name.
+     * @param consistentReads
+     *            Whether to use consistent reads.
+     * @param requestMetricCollector
+     *            The request metric collector of the requests, or null.
+     * @param executor
+     *            The executor to send requests on, or null to send them all
+     *            from the calling thread.
+     */
+    BatchLoadTask(AmazonDynamoDB db, Map<String, ? extends List<Map<String, AttributeValue>>> keys,
+            boolean consistentReads, RequestMetricCollector requestMetricCollector,
+            Executor executor) {
+        this.db = db;
+        this.consistentReads = consistentReads;
+        this.requestMetricCollector = requestMetricCollector;
+        this.executor = executor;
+        enqueue(pendingKeys, keys);
+    }
+
+    /**
+     * Fetches all the keys, handing each response to the given handler, and
+     * returns once all of them have been handled.
+     */
+    void execute(ResponseHandler handler) {
+        Executor executor = this.executor;
+        if (executor == null) {
+            executor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            };
+        }
+
+        CompletionService<BatchGetItemResult> completionService =
+                new ExecutorCompletionService<BatchGetItemResult>(executor);
+        try {
+            while (true) {
+                // Unprocessed keys trickle back a few at a time; while other
+                // requests are in flight, hold them back until they fill a
+                // whole batch rather than sending lots of tiny requests. The
+                // keys of the caller are all sent straight away.
+                while (!pendingKeys.isEmpty()
+                        || (!unprocessedKeys.isEmpty()
+                            && (inFlight.isEmpty() || unprocessedCount >= MAX_KEYS_PER_BATCH))) {
+                    inFlight.add(completionService.submit(new BatchGetCall(nextBatch())));
+                    // Hand over whatever has arrived so far, so that the
+                    // handler gets to work before the last request is sent.
+                    Future<BatchGetItemResult> done;
+                    while ((done = completionService.poll()) != null) {
+                        handle(done, handler);
+                    }
+                }
+                if (inFlight.isEmpty()) {
+                    break;
+                }
+                handle(completionService.take(), handler);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } finally {
+            for (Future<BatchGetItemResult> future : inFlight) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    private void handle(Future<BatchGetItemResult> done, ResponseHandler handler)
+            throws InterruptedException {
+        inFlight.remove(done);
+
+        BatchGetItemResult result;
+        try {
+            result = done.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AmazonClientException(cause.getMessage(), cause);
+        }
+
+        Map<String, List<Map<String, AttributeValue>>> responses = result.getResponses();
+        if (responses != null && !responses.isEmpty()) {
+            handler.handle(responses);
+        }
+
+        Map<String, KeysAndAttributes> unprocessedKeys = result.getUnprocessedKeys();
+        if (unprocessedKeys == null || unprocessedKeys.isEmpty()) {
+            retries = 0;
+            return;
+        }
+
+        if (countItems(responses) == 0) {
+            // No progress at all; back off before asking again, and give up
+            // if the service keeps returning nothing.
+            retries++;
+            if (retries > DynamoDBMapper.BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS) {
+                throw new AmazonClientException(
+                        "Batch Get Item request to server hasn't received any data. "
+                        + "Please try again later.");
+            }
+            pauseExponentially(retries);
+        } else {
+            retries = 0;
+        }
+
+        Map<String, List<Map<String, AttributeValue>>> keys =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+        for (Entry<String, KeysAndAttributes> entry : unprocessedKeys.entrySet()) {
+            keys.put(entry.getKey(), entry.getValue().getKeys());
+        }
+        unprocessedCount += enqueue(this.unprocessedKeys, keys);
+    }
+
+    /**
+     * Takes the next batch of up to {@link #MAX_KEYS_PER_BATCH} keys, those of
+     * the caller first, topped up with unprocessed keys.
+     */
+    private Map<String, KeysAndAttributes> nextBatch() {
+        Map<String, KeysAndAttributes> batch = new HashMap<String, KeysAndAttributes>();
+        int taken = take(pendingKeys, batch, 0);
+        unprocessedCount -= take(unprocessedKeys, batch, taken);
+        return batch;
+    }
+
+    /**
+     * Moves keys from the given queue into the given batch, until the batch
+     * holds {@link #MAX_KEYS_PER_BATCH} keys or the queue is empty.
+     *
+     * @return the number of keys moved
+     */
+    private int take(Map<String, LinkedList<Map<String, AttributeValue>>> queue,
+            Map<String, KeysAndAttributes> batch, int batchSize) {
+        int i = batchSize;
+
+        Iterator<Entry<String, LinkedList<Map<String, AttributeValue>>>> tableIter =
+                queue.entrySet().iterator();
+        while ( tableIter.hasNext() && i < MAX_KEYS_PER_BATCH ) {
+
+            Entry<String, LinkedList<Map<String, AttributeValue>>> tableKeys = tableIter.next();
+            LinkedList<Map<String, AttributeValue>> keys = tableKeys.getValue();
+
+            KeysAndAttributes tableBatch = batch.get(tableKeys.getKey());
+            if (tableBatch == null) {
+                tableBatch = new KeysAndAttributes()
+                        .withConsistentRead(consistentReads)
+                        .withKeys(new ArrayList<Map<String, AttributeValue>>(
+                                Math.min(keys.size(), MAX_KEYS_PER_BATCH - i)));
+                batch.put(tableKeys.getKey(), tableBatch);
+            }
+            while ( !keys.isEmpty() && i < MAX_KEYS_PER_BATCH ) {
+                tableBatch.getKeys().add(keys.removeFirst());
+                i++;
+            }
+
+            if ( keys.isEmpty() ) {
+                tableIter.remove();
+            }
+        }
+        return i - batchSize;
+    }
+
+    /**
+     * Puts the given keys at the end of the given queue.
+     *
+     * @return the number of keys queued
+     */
+    private static int enqueue(Map<String, LinkedList<Map<String, AttributeValue>>> queue,
+            Map<String, ? extends List<Map<String, AttributeValue>>> keys) {
+        int count = 0;
+        for (Entry<String, ? extends List<Map<String, AttributeValue>>> entry : keys.entrySet()) {
+            if (entry.getValue() == null || entry.getValue().isEmpty()) {
+                continue;
+            }
+            LinkedList<Map<String, AttributeValue>> tableKeys = queue.get(entry.getKey());
+            if (tableKeys == null) {
+                tableKeys = new LinkedList<Map<String, AttributeValue>>();
+                queue.put(entry.getKey(), tableKeys);
+            }
+            tableKeys.addAll(entry.getValue());
+            count += entry.getValue().size();
+        }
+        return count;
+    }
+
+    private static int countItems(Map<String, List<Map<String, AttributeValue>>> responses) {
+        if (responses == null) {
+            return 0;
+        }
+        int count = 0;
+        for (List<Map<String, AttributeValue>> items : responses.values()) {
+            count += items.size();
+        }
+        return count;
+    }
+
+    private static void pauseExponentially(int retries) {
+        if (retries == 0) {
+            return;
+        }
+
+        Random random = new Random();
+        long delay = 0;
+        long scaleFactor = 500 + random.nextInt(100);
+        delay = (long) (Math.pow(2, retries) * scaleFactor);
+        delay = Math.min(delay, DynamoDBMapper.MAX_BACKOFF_IN_MILLISECONDS);
+
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Sends a single BatchGetItem request.
+     */
+    private class BatchGetCall implements Callable<BatchGetItemResult> {
+
+        private final Map<String, KeysAndAttributes> batch;
+
+        BatchGetCall(Map<String, KeysAndAttributes> batch) {
+            this.batch = batch;
+        }
+
+        @Override
+        public BatchGetItemResult call() {
+            BatchGetItemRequest request = new BatchGetItemRequest()
+                    .withRequestMetricCollector(requestMetricCollector);
+            request.setRequestItems(batch);
+            return db.batchGetItem(DynamoDBMapper.applyBatchOperationUserAgent(request));
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Paces the BatchWriteItem requests of a batch write with an
+ * additive-increase/multiplicative-decrease controller over the rate of
+ * consumed write capacity.
+ * <p>
+ * The rate starts out unlimited. The first throttling signal (a throttling
+ * exception or a response with unprocessed items) caps it at half of the
+ * capacity observed to be consumed over the last second, but at no less than
+ * half a batch per second; every later throttling signal halves it again.
+ * While requests succeed the rate grows linearly, by a fifth of the rate set
+ * at the last decrease (but at least the cost of one full batch) per second,
+ * so that it recovers in a few seconds whatever the provisioned throughput
+ * of the table.
+ * <p>
+ * Only requests scheduled after the last decrease can decrease the rate
+ * again, so that a burst of in-flight requests hitting the same throttling
+ * event halves the rate once.
+ * <p>
+ * The cost of a request is estimated from the capacity consumed per item by
+ * previous requests, which starts out at one unit.
+ */
+class BatchWriteRateController {
+
+    /** The lowest rate, in capacity units per second, the controller will pace to. */
+    static final double MIN_RATE = 1.0;
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /** Weight of the latest sample in the capacity-per-item average. */
+    private static final double SMOOTHING = 0.2;
+
+    /** The fraction of the rate after a decrease it grows by per second. */
+    private static final double INCREASE_FRACTION = 0.2;
+
+    /** The allowed rate in capacity units per second. */
+    private double rate = Double.POSITIVE_INFINITY;
+
+    /** The time at which the next request may be sent. */
+    private long nextSendTime = System.nanoTime();
+
+    /** The smoothed write capacity consumed per item. */
+    private double unitsPerItem = 1.0;
+
+    /** The time of the last decrease of the rate. */
+    private long lastDecreaseTime = System.nanoTime() - ONE_SECOND;
+
+    /** The time of the last increase of the rate. */
+    private long lastIncreaseTime = System.nanoTime();
+
+    /** The growth of the rate per second, set at every decrease. */
+    private double increasePerSecond;
+
+    private long windowStart = System.nanoTime();
+    private double windowUnits;
+    private double observedRate;
+
+    /**
+     * Reserves capacity for a request with the given number of items and
+     * returns how long, in nanoseconds, the caller has to wait before sending
+     * it.
+     */
+    synchronized long reserve(int items) {
+        long now = System.nanoTime();
+        if (Double.isInfinite(rate)) {
+            return 0;
+        }
+        long sendTime = Math.max(now, nextSendTime);
+        nextSendTime = sendTime + (long) (items * unitsPerItem / rate * ONE_SECOND);
+        return sendTime - now;
+    }
+
+    /**
+     * Records a request that wrote the given number of items and consumed the
+     * given write capacity; a negative capacity means the service did not
+     * report it.
+     */
+    synchronized void onSuccess(int items, double consumedCapacity) {
+        long now = System.nanoTime();
+        if (items > 0 && consumedCapacity >= 0) {
+            unitsPerItem += SMOOTHING * (consumedCapacity / items - unitsPerItem);
+        }
+        record(now, consumedCapacity >= 0 ? consumedCapacity : items * unitsPerItem);
+
+        if (!Double.isInfinite(rate)) {
+            double batchCost = unitsPerItem * DynamoDBMapper.MAX_ITEMS_PER_BATCH;
+            double increase = Math.max(increasePerSecond, batchCost)
+                    * (now - lastIncreaseTime) / ONE_SECOND;
+            // Don't let an idle or unsaturated writer build up a rate it has
+            // never been able to use.
+            rate = Math.min(rate + increase,
+                    Math.max(rate, 2 * observedRate + batchCost));
+        }
+        lastIncreaseTime = now;
+    }
+
+    /**
+     * Records a throttling signal for a request scheduled at the given time,
+     * that is, the time its capacity was reserved.
+     */
+    synchronized void onThrottle(long scheduledAt) {
+        long now = System.nanoTime();
+        if (scheduledAt - lastDecreaseTime < 0) {
+            return;
+        }
+        record(now, 0);
+        if (Double.isInfinite(rate)) {
+            double elapsed = (double) (now - windowStart) / ONE_SECOND;
+            double current = elapsed > 0 ? windowUnits / elapsed : 0;
+            rate = Math.max(Math.max(observedRate, current),
+                    unitsPerItem * DynamoDBMapper.MAX_ITEMS_PER_BATCH);
+        }
+        rate = Math.max(MIN_RATE, rate / 2);
+        increasePerSecond = rate * INCREASE_FRACTION;
+        lastDecreaseTime = now;
+        lastIncreaseTime = now;
+        nextSendTime = Math.max(nextSendTime, now);
+    }
+
+    /**
+     * Returns the allowed rate in capacity units per second.
+     */
+    synchronized double getRate() {
+        return rate;
+    }
+
+    private void record(long now, double units) {
+        windowUnits += units;
+        long elapsed = now - windowStart;
+        if (elapsed >= ONE_SECOND) {
+            observedRate = windowUnits * ONE_SECOND / elapsed;
+            windowStart = now;
+            windowUnits = 0;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.datamodeling;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.retry.RetryUtils;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapper.FailedBatch;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+
+/**
+ * Sends a set of write requests to DynamoDB in BatchWriteItem requests of at
+ * most {@link DynamoDBMapper#MAX_ITEMS_PER_BATCH} items, keeping up to a given
+ * number of requests in flight.
+ * <p>
+ * Unprocessed items returned by the service are not retried in place; they
+ * are put back at the end of the queue of pending items and sent again as part
+ * of a later batch. Batches rejected as too large are split in half and sent
+ * again. All requests are paced by a {@link BatchWriteRateController}, which
+ * backs off on throttling and recovers as requests succeed.
+ * <p>
+ * Responses are handled on the calling thread only, so none of the queues of
+ * this class need to be synchronized.
+ */
+class BatchWriteTask {
+
+    private final AmazonDynamoDB db;
+
+    private final int concurrency;
+
+    private final Executor executor;
+
+    private final BatchWriteRateController rateController = new BatchWriteRateController();
+
+    /**
+     * The write requests not yet sent, by table name.
+     */
+    private final Map<String, LinkedList<WriteRequest>> pendingItems =
+            new LinkedHashMap<String, LinkedList<WriteRequest>>();
+
+    /**
+     * Batches that were split after being rejected as too large, which are
+     * sent before any other pending items.
+     */
+    private final LinkedList<Map<String, List<WriteRequest>>> splitBatches =
+            new LinkedList<Map<String, List<WriteRequest>>>();
+
+    private final List<FailedBatch> failedBatches = new LinkedList<FailedBatch>();
+
+    /**
+     * @param db
+     *            The service object to send the requests with.
+     * @param requestItems
+     *            The write requests to send, by table name.
+     * @param concurrency
+     *            The maximum number of requests in flight; with a value of 1
+     *            all requests are sent from the calling thread.
+     * @param executor
+     *            The executor to send the requests on when the concurrency is
+     *            greater than 1, or null to create a pool for this task.
+     */
+    BatchWriteTask(AmazonDynamoDB db, Map<String, ? extends List<WriteRequest>> requestItems,
+            int concurrency, Executor executor) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("Concurrency must be at least 1");
+        }
+        this.db = db;
+        this.concurrency = concurrency;
+        this.executor = executor;
+        requeue(requestItems);
+    }
+
+    /**
+     * Sends all the write requests and waits until they are processed.
+     *
+     * @return The batches that failed with an exception.
+     */
+    List<FailedBatch> execute() {
+        ExecutorService executorService = null;
+        Executor executor;
+        if (concurrency > 1 && this.executor != null) {
+            executor = this.executor;
+        } else if (concurrency > 1) {
+            executorService = Executors.newFixedThreadPool(concurrency);
+            executor = executorService;
+        } else {
+            executor = new Executor() {
+                @Override
+                public void execute(Runnable command) {
+                    command.run();
+                }
+            };
+        }
+
+        CompletionService<BatchWriteOutcome> completionService =
+                new ExecutorCompletionService<BatchWriteOutcome>(executor);
+        int inFlight = 0;
+        try {
+            while (true) {
+                while (inFlight < concurrency && hasPendingItems()) {
+                    Map<String, List<WriteRequest>> batch = nextBatch();
+
+                    // Keep handling responses while waiting for the rate
+                    // controller to let this batch through.
+                    long scheduledAt = System.nanoTime();
+                    long sendTime = scheduledAt + rateController.reserve(countItems(batch));
+                    long remaining;
+                    while ((remaining = sendTime - System.nanoTime()) > 0) {
+                        if (inFlight == 0) {
+                            TimeUnit.NANOSECONDS.sleep(remaining);
+                            break;
+                        }
+                        Future<BatchWriteOutcome> done =
+                                completionService.poll(remaining, TimeUnit.NANOSECONDS);
+                        if (done != null) {
+                            inFlight--;
+                            handle(done);
+                        }
+                    }
+
+                    completionService.submit(new BatchWriteCall(batch, scheduledAt));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    break;
+                }
+                Future<BatchWriteOutcome> done = completionService.take();
+                inFlight--;
+                handle(done);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } finally {
+            if (executorService != null) {
+                executorService.shutdownNow();
+            }
+        }
+        return failedBatches;
+    }
+
+    private void handle(Future<BatchWriteOutcome> done) {
+        BatchWriteOutcome outcome;
+        try {
+            outcome = done.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException(e.getMessage(), e);
+        } catch (ExecutionException e) {
+            throw new AmazonClientException("Unable to complete batch write", e.getCause());
+        }
+
+        Exception exception = outcome.exception;
+        if (exception == null) {
+            Map<String, List<WriteRequest>> unprocessedItems =
+                    outcome.result.getUnprocessedItems();
+            int unprocessed = countItems(unprocessedItems);
+            rateController.onSuccess(countItems(outcome.batch) - unprocessed,
+                    getConsumedCapacity(outcome.result));
+            if (unprocessed > 0) {
+                rateController.onThrottle(outcome.scheduledAt);
+                requeue(unprocessedItems);
+            }
+            return;
+        }
+
+        if (exception instanceof AmazonServiceException) {
+            AmazonServiceException ase = (AmazonServiceException) exception;
+            // If only one item is left, the item itself is beyond the size
+            // limit, and there is nothing left to divide.
+            if (RetryUtils.isRequestEntityTooLargeException(ase)
+                    && countItems(outcome.batch) > 1) {
+                divideBatch(outcome.batch);
+                return;
+            }
+            if (RetryUtils.isThrottlingException(ase)) {
+                rateController.onThrottle(outcome.scheduledAt);
+            }
+        }
+
+        FailedBatch failedBatch = new FailedBatch();
+        failedBatch.setUnprocessedItems(outcome.batch);
+        failedBatch.setException(exception);
+        failedBatches.add(failedBatch);
+    }
+
+    private boolean hasPendingItems() {
+        return !splitBatches.isEmpty() || !pendingItems.isEmpty();
+    }
+
+    /**
+     * Takes the next batch of up to {@link DynamoDBMapper#MAX_ITEMS_PER_BATCH}
+     * items off the queues.
+     */
+    private Map<String, List<WriteRequest>> nextBatch() {
+        if (!splitBatches.isEmpty()) {
+            return splitBatches.removeFirst();
+        }
+
+        Map<String, List<WriteRequest>> batch = new HashMap<String, List<WriteRequest>>();
+        int i = 0;
+
+        Iterator<Entry<String, LinkedList<WriteRequest>>> tableIter = pendingItems.entrySet().iterator();
+        while ( tableIter.hasNext() && i < DynamoDBMapper.MAX_ITEMS_PER_BATCH ) {
+
+            Entry<String, LinkedList<WriteRequest>> tableRequest = tableIter.next();
+            LinkedList<WriteRequest> writeRequests = tableRequest.getValue();
+
+            List<WriteRequest> tableBatch = new ArrayList<WriteRequest>(Math.min(
+                    writeRequests.size(), DynamoDBMapper.MAX_ITEMS_PER_BATCH - i));
+            while ( !writeRequests.isEmpty() && i++ < DynamoDBMapper.MAX_ITEMS_PER_BATCH ) {
+                tableBatch.add(writeRequests.removeFirst());
+            }
+            batch.put(tableRequest.getKey(), tableBatch);
+
+            // If we've taken all the write requests for this table, remove it
+            // from the queue.
+            if ( writeRequests.isEmpty() ) {
+                tableIter.remove();
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Puts the given write requests at the end of the queue of pending items.
+     */
+    private void requeue(Map<String, ? extends List<WriteRequest>> items) {
+        for (Entry<String, ? extends List<WriteRequest>> entry : items.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                continue;
+            }
+            LinkedList<WriteRequest> writeRequests = pendingItems.get(entry.getKey());
+            if (writeRequests == null) {
+                writeRequests = new LinkedList<WriteRequest>();
+                pendingItems.put(entry.getKey(), writeRequests);
+            }
+            writeRequests.addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Divides a batch into two batches with half of the items each, and
+     * queues both to be sent next.
+     */
+    private void divideBatch(Map<String, List<WriteRequest>> batch) {
+        Map<String, List<WriteRequest>> firstHalfBatch = new HashMap<String, List<WriteRequest>>();
+        Map<String, List<WriteRequest>> secondHalfBatch = new HashMap<String, List<WriteRequest>>();
+
+        int firstHalfSize = countItems(batch) / 2;
+        int i = 0;
+        for (Entry<String, List<WriteRequest>> entry : batch.entrySet()) {
+            for (WriteRequest writeRequest : entry.getValue()) {
+                Map<String, List<WriteRequest>> half =
+                        i++ < firstHalfSize ? firstHalfBatch : secondHalfBatch;
+                List<WriteRequest> requests = half.get(entry.getKey());
+                if (requests == null) {
+                    requests = new ArrayList<WriteRequest>();
+                    half.put(entry.getKey(), requests);
+                }
+                requests.add(writeRequest);
+            }
+        }
+
+        splitBatches.addFirst(secondHalfBatch);
+        splitBatches.addFirst(firstHalfBatch);
+    }
+
+    /**
+     * Counts the total number of items in a batch.
+     */
+    private static int countItems(Map<String, List<WriteRequest>> batch) {
+        if (batch == null) {
+            return 0;
+        }
+        int count = 0;
+        for (List<WriteRequest> writeRequests : batch.values()) {
+            count += writeRequests.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total write capacity consumed by a request, or -1 if the
+     * service did not report it.
+     */
+    private static double getConsumedCapacity(BatchWriteItemResult result) {
+        List<ConsumedCapacity> consumedCapacity = result.getConsumedCapacity();
+        if (consumedCapacity == null || consumedCapacity.isEmpty()) {
+            return -1;
+        }
+        double units = 0;
+        for (ConsumedCapacity tableCapacity : consumedCapacity) {
+            if (tableCapacity.getCapacityUnits() != null) {
+                units += tableCapacity.getCapacityUnits();
+            }
+        }
+        return units;
+    }
+
+    /**
+     * Sends a single BatchWriteItem request.
+     */
+    private class BatchWriteCall implements Callable<BatchWriteOutcome> {
+
+        private final Map<String, List<WriteRequest>> batch;
+
+        private final long scheduledAt;
+
+        BatchWriteCall(Map<String, List<WriteRequest>> batch, long scheduledAt) {
+            this.batch = batch;
+            this.scheduledAt = scheduledAt;
+        }
+
+        @Override
+        public BatchWriteOutcome call() {
+            BatchWriteOutcome outcome = new BatchWriteOutcome(batch, scheduledAt);
+            try {
+                outcome.result = db.batchWriteItem(DynamoDBMapper.applyBatchOperationUserAgent(
+                        new BatchWriteItemRequest()
+                                .withRequestItems(batch)
+                                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL)));
+            } catch (Exception e) {
+                outcome.exception = e;
+            }
+            return outcome;
+        }
+    }
+
+    /**
+     * The result of, or the exception thrown by, a single BatchWriteItem
+     * request.
+     */
+    private static class BatchWriteOutcome {
+
+        private final Map<String, List<WriteRequest>> batch;
+
+        /**
+         * The time at which the request was scheduled, which tells the rate
+         * controller which rate it was sent at.
+         */
+        private final long scheduledAt;
+
+        private BatchWriteItemResult result;
+
+        private Exception exception;
+
+        BatchWriteOutcome(Map<String, List<WriteRequest>> batch, long scheduledAt) {
+            this.batch = batch;
+            this.scheduledAt = scheduledAt;
+        }
+    }
+}
@@ -21,14 +21,14 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -37,7 +37,6 @@ import com.amazonaws.AmazonClientException;
 import com.amazonaws.AmazonServiceException;
 import com.amazonaws.AmazonWebServiceRequest;
 import com.amazonaws.auth.AWSCredentialsProvider;
-import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.ConsistentReads;
 import com.amazonaws.services.dynamodbv2.datamodeling.DynamoDBMapperConfig.PaginationLoadingStrategy;
@@ -47,9 +46,7 @@ import com.amazonaws.services.dynamodbv2.model.AttributeAction;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
-import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
 import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
-import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
@@ -60,7 +57,6 @@ import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
 import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
 import com.amazonaws.services.dynamodbv2.model.GetItemResult;
-import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
 import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
 import com.amazonaws.services.dynamodbv2.model.PutItemResult;
 import com.amazonaws.services.dynamodbv2.model.PutRequest;
@@ -177,6 +173,13 @@ public class DynamoDBMapper {
     private final DynamoDBTableSchemaParser schemaParser = new DynamoDBTableSchemaParser();
     private final VersionIncrementor incrementor = new VersionIncrementor();
 
+    /**
+     * The item converter of each conversion schema used with this mapper;
+     * the converters cache the resolved (un)marshallers of each property.
+     */
+    private final ConcurrentMap<ConversionSchema, ItemConverter> converters =
+            new ConcurrentHashMap<ConversionSchema, ItemConverter>();
+
     private final AttributeTransformer transformer;
 
     /** The max back off time for batch write */
@@ -1451,6 +1454,12 @@ public class DynamoDBMapper {
      * see, http://docs.aws.amazon
      * .com/amazondynamodb/latest/APIReference/API_BatchWriteItem.html
      * </p>
+     * <p>
+     * Up to {@link DynamoDBMapperConfig#getBatchWriteConcurrency()} requests
+     * are kept in flight, and the request rate adapts to throttling by the
+     * service. Unprocessed items are sent again as part of later batches, so
+     * the order in which the objects are written is not defined.
+     * </p>
      *
      * @param objectsToWrite
      *            A list of objects to save to DynamoDB. <b>No version checks
@@ -1463,20 +1472,21 @@ public class DynamoDBMapper {
      *            {@link AmazonDynamoDB#batchWriteItem(BatchWriteItemRequest)}
      *            API.
      * @param config
-     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} is
-     *            considered; if specified, all objects in the two parameter
-     *            lists will be considered to belong to the given table
-     *            override. In particular, this method <b>always acts as if
-     *            SaveBehavior.CLOBBER was specified</b> regardless of the value
-     *            of the config parameter.
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} and
+     *            {@link DynamoDBMapperConfig#getBatchWriteConcurrency()} and
+     *            {@link DynamoDBMapperConfig#getBatchWriteExecutor()} are
+     *            considered; if a table name override is specified, all
+     *            objects in the two parameter lists will be considered to
+     *            belong to the given table override. In particular, this
+     *            method <b>always acts as if SaveBehavior.CLOBBER was
+     *            specified</b> regardless of the value of the config
+     *            parameter.
      * @return A list of failed batches which includes the unprocessed items and
      *         the exceptions causing the failure.
      */
     public List<FailedBatch> batchWrite(List<? extends Object> objectsToWrite, List<? extends Object> objectsToDelete, DynamoDBMapperConfig config) {
         config = mergeConfig(config);
 
-        List<FailedBatch> totalFailedBatches = new LinkedList<FailedBatch>();
-
         HashMap<String, List<WriteRequest>> requestItems = new HashMap<String, List<WriteRequest>>();
 
         ItemConverter converter = getConverter(config);
@@ -1536,174 +1546,21 @@ public class DynamoDBMapper {
                     new WriteRequest().withDeleteRequest(new DeleteRequest().withKey(key)));
         }
 
-        // Break into chunks of 25 items and make service requests to DynamoDB
-        while ( !requestItems.isEmpty() ) {
-
-            HashMap<String, List<WriteRequest>> batch =
-                    new HashMap<String, List<WriteRequest>>();
-
-            int i = 0;
-
-            Iterator<Entry<String, List<WriteRequest>>> tableIter = requestItems.entrySet().iterator();
-            while ( tableIter.hasNext() && i < MAX_ITEMS_PER_BATCH ) {
-
-                Entry<String, List<WriteRequest>> tableRequest = tableIter.next();
-
-                batch.put(tableRequest.getKey(), new LinkedList<WriteRequest>());
-                Iterator<WriteRequest> writeRequestIter = tableRequest.getValue().iterator();
-
-                while ( writeRequestIter.hasNext() && i++ < MAX_ITEMS_PER_BATCH ) {
-                    WriteRequest writeRequest = writeRequestIter.next();
-                    batch.get(tableRequest.getKey()).add(writeRequest);
-                    writeRequestIter.remove();
-                }
-
-                // If we've processed all the write requests for this table,
-                // remove it from the parent iterator.
-                if ( !writeRequestIter.hasNext() ) {
-                    tableIter.remove();
-                }
-            }
-
-            List<FailedBatch> failedBatches = writeOneBatch(batch);
-            if (failedBatches != null) {
-                totalFailedBatches.addAll(failedBatches);
-
-                // If contains throttling exception, we do a backoff
-                if (containsThrottlingException(failedBatches)) {
-                    try {
-                        Thread.sleep(1000 * 2);
-                    } catch (InterruptedException e) {
-                        Thread.currentThread().interrupt();
-                        throw new AmazonClientException(e.getMessage(), e);
-                    }
-                }
-            }
-        }
-
-
+        List<FailedBatch> failedBatches =
+                new BatchWriteTask(db, requestItems, getBatchWriteConcurrency(config),
+                        config.getBatchWriteExecutor()).execute();
 
         // Once the entire batch is processed, update assigned keys in memory
         for ( ValueUpdate update : inMemoryUpdates ) {
             update.apply();
         }
 
-        return totalFailedBatches;
-    }
-
-    /**
-     * Process one batch of requests(max 25). It will divide the batch if
-     * receives request too large exception(the total size of the request is beyond 1M).
-     */
-    private List<FailedBatch> writeOneBatch(Map<String, List<WriteRequest>> batch) {
-
-        List<FailedBatch> failedBatches = new LinkedList<FailedBatch>();
-        Map<String, List<WriteRequest>> firstHalfBatch = new HashMap<String, List<WriteRequest>>();
-        Map<String, List<WriteRequest>> secondHalfBatch = new HashMap<String, List<WriteRequest>>();
-        FailedBatch failedBatch = callUntilCompletion(batch);
-
-        if (failedBatch != null) {
-            // If the exception is request entity too large, we divide the batch
-            // into smaller parts.
-
-            if (failedBatch.getException() instanceof AmazonServiceException
-            && RetryUtils.isRequestEntityTooLargeException((AmazonServiceException) failedBatch.getException())) {
-
-                // If only one item left, the item size must beyond 64k, which
-                // exceedes the limit.
-
-                if (computeFailedBatchSize(failedBatch) == 1) {
-                    failedBatches.add(failedBatch);
-                } else {
-                    divideBatch(batch, firstHalfBatch, secondHalfBatch);
-                    failedBatches.addAll(writeOneBatch(firstHalfBatch));
-                    failedBatches.addAll(writeOneBatch(secondHalfBatch));
-                }
-
-            } else {
-                failedBatches.add(failedBatch);
-            }
-
-        }
         return failedBatches;
     }
 
-    /**
-     * Check whether there are throttling exception in the failed batches.
-     */
-    private boolean containsThrottlingException (List<FailedBatch> failedBatches) {
-        for (FailedBatch failedBatch : failedBatches) {
-           Exception e = failedBatch.getException();
-            if (e instanceof AmazonServiceException
-                    && RetryUtils.isThrottlingException((AmazonServiceException) e)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
-    /**
-     * Divide the batch of objects to save into two smaller batches. Each contains half of the elements.
-     */
-    private void divideBatch(Map<String, List<WriteRequest>> batch, Map<String, List<WriteRequest>> firstHalfBatch, Map<String, List<WriteRequest>> secondHalfBatch) {
-        for (String key : batch.keySet()) {
-
-            List<WriteRequest> requests = batch.get(key);
-
-            List<WriteRequest> firstHalfRequests = requests.subList(0, requests.size() / 2);
-
-            List<WriteRequest> secondHalfRequests = requests.subList(requests.size() / 2, requests.size());
-
-            firstHalfBatch.put(key, firstHalfRequests);
-
-            secondHalfBatch.put(key, secondHalfRequests);
-
-        }
-
-    }
-
-    /**
-     * Count the total number of unprocessed items in the failed batch.
-     */
-
-    private int computeFailedBatchSize(FailedBatch failedBatch) {
-
-        int count = 0;
-
-        for (String tableName : failedBatch.getUnprocessedItems().keySet()) {
-            count += failedBatch.getUnprocessedItems().get(tableName).size();
-        }
-        return count;
-    }
-
-    /**
-     * Continue trying to process the batch until it finishes or an exception
-     * occurs.
-     */
-
-    private FailedBatch callUntilCompletion(Map<String, List<WriteRequest>> batch) {
-        BatchWriteItemResult result = null;
-        int retries = 0;
-        FailedBatch failedBatch = null;
-        while (true) {
-            try {
-                result = db.batchWriteItem(applyBatchOperationUserAgent(
-                        new BatchWriteItemRequest().withRequestItems(batch)));
-            } catch (Exception e) {
-                failedBatch = new FailedBatch();
-                failedBatch.setUnprocessedItems(batch);
-                failedBatch.setException(e);
-                return failedBatch;
-            }
-            retries++;
-            batch = result.getUnprocessedItems();
-            if (batch.size() > 0) {
-                pauseExponentially(retries);
-            } else {
-                break;
-            }
-        }
-        return failedBatch;
+    private static int getBatchWriteConcurrency(DynamoDBMapperConfig config) {
+        Integer concurrency = config.getBatchWriteConcurrency();
+        return concurrency == null ? 1 : concurrency;
     }
 
     /**
@@ -1728,8 +1585,9 @@ public class DynamoDBMapper {
      *            Key objects, corresponding to the class to fetch, with their
      *            primary key values set.
      * @param config
-     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} and
-     *            {@link DynamoDBMapperConfig#getConsistentReads()} are
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()},
+     *            {@link DynamoDBMapperConfig#getConsistentReads()} and
+     *            {@link DynamoDBMapperConfig#getBatchLoadExecutor()} are
      *            considered.
      *
      * @return A map of the loaded objects. Each key in the map is the name of a
@@ -1739,49 +1597,96 @@ public class DynamoDBMapper {
      *         mapping that table.
      */
     public Map<String, List<Object>> batchLoad(List<Object> itemsToGet, DynamoDBMapperConfig config) {
-        config = mergeConfig(config);
-        boolean consistentReads = (config.getConsistentReads() == ConsistentReads.CONSISTENT);
+        final Map<String, List<Object>> resultSet = new HashMap<String, List<Object>>();
+
+        batchLoad(itemsToGet, config, new BatchLoadCallback() {
+            @Override
+            public void onItemsLoaded(String tableName, List<Object> objects) {
+                List<Object> tableObjects = resultSet.get(tableName);
+                if ( tableObjects == null ) {
+                    tableObjects = new LinkedList<Object>();
+                    resultSet.put(tableName, tableObjects);
+                }
+                tableObjects.addAll(objects);
+            }
+        });
+
+        return resultSet;
+    }
+
+    /**
+     * Retrieves multiple items from multiple tables using their primary keys,
+     * handing the loaded objects to the given callback as each
+     * {@link AmazonDynamoDB#batchGetItem(BatchGetItemRequest)} response
+     * arrives, so that callers can start working on them before the last
+     * request completes.
+     * <p>
+     * The keys are sent in requests of up to 100 keys. If
+     * {@link DynamoDBMapperConfig#getBatchLoadExecutor()} is set, the
+     * requests are sent concurrently on that executor; otherwise they are
+     * sent one after another from the calling thread. Either way, the
+     * callback is only ever called from the calling thread, and this method
+     * returns once all the keys have been loaded. Unprocessed keys are sent
+     * again as part of later requests.
+     *
+     * @param itemsToGet
+     *            Key objects, corresponding to the class to fetch, with their
+     *            primary key values set.
+     * @param config
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()},
+     *            {@link DynamoDBMapperConfig#getConsistentReads()} and
+     *            {@link DynamoDBMapperConfig#getBatchLoadExecutor()} are
+     *            considered.
+     * @param callback
+     *            The callback to receive the loaded objects.
+     */
+    public void batchLoad(List<Object> itemsToGet, DynamoDBMapperConfig config, final BatchLoadCallback callback) {
+        final DynamoDBMapperConfig mergedConfig = mergeConfig(config);
+        boolean consistentReads = (mergedConfig.getConsistentReads() == ConsistentReads.CONSISTENT);
 
         if ( itemsToGet == null || itemsToGet.isEmpty() ) {
-            return new HashMap<String, List<Object>>();
+            return;
         }
 
-        Map<String, KeysAndAttributes> requestItems = new HashMap<String, KeysAndAttributes>();
-        Map<String, Class<?>> classesByTableName = new HashMap<String, Class<?>>();
-        Map<String, List<Object>> resultSet = new HashMap<String, List<Object>>();
-        int count = 0;
+        Map<String, List<Map<String, AttributeValue>>> keysByTableName =
+                new HashMap<String, List<Map<String, AttributeValue>>>();
+        final Map<String, Class<?>> classesByTableName = new HashMap<String, Class<?>>();
 
-        ItemConverter converter = getConverter(config);
+        final ItemConverter converter = getConverter(mergedConfig);
 
         for ( Object keyObject : itemsToGet ) {
             Class<?> clazz = keyObject.getClass();
 
-            String tableName = getTableName(clazz, keyObject, config);
+            String tableName = getTableName(clazz, keyObject, mergedConfig);
             classesByTableName.put(tableName, clazz);
 
-            if ( !requestItems.containsKey(tableName) ) {
-                requestItems.put(
-                        tableName,
-                        new KeysAndAttributes().withConsistentRead(consistentReads).withKeys(
-                                new LinkedList<Map<String, AttributeValue>>()));
+            if ( !keysByTableName.containsKey(tableName) ) {
+                keysByTableName.put(tableName, new LinkedList<Map<String, AttributeValue>>());
             }
 
-            requestItems.get(tableName).getKeys().add(
-                    getKey(converter, keyObject));
-
-            // Reach the maximum number which can be handled in a single batchGet
-            if ( ++count == 100 ) {
-                processBatchGetRequest(classesByTableName, requestItems, resultSet, config, converter);
-                requestItems.clear();
-                count = 0;
-            }
+            keysByTableName.get(tableName).add(getKey(converter, keyObject));
         }
 
-        if ( count > 0 ) {
-            processBatchGetRequest(classesByTableName, requestItems, resultSet, config, converter);
-        }
+        BatchLoadTask task = new BatchLoadTask(db, keysByTableName, consistentReads,
+                mergedConfig.getRequestMetricCollector(), mergedConfig.getBatchLoadExecutor());
+        task.execute(new BatchLoadTask.ResponseHandler() {
+            @Override
+            public void handle(Map<String, List<Map<String, AttributeValue>>> responses) {
+                for ( Entry<String, List<Map<String, AttributeValue>>> response : responses.entrySet() ) {
+                    String tableName = response.getKey();
+                    Class<?> clazz = classesByTableName.get(tableName);
 
-        return resultSet;
+                    List<Object> objects = new ArrayList<Object>(response.getValue().size());
+                    for ( Map<String, AttributeValue> item : response.getValue() ) {
+                        AttributeTransformer.Parameters<?> parameters =
+                            toParameters(item, clazz, tableName, mergedConfig);
+                        objects.add(privateMarshallIntoObject(converter, parameters));
+                    }
+
+                    callback.onItemsLoaded(tableName, objects);
+                }
+            }
+        });
     }
 
     /**
@@ -1811,8 +1716,9 @@ public class DynamoDBMapper {
      * @param itemsToGet
      *            Map from class to load to list of primary key attributes.
      * @param config
-     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()} and
-     *            {@link DynamoDBMapperConfig#getConsistentReads()} are
+     *            Only {@link DynamoDBMapperConfig#getTableNameOverride()},
+     *            {@link DynamoDBMapperConfig#getConsistentReads()} and
+     *            {@link DynamoDBMapperConfig#getBatchLoadExecutor()} are
      *            considered.
      *
      * @return A map of the loaded objects. Each key in the map is the name of a
@@ -1837,69 +1743,6 @@ public class DynamoDBMapper {
         return batchLoad(keys, config);
     }
 
-    /**
-     * @param config never null
-     */
-    private void processBatchGetRequest(
-            final Map<String, Class<?>> classesByTableName,
-            final Map<String, KeysAndAttributes> requestItems,
-            final Map<String, List<Object>> resultSet,
-            final DynamoDBMapperConfig config,
-            final ItemConverter converter) {
-
-        BatchGetItemResult batchGetItemResult = null;
-        BatchGetItemRequest batchGetItemRequest = new BatchGetItemRequest()
-            .withRequestMetricCollector(config.getRequestMetricCollector());
-        batchGetItemRequest.setRequestItems(requestItems);
-
-        int retries = 0;
-        int noOfItemsInOriginalRequest = requestItems.size();
-
-        do {
-            if ( batchGetItemResult != null ) {
-                retries++;
-
-                if (noOfItemsInOriginalRequest == batchGetItemResult
-                        .getUnprocessedKeys().size()){
-                    pauseExponentially(retries);
-                    if (retries > BATCH_GET_MAX_RETRY_COUNT_ALL_KEYS) {
-                        throw new AmazonClientException(
-                                "Batch Get Item request to server hasn't received any data. "
-                                + "Please try again later.");
-                    }
-                }
-
-                batchGetItemRequest.setRequestItems(
-                        batchGetItemResult.getUnprocessedKeys());
-            }
-
-            batchGetItemResult = db.batchGetItem(
-                    applyBatchOperationUserAgent(batchGetItemRequest));
-
-            Map<String, List<Map<String, AttributeValue>>> responses = batchGetItemResult.getResponses();
-            for ( String tableName : responses.keySet() ) {
-                List<Object> objects = null;
-                if ( resultSet.get(tableName) != null ) {
-                    objects = resultSet.get(tableName);
-                } else {
-                    objects = new LinkedList<Object>();
-                }
-
-                Class<?> clazz = classesByTableName.get(tableName);
-
-                for ( Map<String, AttributeValue> item : responses.get(tableName) ) {
-                    AttributeTransformer.Parameters<?> parameters =
-                        toParameters(item, clazz, tableName, config);
-                    objects.add(privateMarshallIntoObject(converter, parameters));
-                }
-
-                resultSet.put(tableName, objects);
-            }
-            // To see whether there are unprocessed keys.
-        } while ( batchGetItemResult.getUnprocessedKeys() != null && batchGetItemResult.getUnprocessedKeys().size() > 0 );
-
-    }
-
     private final class ValueUpdate {
 
         private final Method method;
@@ -2027,17 +1870,20 @@ public class DynamoDBMapper {
 
     /**
      * Scans through an Amazon DynamoDB table on logically partitioned segments
-     * in parallel. This method will create a thread pool of the specified size,
-     * and each thread will issue scan requests for its assigned segment,
-     * following the returned continuation token, until the end of its segment.
-     * Callers should be responsible for setting the appropriate number of total
-     * segments. More scan segments would result in better performance but more
-     * consumed capacity of the table. The results are returned in one
-     * unmodifiable list of instantiated objects. The table to scan is
-     * determined by looking at the annotations on the specified class, which
-     * declares where to store the object data in Amazon DynamoDB, and the scan
-     * expression parameter allows the caller to filter results and control how
-     * the scan is executed.
+     * in parallel. Each segment is scanned on the executor given by
+     * {@link DynamoDBMapperConfig#getParallelScanExecutor()}, or, if there is
+     * none, on a cached thread pool created for the scan, which runs at most
+     * one thread per segment. Each segment follows the returned continuation
+     * token until the end of the segment. A segment stops scanning ahead while
+     * as many pages as there are segments have been loaded but not yet
+     * consumed from the returned list. Callers should be responsible for
+     * setting the appropriate number of total segments. More scan segments
+     * would result in better performance but more consumed capacity of the
+     * table. The results are returned in one unmodifiable list of
+     * instantiated objects. The table to scan is determined by looking at the
+     * annotations on the specified class, which declares where to store the
+     * object data in Amazon DynamoDB, and the scan expression parameter allows
+     * the caller to filter results and control how the scan is executed.
      * <p>
      * Callers should be aware that the returned list is unmodifiable, and any
      * attempts to modify the list will result in an
@@ -2070,7 +1916,7 @@ public class DynamoDBMapper {
 
         // Create hard copies of the original scan request with difference segment number.
         List<ScanRequest> parallelScanRequests = createParallelScanRequestsFromExpression(clazz, scanExpression, totalSegments, config);
-        ParallelScanTask parallelScanTask = new ParallelScanTask(this, db, parallelScanRequests);
+        ParallelScanTask parallelScanTask = new ParallelScanTask(db, parallelScanRequests, config.getParallelScanExecutor());
 
         return new PaginatedParallelScanList<T>(this, clazz, db, parallelScanTask, config.getPaginationLoadingStrategy(), config);
     }
@@ -2870,30 +2716,18 @@ public class DynamoDBMapper {
     private ItemConverter getConverter(DynamoDBMapperConfig config) {
         ConversionSchema schema = config.getConversionSchema();
 
+        ItemConverter converter = converters.get(schema);
+        if (converter != null) {
+            return converter;
+        }
+
         ConversionSchema.Dependencies params = new ConversionSchema.Dependencies()
                 .with(DynamoDBReflector.class, reflector)
                 .with(S3ClientCache.class, s3cc);
 
-        return schema.getConverter(params);
-    }
-
-    private void pauseExponentially(int retries) {
-        if (retries == 0) {
-            return;
-        }
-
-        Random random = new Random();
-        long delay = 0;
-        long scaleFactor = 500 + random.nextInt(100);
-        delay = (long) (Math.pow(2, retries) * scaleFactor);
-        delay = Math.min(delay, MAX_BACKOFF_IN_MILLISECONDS);
-
-        try {
-            Thread.sleep(delay);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            throw new AmazonClientException(e.getMessage(), e);
-        }
+        converter = schema.getConverter(params);
+        ItemConverter existing = converters.putIfAbsent(schema, converter);
+        return existing == null ? converter : existing;
     }
 
     /**
@@ -2984,6 +2818,27 @@ public class DynamoDBMapper {
 
     }
 
+    /**
+     * Receives the objects loaded by
+     * {@link DynamoDBMapper#batchLoad(List, DynamoDBMapperConfig, BatchLoadCallback)}
+     * as they arrive.
+     */
+    public static interface BatchLoadCallback {
+
+        /**
+         * Called with the objects loaded from a table by a single
+         * BatchGetItem request. Objects of the same table may arrive over
+         * several calls, in no particular order.
+         *
+         * @param tableName
+         *            The name of the table the objects were loaded from.
+         * @param objects
+         *            The loaded objects, all of the class mapped to the
+         *            table.
+         */
+        public void onItemsLoaded(String tableName, List<Object> objects);
+    }
+
     /**
      * Returns the underlying {@link S3ClientCache} for accessing S3.
      */
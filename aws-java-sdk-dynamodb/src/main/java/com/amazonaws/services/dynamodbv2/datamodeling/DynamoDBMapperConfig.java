@@ -14,6 +14,8 @@
  */
 package com.amazonaws.services.dynamodbv2.datamodeling;
 
+import java.util.concurrent.Executor;
+
 import com.amazonaws.metrics.RequestMetricCollector;
 
 /**
@@ -50,6 +52,10 @@ public class DynamoDBMapperConfig {
         private PaginationLoadingStrategy paginationLoadingStrategy;
         private RequestMetricCollector requestMetricCollector;
         private ConversionSchema conversionSchema;
+        private Integer batchWriteConcurrency;
+        private Executor batchWriteExecutor;
+        private Executor batchLoadExecutor;
+        private Executor parallelScanExecutor;
 
         /**
          * Creates a new builder initialized with the {@link #DEFAULT} values.
@@ -63,6 +69,10 @@ public class DynamoDBMapperConfig {
             paginationLoadingStrategy = DEFAULT.getPaginationLoadingStrategy();
             requestMetricCollector = DEFAULT.getRequestMetricCollector();
             conversionSchema = DEFAULT.getConversionSchema();
+            batchWriteConcurrency = DEFAULT.getBatchWriteConcurrency();
+            batchWriteExecutor = DEFAULT.getBatchWriteExecutor();
+            batchLoadExecutor = DEFAULT.getBatchLoadExecutor();
+            parallelScanExecutor = DEFAULT.getParallelScanExecutor();
         }
 
         /**
@@ -260,6 +270,108 @@ public class DynamoDBMapperConfig {
         }
 
 
+        /**
+         * @return the maximum number of concurrent BatchWriteItem requests
+         */
+        public Integer getBatchWriteConcurrency() {
+            return batchWriteConcurrency;
+        }
+
+        /**
+         * @param value the maximum number of concurrent BatchWriteItem
+         *            requests, at least 1
+         */
+        public void setBatchWriteConcurrency(Integer value) {
+            if (value != null && value < 1) {
+                throw new IllegalArgumentException(
+                        "Batch write concurrency must be at least 1");
+            }
+            batchWriteConcurrency = value;
+        }
+
+        /**
+         * @param value the maximum number of concurrent BatchWriteItem
+         *            requests, at least 1
+         * @return this builder
+         */
+        public Builder withBatchWriteConcurrency(Integer value) {
+            setBatchWriteConcurrency(value);
+            return this;
+        }
+
+
+        /**
+         * @return the executor for BatchWriteItem requests
+         */
+        public Executor getBatchWriteExecutor() {
+            return batchWriteExecutor;
+        }
+
+        /**
+         * @param value the executor for BatchWriteItem requests
+         */
+        public void setBatchWriteExecutor(Executor value) {
+            batchWriteExecutor = value;
+        }
+
+        /**
+         * @param value the executor for BatchWriteItem requests
+         * @return this builder
+         */
+        public Builder withBatchWriteExecutor(Executor value) {
+            setBatchWriteExecutor(value);
+            return this;
+        }
+
+
+        /**
+         * @return the executor for BatchGetItem requests
+         */
+        public Executor getBatchLoadExecutor() {
+            return batchLoadExecutor;
+        }
+
+        /**
+         * @param value the executor for BatchGetItem requests
+         */
+        public void setBatchLoadExecutor(Executor value) {
+            batchLoadExecutor = value;
+        }
+
+        /**
+         * @param value the executor for BatchGetItem requests
+         * @return this builder
+         */
+        public Builder withBatchLoadExecutor(Executor value) {
+            setBatchLoadExecutor(value);
+            return this;
+        }
+
+
+        /**
+         * @return the executor for the segments of a parallel scan
+         */
+        public Executor getParallelScanExecutor() {
+            return parallelScanExecutor;
+        }
+
+        /**
+         * @param value the executor for the segments of a parallel scan
+         */
+        public void setParallelScanExecutor(Executor value) {
+            parallelScanExecutor = value;
+        }
+
+        /**
+         * @param value the executor for the segments of a parallel scan
+         * @return this builder
+         */
+        public Builder withParallelScanExecutor(Executor value) {
+            setParallelScanExecutor(value);
+            return this;
+        }
+
+
         /**
          * Builds a new {@code DynamoDBMapperConfig} object.
          *
@@ -274,7 +386,11 @@ public class DynamoDBMapperConfig {
                     objectTableNameResolver,
                     paginationLoadingStrategy,
                     requestMetricCollector,
-                    conversionSchema);
+                    conversionSchema,
+                    batchWriteConcurrency,
+                    batchWriteExecutor,
+                    batchLoadExecutor,
+                    parallelScanExecutor);
         }
     }
 
@@ -358,6 +474,10 @@ public class DynamoDBMapperConfig {
          * <p>
          * Use this configuration to reduce the memory overhead when handling
          * large DynamoDB items.
+         * <p>
+         * For a parallel scan, the items of each segment are handed out as
+         * soon as its page arrives, and segments stop scanning ahead while
+         * the pages already loaded have not been iterated over.
          */
         ITERATION_ONLY,
 
@@ -514,6 +634,10 @@ public class DynamoDBMapperConfig {
     private final PaginationLoadingStrategy paginationLoadingStrategy;
     private final RequestMetricCollector requestMetricCollector;
     private final ConversionSchema conversionSchema;
+    private final Integer batchWriteConcurrency;
+    private final Executor batchWriteExecutor;
+    private final Executor batchLoadExecutor;
+    private final Executor parallelScanExecutor;
 
     /**
      * Legacy constructor, using default PaginationLoadingStrategy
@@ -583,7 +707,7 @@ public class DynamoDBMapperConfig {
                 null,
                 paginationLoadingStrategy,
                 requestMetricCollector,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     private DynamoDBMapperConfig(
@@ -594,7 +718,11 @@ public class DynamoDBMapperConfig {
             ObjectTableNameResolver objectTableNameResolver,
             PaginationLoadingStrategy paginationLoadingStrategy,
             RequestMetricCollector requestMetricCollector,
-            ConversionSchema conversionSchema) {
+            ConversionSchema conversionSchema,
+            Integer batchWriteConcurrency,
+            Executor batchWriteExecutor,
+            Executor batchLoadExecutor,
+            Executor parallelScanExecutor) {
 
         this.saveBehavior = saveBehavior;
         this.consistentReads = consistentReads;
@@ -604,6 +732,10 @@ public class DynamoDBMapperConfig {
         this.paginationLoadingStrategy = paginationLoadingStrategy;
         this.requestMetricCollector = requestMetricCollector;
         this.conversionSchema = conversionSchema;
+        this.batchWriteConcurrency = batchWriteConcurrency;
+        this.batchWriteExecutor = batchWriteExecutor;
+        this.batchLoadExecutor = batchLoadExecutor;
+        this.parallelScanExecutor = parallelScanExecutor;
     }
 
     /**
@@ -611,7 +743,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(SaveBehavior saveBehavior) {
         this(saveBehavior, null, null, null, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     /**
@@ -620,7 +752,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(ConsistentReads consistentReads) {
         this(null, consistentReads, null, null, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     /**
@@ -628,7 +760,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameOverride tableNameOverride) {
         this(null, null, tableNameOverride, null, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     /**
@@ -636,7 +768,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameResolver tableNameResolver) {
         this(null, null, null, tableNameResolver, null, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     /**
@@ -644,7 +776,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(ObjectTableNameResolver objectTableNameResolver) {
         this(null, null, null, null, objectTableNameResolver, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     /**
@@ -652,7 +784,7 @@ public class DynamoDBMapperConfig {
      */
     public DynamoDBMapperConfig(TableNameResolver tableNameResolver, ObjectTableNameResolver objectTableNameResolver) {
         this(null, null, null, tableNameResolver, objectTableNameResolver, null, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     /**
@@ -663,14 +795,14 @@ public class DynamoDBMapperConfig {
             PaginationLoadingStrategy paginationLoadingStrategy) {
 
         this(null, null, null, null, null, paginationLoadingStrategy, null,
-                ConversionSchemas.DEFAULT);
+                ConversionSchemas.DEFAULT, null, null, null, null);
     }
 
     /**
      * Constructs a new configuration object with the conversion schema given.
      */
     public DynamoDBMapperConfig(ConversionSchema conversionSchema) {
-        this(null, null, null, null, null, null, null, conversionSchema);
+        this(null, null, null, null, null, null, null, conversionSchema, null, null, null, null);
     }
 
     /**
@@ -702,6 +834,10 @@ public class DynamoDBMapperConfig {
                     defaults.getPaginationLoadingStrategy();
             this.requestMetricCollector = defaults.getRequestMetricCollector();
             this.conversionSchema = defaults.getConversionSchema();
+            this.batchWriteConcurrency = defaults.getBatchWriteConcurrency();
+            this.batchWriteExecutor = defaults.getBatchWriteExecutor();
+            this.batchLoadExecutor = defaults.getBatchLoadExecutor();
+            this.parallelScanExecutor = defaults.getParallelScanExecutor();
 
         } else {
 
@@ -739,6 +875,22 @@ public class DynamoDBMapperConfig {
                     ? defaults.getConversionSchema()
                     : overrides.getConversionSchema();
 
+            this.batchWriteConcurrency = (overrides.getBatchWriteConcurrency() == null)
+                    ? defaults.getBatchWriteConcurrency()
+                    : overrides.getBatchWriteConcurrency();
+
+            this.batchWriteExecutor = (overrides.getBatchWriteExecutor() == null)
+                    ? defaults.getBatchWriteExecutor()
+                    : overrides.getBatchWriteExecutor();
+
+            this.batchLoadExecutor = (overrides.getBatchLoadExecutor() == null)
+                    ? defaults.getBatchLoadExecutor()
+                    : overrides.getBatchLoadExecutor();
+
+            this.parallelScanExecutor = (overrides.getParallelScanExecutor() == null)
+                    ? defaults.getParallelScanExecutor()
+                    : overrides.getParallelScanExecutor();
+
         }
     }
 
@@ -815,9 +967,58 @@ public class DynamoDBMapperConfig {
         return conversionSchema;
     }
 
+    /**
+     * Returns the maximum number of BatchWriteItem requests a batch write
+     * keeps in flight, or null if not specified. With a value of 1, all
+     * requests are sent from the calling thread.
+     *
+     * @see DynamoDBMapper#batchWrite(java.util.List, java.util.List, DynamoDBMapperConfig)
+     */
+    public Integer getBatchWriteConcurrency() {
+        return batchWriteConcurrency;
+    }
+
+    /**
+     * Returns the executor a batch write sends its BatchWriteItem requests
+     * on when its concurrency is greater than 1, or null if each batch write
+     * creates its own pool of {@link #getBatchWriteConcurrency()} threads.
+     * The executor is not shut down by the mapper.
+     *
+     * @see DynamoDBMapper#batchWrite(java.util.List, java.util.List, DynamoDBMapperConfig)
+     */
+    public Executor getBatchWriteExecutor() {
+        return batchWriteExecutor;
+    }
+
+    /**
+     * Returns the executor a batch load sends its BatchGetItem requests on,
+     * or null if they are sent one after another from the calling thread.
+     * The number of threads of the executor bounds the number of requests
+     * in flight. The executor is not shut down by the mapper.
+     *
+     * @see DynamoDBMapper#batchLoad(java.util.List, DynamoDBMapperConfig)
+     */
+    public Executor getBatchLoadExecutor() {
+        return batchLoadExecutor;
+    }
+
+    /**
+     * Returns the executor a parallel scan runs its segments on, or null if
+     * each parallel scan creates its own pool of one thread per segment. A
+     * bounded executor limits the number of segments scanned at once; the
+     * other segments wait their turn. The executor is not shut down by the
+     * mapper.
+     *
+     * @see DynamoDBMapper#parallelScan(Class, DynamoDBScanExpression, int, DynamoDBMapperConfig)
+     */
+    public Executor getParallelScanExecutor() {
+        return parallelScanExecutor;
+    }
+
     /**
      * Default configuration uses UPDATE behavior for saves and EVENTUALly
      * consistent reads, with no table name override and lazy-loading strategy.
+     * Batch writes send one request at a time.
      */
     public static final DynamoDBMapperConfig DEFAULT = new DynamoDBMapperConfig(
             SaveBehavior.UPDATE,
@@ -827,5 +1028,9 @@ public class DynamoDBMapperConfig {
             null, // ObjectTableNameResolver
             PaginationLoadingStrategy.LAZY_LOADING,
             null,  // RequestMetricCollector
-            ConversionSchemas.DEFAULT);
+            ConversionSchemas.DEFAULT,
+            1,     // BatchWriteConcurrency
+            null,  // BatchWriteExecutor
+            null,  // BatchLoadExecutor
+            null); // ParallelScanExecutor
 }
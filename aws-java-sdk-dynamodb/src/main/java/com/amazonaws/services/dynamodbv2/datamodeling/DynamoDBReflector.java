@@ -15,58 +15,40 @@
 package com.amazonaws.services.dynamodbv2.datamodeling;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.ReadLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock.WriteLock;
-
-import org.apache.http.annotation.GuardedBy;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Reflection assistant for {@link DynamoDBMapper}
+ * <p>
+ * The mapping of each class, and of each getter, is worked out once and kept
+ * in an immutable model. The models are held in concurrent maps, so looking
+ * them up never blocks; threads racing to build the model of the same class
+ * each build it, and all of them end up using the one that was registered
+ * first.
  */
 class DynamoDBReflector {
 
-    /*
-     * Several caches for performance. Collectively, they can make this class
-     * over twice as fast.
-     */
-    private final Map<Class<?>, Collection<Method>> getterCache = new HashMap<Class<?>, Collection<Method>>();
-    private final Map<Class<?>, Method> primaryHashKeyGetterCache = new HashMap<Class<?>, Method>();
-    private final Map<Class<?>, Method> primaryRangeKeyGetterCache = new HashMap<Class<?>, Method>();
+    private final ConcurrentMap<Class<?>, ClassModel> classModels =
+            new ConcurrentHashMap<Class<?>, ClassModel>();
 
     /*
-     * All caches keyed by a Method use the getter for a particular mapped
-     * property
+     * Keyed by the getter for a particular mapped property
      */
-    private final Map<Method, Method> setterCache = new HashMap<Method, Method>();
-
-    @GuardedBy("readWriteLockAttrName")
-    private final Map<Method, String> attributeNameCache = new HashMap<Method, String>();
-
-    private final Map<Method, Boolean> versionAttributeGetterCache = new HashMap<Method, Boolean>();
-    private final Map<Method, Boolean> autoGeneratedKeyGetterCache = new HashMap<Method, Boolean>();
-
-    private final ReentrantReadWriteLock readWriteLockAttrName = new ReentrantReadWriteLock();
-    private final ReadLock readLockAttrName = readWriteLockAttrName.readLock();
-    private final WriteLock writeLockAttrName = readWriteLockAttrName.writeLock();
+    private final ConcurrentMap<Method, PropertyModel> propertyModels =
+            new ConcurrentHashMap<Method, PropertyModel>();
 
     /**
      * Returns the set of getter methods which are relevant when marshalling or
      * unmarshalling an object.
      */
     Collection<Method> getRelevantGetters(Class<?> clazz) {
-        synchronized (getterCache) {
-            if ( !getterCache.containsKey(clazz) ) {
-                List<Method> relevantGetters = findRelevantGetters(clazz);
-                getterCache.put(clazz, relevantGetters);
-            }
-            return getterCache.get(clazz);
-        }
+        return getClassModel(clazz).relevantGetters;
     }
 
     static List<Method> findRelevantGetters(Class<?> clazz) {
@@ -102,39 +84,16 @@ class DynamoDBReflector {
      * given, or null if the class doesn't have one.
      */
     <T> Method getPrimaryRangeKeyGetter(Class<T> clazz) {
-        synchronized (primaryRangeKeyGetterCache) {
-            if ( !primaryRangeKeyGetterCache.containsKey(clazz) ) {
-                Method rangeKeyMethod = null;
-                for ( Method method : getRelevantGetters(clazz) ) {
-                    if ( method.getParameterTypes().length == 0
-                            && ReflectionUtils.getterOrFieldHasAnnotation(method, DynamoDBRangeKey.class)) {
-                        rangeKeyMethod = method;
-                        break;
-                    }
-                }
-                primaryRangeKeyGetterCache.put(clazz, rangeKeyMethod);
-            }
-            return primaryRangeKeyGetterCache.get(clazz);
-        }
+        return getClassModel(clazz).rangeKeyGetter;
     }
 
     /**
      * Returns all annotated {@link DynamoDBHashKey} and
      * {@link DynamoDBRangeKey} getters for the class given, throwing an
      * exception if there isn't one.
-     *
-     * TODO: caching
      */
     <T> Collection<Method> getPrimaryKeyGetters(Class<T> clazz) {
-        List<Method> keyGetters = new LinkedList<Method>();
-        for (Method getter : getRelevantGetters(clazz)) {
-            if (ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class)
-                    || ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class)) {
-                keyGetters.add(getter);
-            }
-        }
-
-        return keyGetters;
+        return getClassModel(clazz).keyGetters;
     }
 
 
@@ -143,20 +102,7 @@ class DynamoDBReflector {
      * throwing an exception if there isn't one.
      */
     <T> Method getPrimaryHashKeyGetter(Class<T> clazz) {
-        Method hashKeyMethod;
-        synchronized (primaryHashKeyGetterCache) {
-            if ( !primaryHashKeyGetterCache.containsKey(clazz) ) {
-                for ( Method method : getRelevantGetters(clazz) ) {
-                    if ( method.getParameterTypes().length == 0
-                            && ReflectionUtils.getterOrFieldHasAnnotation(method, DynamoDBHashKey.class)) {
-                        primaryHashKeyGetterCache.put(clazz, method);
-                        break;
-                    }
-                }
-            }
-            hashKeyMethod = primaryHashKeyGetterCache.get(clazz);
-        }
-
+        Method hashKeyMethod = getClassModel(clazz).hashKeyGetter;
         if ( hashKeyMethod == null ) {
             throw new DynamoDBMappingException("Public, zero-parameter hash key property must be annotated with "
                     + DynamoDBHashKey.class);
@@ -179,89 +125,77 @@ class DynamoDBReflector {
      * Returns the attribute name corresponding to the given getter method.
      */
     String getAttributeName(Method getter) {
+        return getPropertyModel(getter).attributeName;
+    }
+
+    private static String findAttributeName(Method getter) {
         String attributeName;
-        readLockAttrName.lock();
-        try {
-            attributeName = attributeNameCache.get(getter);
-        } finally {
-            readLockAttrName.unlock();
-        }
-        if ( attributeName != null )
-            return attributeName;
         DynamoDBHashKey hashKeyAnnotation = ReflectionUtils.getAnnotationFromGetterOrField(getter, DynamoDBHashKey.class);
         if ( hashKeyAnnotation != null ) {
             attributeName = hashKeyAnnotation.attributeName();
             if ( attributeName != null && attributeName.length() > 0 )
-                return cacheAttributeName(getter, attributeName);
+                return attributeName;
         }
         DynamoDBIndexHashKey indexHashKey = ReflectionUtils.getAnnotationFromGetterOrField(getter, DynamoDBIndexHashKey.class);
         if ( indexHashKey != null ) {
             attributeName = indexHashKey.attributeName();
             if ( attributeName != null && attributeName.length() > 0 )
-                return cacheAttributeName(getter, attributeName);
+                return attributeName;
         }
         DynamoDBRangeKey rangeKey = ReflectionUtils.getAnnotationFromGetterOrField(getter, DynamoDBRangeKey.class);
         if ( rangeKey != null ) {
             attributeName = rangeKey.attributeName();
             if ( attributeName != null && attributeName.length() > 0 )
-                return cacheAttributeName(getter, attributeName);
+                return attributeName;
         }
         DynamoDBIndexRangeKey indexRangeKey = ReflectionUtils.getAnnotationFromGetterOrField(getter, DynamoDBIndexRangeKey.class);
         if ( indexRangeKey != null ) {
             attributeName = indexRangeKey.attributeName();
             if ( attributeName != null && attributeName.length() > 0 )
-                return cacheAttributeName(getter, attributeName);
+                return attributeName;
         }
         DynamoDBAttribute attribute = ReflectionUtils.getAnnotationFromGetterOrField(getter, DynamoDBAttribute.class);
         if ( attribute != null ) {
             attributeName = attribute.attributeName();
             if ( attributeName != null && attributeName.length() > 0 )
-                return cacheAttributeName(getter, attributeName);
+                return attributeName;
         }
         DynamoDBVersionAttribute version = ReflectionUtils.getAnnotationFromGetterOrField(getter, DynamoDBVersionAttribute.class);
         if ( version != null ) {
             attributeName = version.attributeName();
             if ( attributeName != null && attributeName.length() > 0 )
-                return cacheAttributeName(getter, attributeName);
+                return attributeName;
         }
         // Default to the camel-cased field name of the getter method, inferred
         // according to the Java naming convention.
-        attributeName = ReflectionUtils.getFieldNameByGetter(getter, true);
-        return cacheAttributeName(getter, attributeName);
-    }
-
-    private String cacheAttributeName(Method getter, String attributeName) {
-        writeLockAttrName.lock();
-        try {
-            attributeNameCache.put(getter, attributeName);
-        } finally {
-            writeLockAttrName.unlock();
-        }
-        return attributeName;
+        return ReflectionUtils.getFieldNameByGetter(getter, true);
     }
 
     /**
-     * Returns the setter corresponding to the getter given, or null if no such
-     * setter exists.
+     * Returns the setter corresponding to the getter given, throwing an
+     * exception if no such setter exists.
      */
     Method getSetter(Method getter) {
-        synchronized (setterCache) {
-            if ( !setterCache.containsKey(getter) ) {
-                String fieldName = ReflectionUtils.getFieldNameByGetter(getter, false);
-                String setterName = "set" + fieldName;
-                Method setter = null;
-                try {
-                    setter = getter.getDeclaringClass().getMethod(setterName, getter.getReturnType());
-                } catch ( NoSuchMethodException e ) {
-                    throw new DynamoDBMappingException("Expected a public, one-argument method called " + setterName
-                            + " on class " + getter.getDeclaringClass(), e);
-                } catch ( SecurityException e ) {
-                    throw new DynamoDBMappingException("No access to public, one-argument method called " + setterName
-                            + " on class " + getter.getDeclaringClass(), e);
-                }
-                setterCache.put(getter, setter);
-            }
-            return setterCache.get(getter);
+        Method setter = getPropertyModel(getter).setter;
+        if ( setter == null ) {
+            // Look it up again to throw the exception explaining why it's
+            // missing; properties without a setter can still be saved.
+            setter = findSetter(getter);
+        }
+        return setter;
+    }
+
+    private static Method findSetter(Method getter) {
+        String fieldName = ReflectionUtils.getFieldNameByGetter(getter, false);
+        String setterName = "set" + fieldName;
+        try {
+            return getter.getDeclaringClass().getMethod(setterName, getter.getReturnType());
+        } catch ( NoSuchMethodException e ) {
+            throw new DynamoDBMappingException("Expected a public, one-argument method called " + setterName
+                    + " on class " + getter.getDeclaringClass(), e);
+        } catch ( SecurityException e ) {
+            throw new DynamoDBMappingException("No access to public, one-argument method called " + setterName
+                    + " on class " + getter.getDeclaringClass(), e);
         }
     }
 
@@ -270,31 +204,14 @@ class DynamoDBReflector {
      * version attribute.
      */
     boolean isVersionAttributeGetter(Method getter) {
-        synchronized (versionAttributeGetterCache) {
-            if ( !versionAttributeGetterCache.containsKey(getter) ) {
-                versionAttributeGetterCache.put(
-                        getter,
-                        getter.getName().startsWith("get") && getter.getParameterTypes().length == 0
-                                && ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBVersionAttribute.class));
-            }
-            return versionAttributeGetterCache.get(getter);
-        }
+        return getPropertyModel(getter).versionAttribute;
     }
 
     /**
      * Returns whether the method given is an assignable key getter.
      */
     boolean isAssignableKey(Method getter) {
-        synchronized (autoGeneratedKeyGetterCache) {
-            if ( !autoGeneratedKeyGetterCache.containsKey(getter) ) {
-                autoGeneratedKeyGetterCache.put(
-                        getter,
-                        ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBAutoGeneratedKey.class)
-                                && ( ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class) ||
-                                     ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class)));
-            }
-            return autoGeneratedKeyGetterCache.get(getter);
-        }
+        return getPropertyModel(getter).assignableKey;
     }
 
     /**
@@ -323,4 +240,97 @@ class DynamoDBReflector {
     boolean hasPrimaryRangeKey(Class<?> clazz) {
         return getPrimaryRangeKeyGetter(clazz) != null;
     }
+
+    private ClassModel getClassModel(Class<?> clazz) {
+        ClassModel model = classModels.get(clazz);
+        if ( model == null ) {
+            model = new ClassModel(findRelevantGetters(clazz));
+            ClassModel existing = classModels.putIfAbsent(clazz, model);
+            if ( existing != null ) {
+                model = existing;
+            }
+        }
+        return model;
+    }
+
+    private PropertyModel getPropertyModel(Method getter) {
+        PropertyModel model = propertyModels.get(getter);
+        if ( model == null ) {
+            model = new PropertyModel(getter);
+            PropertyModel existing = propertyModels.putIfAbsent(getter, model);
+            if ( existing != null ) {
+                model = existing;
+            }
+        }
+        return model;
+    }
+
+    /**
+     * The mapped getters of a class and the roles of its key properties.
+     */
+    private static final class ClassModel {
+
+        private final Collection<Method> relevantGetters;
+        private final Collection<Method> keyGetters;
+        private final Method hashKeyGetter;
+        private final Method rangeKeyGetter;
+
+        ClassModel(List<Method> relevantGetters) {
+            List<Method> keyGetters = new ArrayList<Method>(2);
+            Method hashKeyGetter = null;
+            Method rangeKeyGetter = null;
+            for ( Method getter : relevantGetters ) {
+                boolean hashKey = ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class);
+                boolean rangeKey = ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class);
+                if ( hashKey || rangeKey ) {
+                    keyGetters.add(getter);
+                }
+                if ( hashKey && hashKeyGetter == null ) {
+                    hashKeyGetter = getter;
+                }
+                if ( rangeKey && rangeKeyGetter == null ) {
+                    rangeKeyGetter = getter;
+                }
+            }
+            this.relevantGetters = Collections.unmodifiableList(new ArrayList<Method>(relevantGetters));
+            this.keyGetters = Collections.unmodifiableList(keyGetters);
+            this.hashKeyGetter = hashKeyGetter;
+            this.rangeKeyGetter = rangeKeyGetter;
+        }
+    }
+
+    /**
+     * The attribute name, setter and flags of a mapped property, keyed by its
+     * getter.
+     */
+    private static final class PropertyModel {
+
+        private final String attributeName;
+
+        /** Null if the property has no setter. */
+        private final Method setter;
+
+        private final boolean versionAttribute;
+        private final boolean assignableKey;
+
+        PropertyModel(Method getter) {
+            this.attributeName = findAttributeName(getter);
+
+            Method setter = null;
+            try {
+                setter = findSetter(getter);
+            } catch ( DynamoDBMappingException e ) {
+                // Only an error if the property needs to be set
+            }
+            this.setter = setter;
+
+            this.versionAttribute = getter.getName().startsWith("get")
+                    && getter.getParameterTypes().length == 0
+                    && ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBVersionAttribute.class);
+            this.assignableKey =
+                    ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBAutoGeneratedKey.class)
+                    && ( ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBHashKey.class) ||
+                         ReflectionUtils.getterOrFieldHasAnnotation(getter, DynamoDBRangeKey.class));
+        }
+    }
 }
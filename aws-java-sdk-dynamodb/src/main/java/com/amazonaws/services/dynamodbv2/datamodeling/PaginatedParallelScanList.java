@@ -26,7 +26,12 @@ import com.amazonaws.services.dynamodbv2.model.ScanResult;
  * in AWS DynamoDB. Paginated results are loaded on demand when the user
  * executes an operation that requires them. Some operations, such as size(),
  * must fetch the entire list, but results are lazily fetched page by page when
- * possible.
+ * possible. Pages are handed out in the order the segments deliver them, so
+ * items from different segments may be interleaved.
+ * <p>
+ * In {@link PaginationLoadingStrategy#ITERATION_ONLY} mode, the list keeps
+ * only the pages loaded since the last fetch in memory, which makes it
+ * suitable for scanning tables of any size.
  * <p>
  * This is an unmodifiable list, so callers should not invoke any operations
  * that modify this list, otherwise they will throw an
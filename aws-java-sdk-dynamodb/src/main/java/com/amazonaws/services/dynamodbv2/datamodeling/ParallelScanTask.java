@@ -18,17 +18,30 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.Map;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
 
+/**
+ * Scans the segments of a parallel scan on an executor, and hands out their
+ * pages as they arrive.
+ * <p>
+ * Each segment scans one page at a time. Once a page has been scanned the
+ * segment goes on with its next page, unless the pages scanned but not yet
+ * handed out, plus the pages being scanned, already number as many as there
+ * are segments; in that case the segment is paused until the consumer catches
+ * up. This bounds the memory held by the scan no matter how large the table
+ * is, and without waiting for the slowest segment before handing out the
+ * pages of the others.
+ */
 public class ParallelScanTask {
 
     /**
@@ -38,44 +51,80 @@ public class ParallelScanTask {
 
     private final int totalSegments;
 
+    private final AmazonDynamoDB dynamo;
+
     /**
-     * Cache all the future tasks, so that we can extract the exception when
-     * we see failed segment scan.
+     * The executor the segments are scanned on.
      */
-    private final List<Future<ScanResult>> segmentScanFutureTasks;
+    private final Executor executor;
 
     /**
-     * Cache all the most recent ScanResult on each segment.
+     * The executor created for this scan, which is shut down when the scan
+     * ends; null if the executor was supplied by the caller.
      */
-    private final List<ScanResult> segmentScanResults;
+    private final ExecutorService ownExecutor;
 
     /**
-     * The current state of the scan on each segment.
-     * Used as the monitor for synchronization.
+     * The max number of pages scanned but not yet handed out, plus pages
+     * being scanned.
      */
-    private final List<SegmentScanState> segmentScanStates;
+    private final int maxBufferedPages;
 
-    private ExecutorService executorService;
+    /*
+     * The fields below are guarded by this.
+     */
 
-    private final AmazonDynamoDB dynamo;
+    /** The pages scanned but not yet handed out, in order of arrival. */
+    private final LinkedList<ScanResult> bufferedPages = new LinkedList<ScanResult>();
+
+    /** The segments with more pages to scan that are not being scanned. */
+    private final LinkedList<Integer> pausedSegments = new LinkedList<Integer>();
+
+    /** The key to start the next page of each segment from. */
+    private final List<Map<String, AttributeValue>> lastEvaluatedKeys;
+
+    private int pagesInFlight;
+
+    private int completedSegments;
+
+    /** The first failure of a segment scan, after which the scan stops. */
+    private Throwable failure;
+
+    private int failedSegment;
 
     @Deprecated
     public ParallelScanTask(DynamoDBMapper mapper, AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
-        this(dynamo, parallelScanRequests);
+        this(dynamo, parallelScanRequests, null);
     }
 
-    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests) {
+    /**
+     * @param dynamo
+     *            The service object to scan with.
+     * @param parallelScanRequests
+     *            The scan request of each segment.
+     * @param executor
+     *            The executor to scan the segments on, or null to create a
+     *            pool of up to one thread per segment for this scan.
+     */
+    ParallelScanTask(AmazonDynamoDB dynamo, List<ScanRequest> parallelScanRequests, Executor executor) {
         this.dynamo = dynamo;
         this.parallelScanRequests = parallelScanRequests;
         this.totalSegments = parallelScanRequests.size();
-        executorService = Executors.newCachedThreadPool();
+        this.maxBufferedPages = totalSegments;
 
-        // Create synchronized views of the list to guarantee any changes are visible across all threads.
-        segmentScanFutureTasks = Collections.synchronizedList(new ArrayList<Future<ScanResult>>(totalSegments));
-        segmentScanResults = Collections.synchronizedList(new ArrayList<ScanResult>(totalSegments));
-        segmentScanStates = Collections.synchronizedList(new ArrayList<SegmentScanState>(totalSegments));
+        if (executor == null) {
+            this.ownExecutor = Executors.newCachedThreadPool();
+            this.executor = ownExecutor;
+        } else {
+            this.ownExecutor = null;
+            this.executor = executor;
+        }
 
-        initSegmentScanStates();
+        this.lastEvaluatedKeys = new ArrayList<Map<String, AttributeValue>>(totalSegments);
+        for (int segment = 0; segment < totalSegments; segment++) {
+            lastEvaluatedKeys.add(null);
+            pausedSegments.add(segment);
+        }
     }
 
     String getTableName() {
@@ -83,189 +132,153 @@ public class ParallelScanTask {
     }
 
     public boolean isAllSegmentScanFinished() {
-        synchronized(segmentScanStates) {
-            for (int segment = 0; segment < totalSegments; segment++) {
-                if (segmentScanStates.get(segment) != SegmentScanState.SegmentScanCompleted)
-                    return false;
+        synchronized (this) {
+            if (completedSegments < totalSegments || !bufferedPages.isEmpty()) {
+                return false;
             }
-            // Shut down if all data have been scanned and loaded.
-            executorService.shutdown();
-            return true;
         }
+        // Shut down if all data have been scanned and loaded.
+        shutdownOwnExecutor();
+        return true;
     }
 
+    /**
+     * Returns the pages that have been scanned since the last call, waiting
+     * for at least one if there are none yet. Returns an empty list once all
+     * segments have been scanned.
+     */
     public List<ScanResult> getNextBatchOfScanResults() throws AmazonClientException {
-        /**
-         * Kick-off all the parallel scan tasks.
-         */
-        startScanNextPages();
-        /**
-         * Wait till all the tasks have finished.
-         */
-        synchronized(segmentScanStates) {
-            while (segmentScanStates.contains(SegmentScanState.Waiting)
-                    || segmentScanStates.contains(SegmentScanState.Scanning)) {
+        startSegments(takeSegmentsToResume());
+
+        List<ScanResult> scanResults;
+        synchronized (this) {
+            while (bufferedPages.isEmpty()
+                    && failure == null
+                    && completedSegments < totalSegments) {
                 try {
-                    segmentScanStates.wait();
+                    wait();
                 } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
                     throw new AmazonClientException("Parallel scan interrupted by other thread.", ie);
                 }
             }
-            /**
-             *  Keep the lock on segmentScanStates until all the cached results are marshaled and returned.
-             */
-            return marshalParallelScanResults();
+            if (failure != null) {
+                throw toClientException(failedSegment, failure);
+            }
+            scanResults = new LinkedList<ScanResult>(bufferedPages);
+            bufferedPages.clear();
         }
 
+        // Room has been made; let the paused segments go on.
+        startSegments(takeSegmentsToResume());
+        return scanResults;
     }
 
-    private void startScanNextPages() {
-        for (int segment = 0; segment < totalSegments; segment++) {
-            final int currentSegment = segment;
-            final SegmentScanState currentSegmentState = segmentScanStates.get(currentSegment);
-            /**
-             * Assert: Should never see any task in state of "Scanning" when starting a new batch.
-             */
-            if (currentSegmentState == SegmentScanState.Scanning){
-                throw new AmazonClientException("Should never see a 'Scanning' state when starting parallel scans.");
-            }
-            /**
-             * Skip any failed or completed segment, and clear the corresponding cached result.
-             */
-            else if (currentSegmentState == SegmentScanState.Failed
-                    || currentSegmentState == SegmentScanState.SegmentScanCompleted) {
-                segmentScanResults.set(currentSegment, null);
-                continue;
-            }
-            /**
-             * Otherwise, submit a new future task and save it in segmentScanFutureTasks.
-             */
-            else {
-                // Update the state to "Scanning" and notify any waiting thread.
-                synchronized(segmentScanStates) {
-                    segmentScanStates.set(currentSegment, SegmentScanState.Scanning);
-                    segmentScanStates.notifyAll();
-                }
-                Future<ScanResult> futureTask = executorService.submit(new Callable<ScanResult>() {
-                    @Override
-                    public ScanResult call() throws Exception {
-                        try {
-                            if (currentSegmentState == SegmentScanState.HasNextPage) {
-                                return scanNextPageOfSegment(currentSegment, true);
-                            }
-                            else if (currentSegmentState == SegmentScanState.Waiting) {
-                                return scanNextPageOfSegment(currentSegment, false);
-                            }
-                            else {
-                                throw new AmazonClientException("Should not start a new future task");
-                            }
-                        } catch (Exception e) {
-                            synchronized(segmentScanStates) {
-                                segmentScanStates.set(currentSegment, SegmentScanState.Failed);
-                                segmentScanStates.notifyAll();
-                            }
-                            throw e;
-                        }
-                    }
-                });
-                // Cache the future task (for getting the Exceptions in the working thread).
-                segmentScanFutureTasks.set(currentSegment, futureTask);
+    /**
+     * Takes off the paused segments as many as can be scanned without going
+     * over {@link #maxBufferedPages}, counting them as in flight.
+     */
+    private synchronized List<Integer> takeSegmentsToResume() {
+        if (failure != null || pausedSegments.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Integer> segments = new LinkedList<Integer>();
+        while (!pausedSegments.isEmpty()
+                && pagesInFlight + bufferedPages.size() < maxBufferedPages) {
+            segments.add(pausedSegments.removeFirst());
+            pagesInFlight++;
+        }
+        return segments;
+    }
+
+    private void startSegments(List<Integer> segments) {
+        for (Integer segment : segments) {
+            try {
+                executor.execute(new SegmentScan(segment));
+            } catch (RejectedExecutionException e) {
+                onSegmentFailed(segment, e);
             }
         }
     }
 
-    private List<ScanResult> marshalParallelScanResults() {
-        List<ScanResult> scanResults = new LinkedList<ScanResult>();
-        for (int segment = 0; segment < totalSegments; segment++) {
-            SegmentScanState currentSegmentState = segmentScanStates.get(segment);
-            /**
-             * Rethrow the exception from any failed segment scan.
-             */
-            if (currentSegmentState == SegmentScanState.Failed) {
-                try {
-                    segmentScanFutureTasks.get(segment).get();
-                    throw new AmazonClientException("No Exception found in the failed scan task.");
-                } catch (ExecutionException ee) {
-                    if ( ee.getCause() instanceof AmazonClientException) {
-                        throw (AmazonClientException) (ee.getCause());
-                    } else {
-                        throw new AmazonClientException("Internal error during the scan on segment #" + segment + ".",
-                                ee.getCause());
-                    }
-                } catch (Exception e) {
-                    throw new AmazonClientException("Error during the scan on segment #" + segment + ".", e);
-                }
+    private void onPageScanned(int segment, ScanResult scanResult) {
+        List<Integer> toResume;
+        synchronized (this) {
+            pagesInFlight--;
+            if (failure != null) {
+                return;
             }
-            /**
-             * Get the ScanResult from cache if the segment scan has finished.
-             */
-            else if (currentSegmentState == SegmentScanState.HasNextPage
-                    || currentSegmentState == SegmentScanState.SegmentScanCompleted) {
-                ScanResult scanResult = segmentScanResults.get(segment);
-                scanResults.add(scanResult);
+            bufferedPages.add(scanResult);
+            Map<String, AttributeValue> lastEvaluatedKey = scanResult.getLastEvaluatedKey();
+            lastEvaluatedKeys.set(segment, lastEvaluatedKey);
+            if (lastEvaluatedKey == null) {
+                completedSegments++;
+            } else {
+                pausedSegments.add(segment);
             }
-            else if (currentSegmentState == SegmentScanState.Waiting
-                    || currentSegmentState == SegmentScanState.Scanning){
-                throw new AmazonClientException("Should never see a 'Scanning' or 'Waiting' state when marshalling parallel scan results.");
+            notifyAll();
+            toResume = takeSegmentsToResume();
+        }
+        startSegments(toResume);
+    }
+
+    private void onSegmentFailed(int segment, Throwable t) {
+        synchronized (this) {
+            pagesInFlight--;
+            if (failure == null) {
+                failure = t;
+                failedSegment = segment;
             }
+            pausedSegments.clear();
+            notifyAll();
         }
-        return scanResults;
+        shutdownOwnExecutor();
     }
 
-    private ScanResult scanNextPageOfSegment(int currentSegment, boolean checkLastEvaluatedKey) {
-        ScanRequest segmentScanRequest = parallelScanRequests.get(currentSegment);
-        if (checkLastEvaluatedKey) {
-            ScanResult lastScanResult = segmentScanResults.get(currentSegment);
-            segmentScanRequest.setExclusiveStartKey(lastScanResult.getLastEvaluatedKey());
-        } else {
-            segmentScanRequest.setExclusiveStartKey(null);
+    private void shutdownOwnExecutor() {
+        if (ownExecutor != null) {
+            ownExecutor.shutdown();
         }
-        ScanResult scanResult = dynamo.scan(DynamoDBMapper.applyUserAgent(segmentScanRequest));
-
-        /**
-         * Cache the scan result in segmentScanResults.
-         * We should never try to get these scan results by calling get() on the cached future tasks.
-         */
-        segmentScanResults.set(currentSegment, scanResult);
-
-        /**
-         * Update the state and notify any waiting thread.
-         */
-        synchronized(segmentScanStates) {
-            if (null == scanResult.getLastEvaluatedKey())
-                segmentScanStates.set(currentSegment, SegmentScanState.SegmentScanCompleted);
-            else
-                segmentScanStates.set(currentSegment, SegmentScanState.HasNextPage);
-            segmentScanStates.notifyAll();
+    }
+
+    private ScanResult scanNextPageOfSegment(int segment) {
+        ScanRequest segmentScanRequest = parallelScanRequests.get(segment);
+        Map<String, AttributeValue> exclusiveStartKey;
+        synchronized (this) {
+            exclusiveStartKey = lastEvaluatedKeys.get(segment);
         }
-        return scanResult;
+        segmentScanRequest.setExclusiveStartKey(exclusiveStartKey);
+        return dynamo.scan(DynamoDBMapper.applyUserAgent(segmentScanRequest));
     }
 
-    private void initSegmentScanStates() {
-        for (int segment = 0; segment < totalSegments; segment++) {
-            segmentScanFutureTasks.add(null);
-            segmentScanResults.add(null);
-            segmentScanStates.add(SegmentScanState.Waiting);
+    private static AmazonClientException toClientException(int segment, Throwable t) {
+        if (t instanceof AmazonClientException) {
+            return (AmazonClientException) t;
         }
+        return new AmazonClientException("Internal error during the scan on segment #" + segment + ".", t);
     }
 
     /**
-     * Enumeration of the possible states of the scan on a segment.
+     * Scans the next page of a segment.
      */
-    private static enum SegmentScanState {
-        /** The scan on the segment is waiting for resources to execute and has not started yet. */
-        Waiting,
-
-        /** The scan is in process, and hasn't finished yet. */
-        Scanning,
+    private class SegmentScan implements Runnable {
 
-        /** The scan has already failed. */
-        Failed,
+        private final int segment;
 
-        /** The scan on the current page has finished, but there are more pages in the segment to be scanned. */
-        HasNextPage,
+        SegmentScan(int segment) {
+            this.segment = segment;
+        }
 
-        /** The scan on the whole segment has completed. */
-        SegmentScanCompleted,
+        @Override
+        public void run() {
+            ScanResult scanResult;
+            try {
+                scanResult = scanNextPageOfSegment(segment);
+            } catch (Throwable t) {
+                onSegmentFailed(segment, t);
+                return;
+            }
+            onPageScanned(segment, scanResult);
+        }
     }
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.dynamodbv2.document;
+
+import java.util.concurrent.TimeUnit;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.dynamodbv2.document.spec.QuerySpec;
+import com.amazonaws.services.dynamodbv2.document.spec.ScanSpec;
+
+/**
+ * A token bucket limiting the read capacity consumed by scans and queries to
+ * a given number of capacity units per second.
+ * <p>
+ * The capacity a page consumes is only known once the page has been
+ * returned, so each request is let through as long as the bucket is not in
+ * debt, and the capacity reported in the <code>ConsumedCapacity</code> of the
+ * page is then taken out of the bucket. A page larger than the bucket leaves
+ * it in debt, and later requests wait until the debt has been paid off.
+ * <p>
+ * A limiter is thread safe, and can be shared by any number of scans and
+ * queries, such as the segments of a parallel scan, to cap the total capacity
+ * they consume together.
+ *
+ * @see ScanSpec#withReadCapacityLimiter(ReadCapacityLimiter)
+ * @see QuerySpec#withReadCapacityLimiter(ReadCapacityLimiter)
+ */
+public class ReadCapacityLimiter {
+
+    private static final long ONE_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final double capacityUnitsPerSecond;
+
+    private final double maxBurst;
+
+    /** The capacity units in the bucket; negative when in debt. */
+    private double available;
+
+    private long lastRefillTime;
+
+    /**
+     * Constructs a limiter allowing the given read capacity units per second,
+     * and bursts of up to one second worth of capacity.
+     */
+    public ReadCapacityLimiter(double capacityUnitsPerSecond) {
+        this(capacityUnitsPerSecond, capacityUnitsPerSecond);
+    }
+
+    /**
+     * Constructs a limiter allowing the given read capacity units per second,
+     * and bursts of up to the given number of capacity units.
+     */
+    public ReadCapacityLimiter(double capacityUnitsPerSecond, double maxBurst) {
+        if (!(capacityUnitsPerSecond > 0)) {
+            throw new IllegalArgumentException(
+                    "capacityUnitsPerSecond must be positive");
+        }
+        if (!(maxBurst >= 0)) {
+            throw new IllegalArgumentException(
+                    "maxBurst must not be negative");
+        }
+        this.capacityUnitsPerSecond = capacityUnitsPerSecond;
+        this.maxBurst = maxBurst;
+        this.available = maxBurst;
+        this.lastRefillTime = System.nanoTime();
+    }
+
+    /**
+     * Returns the number of read capacity units allowed per second.
+     */
+    public double getCapacityUnitsPerSecond() {
+        return capacityUnitsPerSecond;
+    }
+
+    /**
+     * Returns the max number of read capacity units allowed in a burst.
+     */
+    public double getMaxBurst() {
+        return maxBurst;
+    }
+
+    /**
+     * Blocks until the bucket is out of debt, that is, until a request may be
+     * sent.
+     *
+     * @throws AmazonClientException
+     *             if the thread is interrupted while waiting
+     */
+    public void acquire() {
+        while (true) {
+            long waitNanos;
+            synchronized (this) {
+                refill();
+                if (available >= 0) {
+                    return;
+                }
+                waitNanos = (long) Math.ceil(-available / capacityUnitsPerSecond * ONE_SECOND);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Takes the given number of read capacity units, as consumed by a
+     * request, out of the bucket.
+     */
+    public synchronized void consume(double capacityUnits) {
+        refill();
+        available -= capacityUnits;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        available = Math.min(maxBurst,
+                available + capacityUnitsPerSecond * (now - lastRefillTime) / ONE_SECOND);
+        lastRefillTime = now;
+    }
+}
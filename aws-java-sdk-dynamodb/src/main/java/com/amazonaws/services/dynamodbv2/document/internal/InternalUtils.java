@@ -35,11 +35,14 @@ import com.amazonaws.services.dynamodbv2.document.IncompatibleTypeException;
 import com.amazonaws.services.dynamodbv2.document.Item;
 import com.amazonaws.services.dynamodbv2.document.KeyAttribute;
 import com.amazonaws.services.dynamodbv2.document.PrimaryKey;
+import com.amazonaws.services.dynamodbv2.document.ReadCapacityLimiter;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.amazonaws.services.dynamodbv2.model.AttributeValueUpdate;
 import com.amazonaws.services.dynamodbv2.model.ComparisonOperator;
 import com.amazonaws.services.dynamodbv2.model.Condition;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.ExpectedAttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
 import com.amazonaws.util.VersionInfoUtils;
 
 /**
@@ -423,6 +426,43 @@ public enum InternalUtils {
         }
     }
 
+    /**
+     * Returns the ReturnConsumedCapacity to send a scan or query request with:
+     * TOTAL if a read capacity limiter is given and the consumed capacity
+     * would otherwise not be returned, since the limiter relies on the
+     * capacity reported with each page; the given value otherwise.
+     */
+    static String returnConsumedCapacity(ReadCapacityLimiter limiter,
+            String returnConsumedCapacity) {
+        if (limiter != null && (returnConsumedCapacity == null
+                || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity))) {
+            return ReturnConsumedCapacity.TOTAL.toString();
+        }
+        return returnConsumedCapacity;
+    }
+
+    /**
+     * Waits until the given read capacity limiter, if any, lets the next page
+     * be requested.
+     */
+    static void acquireReadCapacity(ReadCapacityLimiter limiter) {
+        if (limiter != null) {
+            limiter.acquire();
+        }
+    }
+
+    /**
+     * Takes the capacity consumed by a page out of the given read capacity
+     * limiter, if any.
+     */
+    static void consumeReadCapacity(ReadCapacityLimiter limiter,
+            ConsumedCapacity consumedCapacity) {
+        if (limiter != null && consumedCapacity != null
+                && consumedCapacity.getCapacityUnits() != null) {
+            limiter.consume(consumedCapacity.getCapacityUnits());
+        }
+    }
+
     /**
      * Returns the low level representation of a collection of <code>Expected</code>.
      */
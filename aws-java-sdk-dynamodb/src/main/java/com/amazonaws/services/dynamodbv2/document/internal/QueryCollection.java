@@ -50,7 +50,12 @@ class QueryCollection extends ItemCollection<QueryOutcome>
         request.setLimit(InternalUtils.minimum(
                 spec.getMaxResultSize(),
                 spec.getMaxPageSize()));
+        request.setReturnConsumedCapacity(InternalUtils.returnConsumedCapacity(
+                spec.getReadCapacityLimiter(), request.getReturnConsumedCapacity()));
+        InternalUtils.acquireReadCapacity(spec.getReadCapacityLimiter());
         QueryResult result = client.query(request);
+        InternalUtils.consumeReadCapacity(spec.getReadCapacityLimiter(),
+                result.getConsumedCapacity());
         QueryOutcome outcome = new QueryOutcome(result);
         setLastLowLevelResult(outcome);
         return new QueryPage(client, spec, request, 0, outcome);
@@ -91,7 +91,12 @@ class QueryPage extends Page<Item, QueryOutcome> {
             request.setLimit(nextLimit);
         }
         request.setExclusiveStartKey(lastEvaluatedKey);
+        request.setReturnConsumedCapacity(InternalUtils.returnConsumedCapacity(
+                spec.getReadCapacityLimiter(), request.getReturnConsumedCapacity()));
+        InternalUtils.acquireReadCapacity(spec.getReadCapacityLimiter());
         QueryResult result = client.query(request);
+        InternalUtils.consumeReadCapacity(spec.getReadCapacityLimiter(),
+                result.getConsumedCapacity());
         final int nextIndex = index + this.size();
         return new QueryPage(client, spec, request, nextIndex,
                 new QueryOutcome(result));
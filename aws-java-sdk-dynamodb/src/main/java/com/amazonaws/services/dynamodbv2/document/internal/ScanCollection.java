@@ -50,7 +50,12 @@ class ScanCollection extends ItemCollection<ScanOutcome> {
                 spec.getMaxResultSize(),
                 spec.getMaxPageSize()));
 
+        request.setReturnConsumedCapacity(InternalUtils.returnConsumedCapacity(
+                spec.getReadCapacityLimiter(), request.getReturnConsumedCapacity()));
+        InternalUtils.acquireReadCapacity(spec.getReadCapacityLimiter());
         ScanResult result = client.scan(request);
+        InternalUtils.consumeReadCapacity(spec.getReadCapacityLimiter(),
+                result.getConsumedCapacity());
         ScanOutcome outcome = new ScanOutcome(result);
         setLastLowLevelResult(outcome);
         return new ScanPage(client, spec, request, 0, outcome);
@@ -93,7 +93,12 @@ class ScanPage extends Page<Item, ScanOutcome> {
         }
         request.setExclusiveStartKey(lastEvaluatedKey);
         // fire off request to the server side
+        request.setReturnConsumedCapacity(InternalUtils.returnConsumedCapacity(
+                spec.getReadCapacityLimiter(), request.getReturnConsumedCapacity()));
+        InternalUtils.acquireReadCapacity(spec.getReadCapacityLimiter());
         ScanResult result = client.scan(request);
+        InternalUtils.consumeReadCapacity(spec.getReadCapacityLimiter(),
+                result.getConsumedCapacity());
         final int nextIndex = index + this.size();
         return new ScanPage(client, spec, request, nextIndex, 
                 new ScanOutcome(result));
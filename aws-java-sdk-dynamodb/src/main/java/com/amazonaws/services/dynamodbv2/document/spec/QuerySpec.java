@@ -27,6 +27,7 @@ import com.amazonaws.event.ProgressListener;
 import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.services.dynamodbv2.document.KeyAttribute;
 import com.amazonaws.services.dynamodbv2.document.PrimaryKey;
+import com.amazonaws.services.dynamodbv2.document.ReadCapacityLimiter;
 import com.amazonaws.services.dynamodbv2.document.QueryFilter;
 import com.amazonaws.services.dynamodbv2.document.RangeKeyCondition;
 import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
@@ -48,6 +49,8 @@ public class QuerySpec extends AbstractCollectionSpec<QueryRequest> {
 
     private Collection<KeyAttribute> exclusiveStartKey;
 
+    private ReadCapacityLimiter readCapacityLimiter;
+
     public QuerySpec() {
         super(new QueryRequest());
     }
@@ -195,6 +198,23 @@ public class QuerySpec extends AbstractCollectionSpec<QueryRequest> {
         return this;
     }
 
+    public ReadCapacityLimiter getReadCapacityLimiter() {
+        return readCapacityLimiter;
+    }
+
+    /**
+     * Limits the read capacity consumed by this query, page by page, with the
+     * given limiter; or null for no limit. The limiter may be shared with
+     * other scans and queries. While a limiter is set, every page is
+     * requested with ReturnConsumedCapacity TOTAL unless INDEXES is
+     * requested, since the limiter relies on the capacity reported with each
+     * page.
+     */
+    public QuerySpec withReadCapacityLimiter(ReadCapacityLimiter readCapacityLimiter) {
+        this.readCapacityLimiter = readCapacityLimiter;
+        return this;
+    }
+
     public QuerySpec withScanIndexForward(boolean scanIndexForward) {
         getRequest().withScanIndexForward(scanIndexForward);
         return this;
@@ -27,6 +27,7 @@ import com.amazonaws.event.ProgressListener;
 import com.amazonaws.metrics.RequestMetricCollector;
 import com.amazonaws.services.dynamodbv2.document.KeyAttribute;
 import com.amazonaws.services.dynamodbv2.document.PrimaryKey;
+import com.amazonaws.services.dynamodbv2.document.ReadCapacityLimiter;
 import com.amazonaws.services.dynamodbv2.document.ScanFilter;
 import com.amazonaws.services.dynamodbv2.model.ConditionalOperator;
 import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
@@ -45,6 +46,8 @@ public class ScanSpec extends AbstractCollectionSpec<ScanRequest> {
 
     private Collection<KeyAttribute> exclusiveStartKey;
 
+    private ReadCapacityLimiter readCapacityLimiter;
+
     public ScanSpec() {
         super(new ScanRequest());
     }
@@ -158,6 +161,23 @@ public class ScanSpec extends AbstractCollectionSpec<ScanRequest> {
         return this;
     }
 
+    public ReadCapacityLimiter getReadCapacityLimiter() {
+        return readCapacityLimiter;
+    }
+
+    /**
+     * Limits the read capacity consumed by this scan, page by page, with the
+     * given limiter; or null for no limit. The limiter may be shared with
+     * other scans and queries. While a limiter is set, every page is
+     * requested with ReturnConsumedCapacity TOTAL unless INDEXES is
+     * requested, since the limiter relies on the capacity reported with each
+     * page.
+     */
+    public ScanSpec withReadCapacityLimiter(ReadCapacityLimiter readCapacityLimiter) {
+        this.readCapacityLimiter = readCapacityLimiter;
+        return this;
+    }
+
     /** Specifies the attributes to be returned. */
     // ALL_ATTRIBUTES | ALL_PROJECTED_ATTRIBUTES | SPECIFIC_ATTRIBUTES | COUNT
     public String getSelect() {
@@ -16,6 +16,7 @@ package com.amazonaws.services.glacier.transfer;
 
 import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
 import static com.amazonaws.event.SDKProgressPublisher.publishResponseBytesDiscarded;
+import static com.amazonaws.event.SDKProgressPublisher.publishResponseBytesTransferred;
 import static com.amazonaws.internal.ResettableInputStream.newResettableInputStream;
 import static com.amazonaws.util.IOUtils.closeQuietly;
 import static com.amazonaws.util.IOUtils.release;
@@ -28,8 +29,19 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.RandomAccessFile;
 import java.security.NoSuchAlgorithmException;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -87,6 +99,12 @@ public class ArchiveTransferManager {
     /** Default retry time when downloading in multiple chunks using range retrieval */
     private static final int DEFAULT_MAX_RETRIES = 3;
 
+    /** The default max number of parts or chunks transferred at once. */
+    public static final int DEFAULT_MAX_CONCURRENT_PART_TRANSFERS = 4;
+
+    /** The max number of asynchronous downloads whose job output is downloaded at once. */
+    private static final int MAX_CONCURRENT_JOB_OUTPUT_DOWNLOADS = 4;
+
     /** Glacier client used for making all requests. */
     private final AmazonGlacier glacier;
 
@@ -98,6 +116,13 @@ public class ArchiveTransferManager {
 
     private final AmazonSNSClient sns;
 
+    private volatile int maxConcurrentPartTransfers = DEFAULT_MAX_CONCURRENT_PART_TRANSFERS;
+
+    /** Watches the retrieval jobs of asynchronous downloads; or null if none yet. */
+    private JobStatusMonitor sharedJobStatusMonitor;
+    /** Downloads the job output of asynchronous downloads; or null if none yet. */
+    private ExecutorService jobOutputDownloadThreadPool;
+
     private static final Log log = LogFactory.getLog(ArchiveTransferManager.class);
 
     /**
@@ -197,6 +222,33 @@ public class ArchiveTransferManager {
         this.sns = sns;
     }
 
+    /**
+     * Returns the max number of parts of a multipart upload, or chunks of a
+     * download, that are transferred at once.
+     *
+     * @return The max number of concurrent part transfers.
+     */
+    public int getMaxConcurrentPartTransfers() {
+        return maxConcurrentPartTransfers;
+    }
+
+    /**
+     * Sets the max number of parts of a multipart upload, or chunks of a
+     * download, that are transferred at once, each over its own connection.
+     * Every transfer uses its own threads, which go away once it completes.
+     * Setting this to 1 transfers the parts one at a time.
+     *
+     * @param maxConcurrentPartTransfers
+     *            The max number of concurrent part transfers; must be
+     *            positive.
+     */
+    public void setMaxConcurrentPartTransfers(int maxConcurrentPartTransfers) {
+        if (maxConcurrentPartTransfers < 1) {
+            throw new IllegalArgumentException("maxConcurrentPartTransfers must be positive");
+        }
+        this.maxConcurrentPartTransfers = maxConcurrentPartTransfers;
+    }
+
     /**
      * Uploads the specified file to Amazon Glacier for archival storage in the
      * specified vault for the user's current account. For small archives, this
@@ -424,12 +476,16 @@ public class ArchiveTransferManager {
         String jobId = null;
         publishProgress(progressListener, ProgressEventType.TRANSFER_PREPARING_EVENT);
 
+        // Resume an interrupted download of the same archive, as long as the
+        // output of its retrieval job is still available
+        String resumableJobId = resumableJobId(accountId, vaultName, archiveId, file);
+        if (resumableJobId != null) {
+            downloadJobOutput(accountId, vaultName, resumableJobId, file, progressListener);
+            return;
+        }
+
         try {
-            if (credentialsProvider != null && clientConfiguration != null) {
-                jobStatusMonitor = new JobStatusMonitor(credentialsProvider, clientConfiguration);
-            } else {
-                jobStatusMonitor = new JobStatusMonitor(sqs, sns);
-            }
+            jobStatusMonitor = newJobStatusMonitor();
 
             JobParameters jobParameters = new JobParameters()
                 .withArchiveId(archiveId)
@@ -456,12 +512,248 @@ public class ArchiveTransferManager {
         downloadJobOutput(accountId, vaultName, jobId, file, progressListener);
     }
 
+    /**
+     * Returns the ID of the retrieval job of an interrupted download of the
+     * given archive into the given file, if the output of that job can still
+     * be downloaded; or null otherwise.
+     */
+    private String resumableJobId(String accountId, String vaultName,
+            String archiveId, File file) {
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.load(file);
+        if (checkpoint == null) {
+            return null;
+        }
+        try {
+            DescribeJobResult job = glacier.describeJob(new DescribeJobRequest(
+                    accountId, vaultName, checkpoint.getJobId()));
+            if (archiveId.equals(job.getArchiveId())
+                    && Boolean.TRUE.equals(job.getCompleted())
+                    && "Succeeded".equals(job.getStatusCode())) {
+                return checkpoint.getJobId();
+            }
+        } catch (AmazonClientException e) {
+            // The job has expired, was never from this vault, or could not be
+            // described; start over with a new job
+            log.debug("Unable to resume the download of archive " + archiveId
+                    + " from job " + checkpoint.getJobId(), e);
+        }
+        return null;
+    }
+
+    /**
+     * Starts downloading an archive from Amazon Glacier in the specified vault
+     * in the specified user's account into the specified file, and returns
+     * without waiting for the archive to be prepared. As in
+     * {@link #download(String, String, String, File, ProgressListener)}, an
+     * archive retrieval job is initiated first; its output is downloaded as
+     * soon as the notification of its completion arrives.
+     * <p>
+     * No thread is used while the job is in progress: the retrieval jobs of
+     * all asynchronous downloads are watched by a single
+     * {@link JobStatusMonitor}, and their outputs are downloaded by a small
+     * pool of threads shared by this transfer manager. Call
+     * {@link #shutdown()} once done, to delete the Amazon SQS queue and
+     * Amazon SNS topic of the monitor and release the threads.
+     *
+     * @param accountId
+     *            The ID for the account which owns the Glacier vault where the
+     *            archive is being downloaded from. To use the same account the
+     *            developer is using to make requests to AWS, the value
+     *            <code>"-"</code> can be used instead of the full account ID.
+     * @param vaultName
+     *            The name of the vault to download the archive from.
+     * @param archiveId
+     *            The unique ID of the archive to download.
+     * @param file
+     *            The file in which to save the archive.
+     * @param progressListener
+     *            The optional progress listener for receiving updates about the
+     *            download status.
+     *
+     * @return A future that completes once the archive has been saved in the
+     *         file, or fails with the cause of the failure of the download.
+     *
+     * @throws AmazonServiceException
+     *             If any problems were encountered while initiating the
+     *             retrieval job.
+     * @throws AmazonClientException
+     *             If any problems were encountered inside the AWS SDK for Java
+     *             client code in making requests or processing responses from
+     *             AWS.
+     */
+    public Future<Void> downloadAsync(final String accountId,
+            final String vaultName, final String archiveId, final File file,
+            final ProgressListener progressListener)
+            throws AmazonServiceException, AmazonClientException {
+        publishProgress(progressListener, ProgressEventType.TRANSFER_PREPARING_EVENT);
+        final JobOutputDownload download = new JobOutputDownload();
+
+        String resumableJobId = resumableJobId(accountId, vaultName, archiveId, file);
+        if (resumableJobId != null) {
+            download.start(accountId, vaultName, resumableJobId, file, progressListener);
+            return download;
+        }
+
+        try {
+            JobStatusMonitor jobStatusMonitor = getSharedJobStatusMonitor();
+            JobParameters jobParameters = new JobParameters()
+                .withArchiveId(archiveId)
+                .withType("archive-retrieval")
+                .withSNSTopic(jobStatusMonitor.getTopicArn());
+            InitiateJobResult archiveRetrievalResult =
+                glacier.initiateJob(new InitiateJobRequest()
+                    .withAccountId(accountId)
+                    .withVaultName(vaultName)
+                    .withJobParameters(jobParameters));
+
+            download.watchedBy(jobStatusMonitor.watchJob(archiveRetrievalResult.getJobId(),
+                    new JobStatusMonitor.JobStatusListener() {
+                public void jobSucceeded(String jobId) {
+                    download.start(accountId, vaultName, jobId, file, progressListener);
+                }
+
+                public void jobFailed(String jobId, AmazonClientException cause) {
+                    publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+                    download.fail(cause);
+                }
+            }));
+        } catch (Throwable t) {
+            publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw failure(t);
+        }
+        return download;
+    }
+
+    /**
+     * Stops watching the retrieval jobs of asynchronous downloads, failing
+     * those that have not completed yet, and deletes the Amazon SQS queue and
+     * Amazon SNS topic used to watch them. Downloads of job output already
+     * under way are left to complete. This transfer manager can still be used
+     * afterwards.
+     */
+    public void shutdown() {
+        JobStatusMonitor jobStatusMonitor;
+        ExecutorService threadPool;
+        synchronized (this) {
+            jobStatusMonitor = sharedJobStatusMonitor;
+            threadPool = jobOutputDownloadThreadPool;
+            sharedJobStatusMonitor = null;
+            jobOutputDownloadThreadPool = null;
+        }
+        if (jobStatusMonitor != null) {
+            jobStatusMonitor.shutdown();
+        }
+        if (threadPool != null) {
+            threadPool.shutdown();
+        }
+    }
+
+    private synchronized JobStatusMonitor getSharedJobStatusMonitor() {
+        if (sharedJobStatusMonitor == null) {
+            sharedJobStatusMonitor = newJobStatusMonitor();
+        }
+        return sharedJobStatusMonitor;
+    }
+
+    private JobStatusMonitor newJobStatusMonitor() {
+        if (credentialsProvider != null && clientConfiguration != null) {
+            return new JobStatusMonitor(credentialsProvider, clientConfiguration);
+        }
+        return new JobStatusMonitor(sqs, sns);
+    }
+
+    private synchronized ExecutorService getJobOutputDownloadThreadPool() {
+        if (jobOutputDownloadThreadPool == null) {
+            jobOutputDownloadThreadPool = newThreadPool(
+                    "glacier-download-worker-", MAX_CONCURRENT_JOB_OUTPUT_DOWNLOADS);
+        }
+        return jobOutputDownloadThreadPool;
+    }
+
+    /**
+     * The future of an asynchronous download, which runs once the job output
+     * is ready to download, or fails if it never will be. Cancelling it stops
+     * watching the retrieval job, or interrupts the download of its output.
+     */
+    private class JobOutputDownload extends SettableFuture<Void> implements Runnable {
+        private volatile String accountId;
+        private volatile String vaultName;
+        private volatile String jobId;
+        private volatile File file;
+        private volatile ProgressListener progressListener;
+        /** The future watching the retrieval job; or null if none. */
+        private volatile Future<String> jobWatch;
+        /** The thread downloading the job output; or null if none. */
+        private volatile Thread runner;
+
+        void watchedBy(Future<String> jobWatch) {
+            this.jobWatch = jobWatch;
+            if (isCancelled()) {
+                jobWatch.cancel(false);
+            }
+        }
+
+        void start(String accountId, String vaultName, String jobId,
+                File file, ProgressListener progressListener) {
+            this.accountId = accountId;
+            this.vaultName = vaultName;
+            this.jobId = jobId;
+            this.file = file;
+            this.progressListener = progressListener;
+            try {
+                getJobOutputDownloadThreadPool().execute(this);
+            } catch (RejectedExecutionException e) {
+                setException(e);
+            }
+        }
+
+        void fail(Throwable cause) {
+            setException(cause);
+        }
+
+        public void run() {
+            runner = Thread.currentThread();
+            try {
+                if (isDone())
+                    return;
+                downloadJobOutput(accountId, vaultName, jobId, file, progressListener);
+                set(null);
+            } catch (Throwable t) {
+                setException(t);
+            } finally {
+                runner = null;
+            }
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (!super.cancel(mayInterruptIfRunning))
+                return false;
+            Thread thread = runner;
+            if (mayInterruptIfRunning && thread != null) {
+                thread.interrupt();
+            }
+            return true;
+        }
+
+        @Override
+        protected void done() {
+            Future<String> watch = jobWatch;
+            if (isCancelled() && watch != null) {
+                watch.cancel(false);
+            }
+        }
+    }
+
     /**
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
-     * transient errors along the way.
+     * individual chunks of the data, several at a time, in order to handle any
+     * transient errors along the way. Completed chunks are recorded in a
+     * checkpoint file next to the specified file, so that downloading the
+     * same job output again after an interruption only fetches the remaining
+     * chunks.
      *
      * @param accountId
      *            The account ID containing the job output to download (or null
@@ -482,9 +774,12 @@ public class ArchiveTransferManager {
      * Downloads the job output for the specified job (which must be ready to
      * download already, and must be a complete archive retrieval, not a partial
      * range retrieval), into the specified file. This method will request
-     * individual chunks of the data, one at a time, in order to handle any
-     * transient errors along the way. You can also add an optional progress
-     * listener for receiving updates about the download status.
+     * individual chunks of the data, several at a time, in order to handle any
+     * transient errors along the way. Completed chunks are recorded in a
+     * checkpoint file next to the specified file, so that downloading the
+     * same job output again after an interruption only fetches the remaining
+     * chunks. You can also add an optional progress listener for receiving
+     * updates about the download status.
      *
      * @param accountId
      *            The account ID containing the job output to download (or null
@@ -500,19 +795,14 @@ public class ArchiveTransferManager {
      *            The optional progress listener for receiving updates about the
      *            download status.
      */
-    public void downloadJobOutput(String accountId, String vaultName,
-            String jobId, File file, ProgressListener progressListener) {
-        long archiveSize = 0;
+    public void downloadJobOutput(final String accountId, final String vaultName,
+            final String jobId, final File file, final ProgressListener progressListener) {
         long chunkSize = DEFAULT_DOWNLOAD_CHUNK_SIZE;
-        long currentPosition = 0;
-        long endPosition = 0;
-
-        RandomAccessFile output = null;
         String customizedChunkSize = null;
         customizedChunkSize = System.getProperty("com.amazonaws.services.glacier.transfer.downloadChunkSizeInMB");
 
         DescribeJobResult describeJobResult = glacier.describeJob(new DescribeJobRequest(accountId, vaultName, jobId));
-        archiveSize = describeJobResult.getArchiveSizeInBytes();
+        final long archiveSize = describeJobResult.getArchiveSizeInBytes();
 
         if (customizedChunkSize != null) {
             try {
@@ -524,36 +814,80 @@ public class ArchiveTransferManager {
             validateChunkSize(chunkSize);
         }
 
+        final DownloadCheckpoint checkpoint;
         try {
-            output = new RandomAccessFile(file, "rw");
-        } catch (FileNotFoundException e) {
+            checkpoint = openCheckpoint(jobId, file, archiveSize, chunkSize);
+        } catch (IOException e) {
             publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
             throw new AmazonClientException("Unable to open the output file " + file.getPath(), e);
         }
 
+        final int numChunks = (int) ((archiveSize + chunkSize - 1) / chunkSize);
+        final AtomicBoolean aborted = new AtomicBoolean();
+        ExecutorService threadPool = newThreadPool(numChunks);
         try {
             publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-            while (currentPosition < archiveSize) {
-                if (currentPosition + chunkSize > archiveSize) {
-                    endPosition = archiveSize - 1;
-                } else {
-                    endPosition = currentPosition + chunkSize - 1;
+            CompletionService<Void> chunks = new ExecutorCompletionService<Void>(threadPool);
+            int submitted = 0;
+            for (int i = 0; i < numChunks; i++) {
+                final long chunk = i;
+                final long currentPosition = chunk * chunkSize;
+                final long endPosition = Math.min(currentPosition + chunkSize, archiveSize) - 1;
+                if (checkpoint.isCompleted(chunk)) {
+                    publishResponseBytesTransferred(progressListener, endPosition - currentPosition + 1);
+                    continue;
                 }
-    
-                // Download the chunk
-                try {
-                    downloadOneChunk(accountId, vaultName, jobId, output,
-                            currentPosition, endPosition, progressListener);
-                } catch (Throwable t) {
-                    publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
-                    throw failure(t);
-                }
-                currentPosition += chunkSize;
+                chunks.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        if (aborted.get())
+                            return null;
+                        downloadOneChunk(accountId, vaultName, jobId, file,
+                                currentPosition, endPosition, progressListener);
+                        checkpoint.complete(chunk);
+                        return null;
+                    }
+                });
+                submitted++;
             }
+            waitForAll(chunks, submitted);
+            checkpoint.delete();
             publishProgress(progressListener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
+        } catch (Throwable t) {
+            // Let the chunks in flight complete, so that they are checkpointed
+            // and need not be downloaded again, but start no others
+            aborted.set(true);
+            threadPool.shutdown();
+            try {
+                threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            throw failure(t);
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the checkpoint of a previous download of the same job output
+     * into the given file, if there is one; or else sizes the file to the
+     * archive and starts a new checkpoint.
+     */
+    private DownloadCheckpoint openCheckpoint(String jobId, File file,
+            long archiveSize, long chunkSize) throws IOException {
+        DownloadCheckpoint checkpoint = DownloadCheckpoint.load(file);
+        if (checkpoint != null && checkpoint.matches(jobId, archiveSize, chunkSize)
+                && file.length() == archiveSize) {
+            return checkpoint;
+        }
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.setLength(archiveSize);
         } finally {
             closeQuietly(output, log);
         }
+        return DownloadCheckpoint.create(file, jobId, archiveSize, chunkSize);
     }
 
     private void validateChunkSize(long chunkSize) {
@@ -568,11 +902,12 @@ public class ArchiveTransferManager {
     }
 
     /**
-     * Download one chunk from Amazon Glacier. It will do the retry if any
-     * errors are encountered while streaming the data from Amazon Glacier.
+     * Download one chunk from Amazon Glacier, and write it at its position in
+     * the given file. It will do the retry if any errors are encountered while
+     * streaming the data from Amazon Glacier.
      */
     private void downloadOneChunk(String accountId, String vaultName,
-            String jobId, RandomAccessFile output, long currentPosition,
+            String jobId, File file, long currentPosition,
             long endPosition, ProgressListener progressListener) {
         final long chunkSize = endPosition - currentPosition + 1;
         TreeHashInputStream input = null;
@@ -589,7 +924,7 @@ public class ArchiveTransferManager {
                 GetJobOutputResult jobOutputResult = glacier.getJobOutput(req);
                 try {
                     input = new TreeHashInputStream(new BufferedInputStream(jobOutputResult.getBody()));
-                    appendToFile(output, input);
+                    writeToFile(file, currentPosition, input);
                 } catch (NoSuchAlgorithmException e) {
                     throw failure(e, "Unable to compute hash for data integrity");
                 } finally {
@@ -614,7 +949,7 @@ public class ArchiveTransferManager {
                 return;
                 // We will retry IO exception
             } catch (IOException ioe) {
-                if (retries < DEFAULT_MAX_RETRIES) {
+                if (retries < DEFAULT_MAX_RETRIES && !Thread.currentThread().isInterrupted()) {
                     retries++;
                     if (log.isDebugEnabled()) {
                         log.debug(retries
@@ -624,11 +959,6 @@ public class ArchiveTransferManager {
                                 + currentPosition + " endPosition="
                                 + endPosition);
                     }
-                    try {
-                        output.seek(currentPosition);
-                    } catch (IOException e) {
-                        throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), e);
-                    }
                 } else {
                     throw new AmazonClientException("Unable to download the archive: " + ioe.getMessage(), ioe);
                 }
@@ -637,19 +967,76 @@ public class ArchiveTransferManager {
     }
 
     /**
-     * Writes the data from the given input stream to the given output stream.
+     * Writes the data from the given input stream into the given file,
+     * starting at the given position, and forces it to disk so that it can
+     * be checkpointed.
      */
-    private void appendToFile(RandomAccessFile output, InputStream input)
+    private void writeToFile(File file, long position, InputStream input)
             throws IOException {
-        byte[] buffer = new byte[1024 * 1024];
-        int bytesRead = 0;
-        do {
-            bytesRead = input.read(buffer);
-            if (bytesRead < 0)
-                break;
-            output.write(buffer, 0, bytesRead);
-        } while (bytesRead > 0);
-        return;
+        RandomAccessFile output = new RandomAccessFile(file, "rw");
+        try {
+            output.seek(position);
+            byte[] buffer = new byte[1024 * 1024];
+            int bytesRead = 0;
+            do {
+                bytesRead = input.read(buffer);
+                if (bytesRead < 0)
+                    break;
+                output.write(buffer, 0, bytesRead);
+            } while (bytesRead > 0);
+            output.getChannel().force(false);
+        } finally {
+            output.close();
+        }
+    }
+
+    /**
+     * Returns a new thread pool for transferring the given number of parts or
+     * chunks, with up to {@link #getMaxConcurrentPartTransfers()} daemon
+     * threads.
+     */
+    private ExecutorService newThreadPool(int parts) {
+        return newThreadPool("glacier-transfer-worker-",
+                Math.max(1, Math.min(parts, maxConcurrentPartTransfers)));
+    }
+
+    /**
+     * Returns a new thread pool of the given number of daemon threads, named
+     * with the given prefix.
+     */
+    private static ExecutorService newThreadPool(final String threadNamePrefix, int threads) {
+        ThreadFactory threadFactory = new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger(0);
+
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setDaemon(true);
+                thread.setName(threadNamePrefix + threadCount.incrementAndGet());
+                return thread;
+            }
+        };
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    /**
+     * Waits for the given number of tasks submitted to the given completion
+     * service, and rethrows the failure of the first one to fail.
+     */
+    private static void waitForAll(CompletionService<?> tasks, int count)
+            throws Exception {
+        for (int i = 0; i < count; i++) {
+            try {
+                tasks.take().get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception)
+                    throw (Exception) cause;
+                throw (Error) cause;
+            }
+        }
     }
 
     /**
@@ -676,7 +1063,7 @@ public class ArchiveTransferManager {
 
     private UploadResult uploadInMultipleParts(final String accountId,
             final String vaultName, final String archiveDescription,
-            final File file, ProgressListener progressListener) {
+            final File file, final ProgressListener progressListener) {
         final long partSize = calculatePartSize(file.length());
         String partSizeString = Long.toString(partSize);
 
@@ -694,60 +1081,32 @@ public class ArchiveTransferManager {
             throw failure(t);
         }
         publishProgress(progressListener, ProgressEventType.TRANSFER_STARTED_EVENT);
-        final String fileNotFoundMsg = "Unable to find file '"
-                + file.getAbsolutePath() + "'";
+        final long fileLength = file.length();
+        final int numParts = (int) ((fileLength + partSize - 1) / partSize);
+        final byte[][] binaryChecksums = new byte[numParts][];
+        final String finalUploadId = uploadId;
+        ExecutorService threadPool = newThreadPool(numParts);
         try {
-            List<byte[]> binaryChecksums = new LinkedList<byte[]>();
+            // Each part is tree hashed by the thread uploading it
+            CompletionService<Void> parts = new ExecutorCompletionService<Void>(threadPool);
+            for (int i = 0; i < numParts; i++) {
+                final int partIndex = i;
+                final long currentPosition = partIndex * partSize;
+                final long length = Math.min(partSize, fileLength - currentPosition);
+                parts.submit(new Callable<Void>() {
+                    public Void call() throws Exception {
+                        binaryChecksums[partIndex] = uploadOnePart(accountId,
+                                vaultName, finalUploadId, file,
+                                currentPosition, length, progressListener);
+                        return null;
+                    }
+                });
+            }
+            waitForAll(parts, numParts);
 
-            long currentPosition = 0;
-            while (currentPosition < file.length()) {
-                long length = partSize;
-                if (currentPosition + partSize > file.length()) {
-                    length = file.length() - currentPosition;
-                }
+            String checksum = TreeHashGenerator.calculateTreeHash(Arrays.asList(binaryChecksums));
 
-                Exception failedException = null;
-                boolean completed = false;
-                int tries = 0;
-                    while (!completed && tries < 5){
-                        tries++;
-                        InputSubstream inputSubStream = null;
-                        try {
-                            inputSubStream = new InputSubstream(
-                                    newResettableInputStream(file, fileNotFoundMsg)
-                                        .disableClose(), // requires explicit release
-                                    currentPosition, length, true);
-                            String checksum = TreeHashGenerator.calculateTreeHash(inputSubStream);
-                            byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
-                            inputSubStream.reset();
-                            UploadMultipartPartRequest req = new UploadMultipartPartRequest()
-                                .withAccountId(accountId)
-                                .withChecksum(checksum)
-                                .withBody(inputSubStream)
-                                .withRange("bytes " + currentPosition + "-" + (currentPosition + length - 1) + "/*")
-                                .withUploadId(uploadId)
-                                .withVaultName(vaultName)
-                                .withGeneralProgressListener(progressListener)
-                                ;
-                            
-                            glacier.uploadMultipartPart(req);
-                            completed = true;
-                            binaryChecksums.add(binaryChecksum);
-                        } catch (Exception e){
-                            failedException = e;
-                        } finally {
-                            // We opened the file underneath; so need to release it
-                            release(inputSubStream, log);
-                        }
-                    } // end inner while
-                if (!completed && failedException!=null)
-                    throw failedException;
-                currentPosition += partSize;
-            } // end outer while
-
-            String checksum = TreeHashGenerator.calculateTreeHash(binaryChecksums);
-
-            String archiveSize = Long.toString(file.length());
+            String archiveSize = Long.toString(fileLength);
             CompleteMultipartUploadResult completeMultipartUploadResult =
                 glacier.completeMultipartUpload(new CompleteMultipartUploadRequest()
                     .withAccountId(accountId)
@@ -760,10 +1119,67 @@ public class ArchiveTransferManager {
             publishProgress(progressListener, ProgressEventType.TRANSFER_COMPLETED_EVENT);
             return new UploadResult(artifactId);
         } catch (Throwable t) {
+            // Stop the other parts, and wait for them to stop, before aborting
+            // the upload they belong to
+            threadPool.shutdownNow();
+            try {
+                threadPool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
             publishProgress(progressListener, ProgressEventType.TRANSFER_FAILED_EVENT);
             glacier.abortMultipartUpload(new AbortMultipartUploadRequest(accountId, vaultName, uploadId));
             throw failure(t, "Unable to finish the upload");
+        } finally {
+            threadPool.shutdownNow();
+        }
+    }
+
+    /**
+     * Uploads one part of a multipart upload, retrying it on its own if it
+     * fails, and returns its binary tree hash.
+     */
+    private byte[] uploadOnePart(String accountId, String vaultName,
+            String uploadId, File file, long currentPosition, long length,
+            ProgressListener progressListener) throws Exception {
+        final String fileNotFoundMsg = "Unable to find file '"
+                + file.getAbsolutePath() + "'";
+        Exception failedException = null;
+        int tries = 0;
+        while (tries < 5 && !Thread.currentThread().isInterrupted()) {
+            tries++;
+            InputSubstream inputSubStream = null;
+            try {
+                inputSubStream = new InputSubstream(
+                        newResettableInputStream(file, fileNotFoundMsg)
+                            .disableClose(), // requires explicit release
+                        currentPosition, length, true);
+                String checksum = TreeHashGenerator.calculateTreeHash(inputSubStream);
+                byte[] binaryChecksum = BinaryUtils.fromHex(checksum);
+                inputSubStream.reset();
+                UploadMultipartPartRequest req = new UploadMultipartPartRequest()
+                    .withAccountId(accountId)
+                    .withChecksum(checksum)
+                    .withBody(inputSubStream)
+                    .withRange("bytes " + currentPosition + "-" + (currentPosition + length - 1) + "/*")
+                    .withUploadId(uploadId)
+                    .withVaultName(vaultName)
+                    .withGeneralProgressListener(progressListener)
+                    ;
+
+                glacier.uploadMultipartPart(req);
+                return binaryChecksum;
+            } catch (Exception e){
+                failedException = e;
+            } finally {
+                // We opened the file underneath; so need to release it
+                release(inputSubStream, log);
+            }
+        }
+        if (failedException == null) {
+            failedException = new AmazonClientException("Interrupted before uploading part at " + currentPosition);
         }
+        throw failedException;
     }
 
     private UploadResult uploadInSinglePart(final String accountId,
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
+
+import com.amazonaws.util.IOUtils;
+import com.amazonaws.util.StringUtils;
+
+/**
+ * Records which chunks of a job output have been written to the destination
+ * file, in a checkpoint file next to it, so that an interrupted download can
+ * be resumed without fetching those chunks again.
+ * <p>
+ * The checkpoint file starts with the job ID, archive size and chunk size of
+ * the download, followed by one line per completed chunk. Lines are only ever
+ * appended, after the data of the chunk has been forced to disk, so a
+ * checkpoint never claims more than has been written. Only lines terminated by
+ * a newline are read, so that the torn last line of an interrupted append, such
+ * as {@code chunk=1} of {@code chunk=12}, is ignored.
+ */
+class DownloadCheckpoint {
+
+    /** Appended to the name of the destination file to name its checkpoint. */
+    static final String CHECKPOINT_FILE_SUFFIX = ".checkpoint";
+
+    private static final String JOB_ID = "jobId=";
+    private static final String ARCHIVE_SIZE = "archiveSize=";
+    private static final String CHUNK_SIZE = "chunkSize=";
+    private static final String CHUNK = "chunk=";
+
+    private final File checkpointFile;
+    private final String jobId;
+    private final long archiveSize;
+    private final long chunkSize;
+    private final Set<Long> completedChunks;
+
+    private DownloadCheckpoint(File checkpointFile, String jobId,
+            long archiveSize, long chunkSize, Set<Long> completedChunks) {
+        this.checkpointFile = checkpointFile;
+        this.jobId = jobId;
+        this.archiveSize = archiveSize;
+        this.chunkSize = chunkSize;
+        this.completedChunks = completedChunks;
+    }
+
+    /**
+     * Returns the checkpoint file of the given destination file.
+     */
+    static File checkpointFileOf(File file) {
+        return new File(file.getPath() + CHECKPOINT_FILE_SUFFIX);
+    }
+
+    /**
+     * Reads the checkpoint of the given destination file; or returns null if
+     * there is none, or it can't be read.
+     */
+    static DownloadCheckpoint load(File file) {
+        File checkpointFile = checkpointFileOf(file);
+        if (!checkpointFile.isFile()) {
+            return null;
+        }
+        String jobId = null;
+        long archiveSize = -1;
+        long chunkSize = -1;
+        Set<Long> completedChunks = new HashSet<Long>();
+        String content;
+        InputStream in = null;
+        try {
+            in = new FileInputStream(checkpointFile);
+            content = new String(IOUtils.toByteArray(in), StringUtils.UTF8);
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtils.closeQuietly(in, null);
+        }
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            String line = content.substring(start, end);
+            start = end + 1;
+            try {
+                if (line.startsWith(JOB_ID)) {
+                    jobId = line.substring(JOB_ID.length());
+                } else if (line.startsWith(ARCHIVE_SIZE)) {
+                    archiveSize = Long.parseLong(line.substring(ARCHIVE_SIZE.length()));
+                } else if (line.startsWith(CHUNK_SIZE)) {
+                    chunkSize = Long.parseLong(line.substring(CHUNK_SIZE.length()));
+                } else if (line.startsWith(CHUNK)) {
+                    completedChunks.add(Long.valueOf(line.substring(CHUNK.length())));
+                }
+            } catch (NumberFormatException e) {
+                // a torn line that later appends were written after
+            }
+        }
+        if (jobId == null || archiveSize < 0 || chunkSize <= 0) {
+            return null;
+        }
+        return new DownloadCheckpoint(checkpointFile, jobId, archiveSize,
+                chunkSize, completedChunks);
+    }
+
+    /**
+     * Starts a new checkpoint for the given destination file, replacing any
+     * previous one.
+     */
+    static DownloadCheckpoint create(File file, String jobId, long archiveSize,
+            long chunkSize) throws IOException {
+        File checkpointFile = checkpointFileOf(file);
+        DownloadCheckpoint checkpoint = new DownloadCheckpoint(checkpointFile,
+                jobId, archiveSize, chunkSize, new HashSet<Long>());
+        checkpoint.write(JOB_ID + jobId + "\n" + ARCHIVE_SIZE + archiveSize
+                + "\n" + CHUNK_SIZE + chunkSize + "\n", false);
+        return checkpoint;
+    }
+
+    /**
+     * Returns true if this checkpoint is of a download of the same job output
+     * in chunks of the same size.
+     */
+    boolean matches(String jobId, long archiveSize, long chunkSize) {
+        return this.jobId.equals(jobId) && this.archiveSize == archiveSize
+                && this.chunkSize == chunkSize;
+    }
+
+    String getJobId() {
+        return jobId;
+    }
+
+    synchronized boolean isCompleted(long chunk) {
+        return completedChunks.contains(chunk);
+    }
+
+    /**
+     * Records the given chunk as written. Must only be called once its data
+     * has been forced to disk.
+     */
+    synchronized void complete(long chunk) throws IOException {
+        write(CHUNK + chunk + "\n", true);
+        completedChunks.add(chunk);
+    }
+
+    /**
+     * Deletes the checkpoint file, once the download has completed.
+     */
+    void delete() {
+        checkpointFile.delete();
+    }
+
+    private void write(String lines, boolean append) throws IOException {
+        FileOutputStream out = new FileOutputStream(checkpointFile, append);
+        try {
+            out.write(lines.getBytes(StringUtils.UTF8));
+            out.getFD().sync();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -14,15 +14,22 @@
  */
 package com.amazonaws.services.glacier.transfer;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonClientException;
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonServiceException.ErrorType;
 import com.amazonaws.ClientConfiguration;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.auth.policy.Policy;
@@ -32,6 +39,7 @@ import com.amazonaws.auth.policy.Statement;
 import com.amazonaws.auth.policy.Statement.Effect;
 import com.amazonaws.auth.policy.actions.SQSActions;
 import com.amazonaws.auth.policy.conditions.ConditionFactory;
+import com.amazonaws.retry.RetryUtils;
 import com.amazonaws.services.glacier.model.StatusCode;
 import com.amazonaws.services.sns.AmazonSNSClient;
 import com.amazonaws.services.sns.model.CreateTopicRequest;
@@ -46,19 +54,51 @@ import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.SetQueueAttributesRequest;
 import com.amazonaws.util.BinaryUtils;
-import com.amazonaws.util.json.JSONException;
-import com.amazonaws.util.json.JSONObject;
+import com.amazonaws.util.json.Jackson;
+import com.fasterxml.jackson.databind.JsonNode;
 
 /**
- * Utility for monitoring the status of an Amazon Glacier job, through Amazon
+ * Utility for monitoring the status of Amazon Glacier jobs, through Amazon
  * SNS/SQS.
+ * <p>
+ * Any number of jobs can be watched at once. A single daemon thread long polls
+ * the queue while there are jobs being watched, and completes the future of
+ * each job, and notifies its listener, as soon as the notification of its
+ * completion arrives.
  */
 public class JobStatusMonitor {
+    /** How long each receive call waits for a notification to arrive. */
+    private static final int RECEIVE_WAIT_TIME_SECONDS = 20;
+    /** How long to wait before receiving again after a failed receive call. */
+    private static final long RECEIVE_RETRY_DELAY_MILLIS = 1000 * 5;
+    /** The number of receive calls in a row that may fail before watched jobs are failed. */
+    private static final int MAX_CONSECUTIVE_RECEIVE_FAILURES = 5;
+    /** The max number of unclaimed job statuses kept; the oldest are dropped first. */
+    private static final int MAX_UNCLAIMED_STATUSES = 1000;
+
     private AmazonSQSClient sqs;
     private AmazonSNSClient sns;
     private String queueUrl;
     private String topicArn;
 
+    /** The futures of the jobs being watched, by job ID. */
+    private final Map<String, List<JobFuture>> watchedJobs = new HashMap<String, List<JobFuture>>();
+    /**
+     * The status of completed jobs notified before they were watched, by job
+     * ID. Notifications of jobs that are never watched, such as those whose
+     * watch was cancelled, end up here too, so only the latest are kept.
+     */
+    @SuppressWarnings("serial")
+    private final Map<String, String> unclaimedStatuses = new LinkedHashMap<String, String>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_UNCLAIMED_STATUSES;
+        }
+    };
+    /** The thread receiving notifications; or null if none. */
+    private Thread poller;
+    private boolean shutdown;
+
     private static final Log log = LogFactory.getLog(JobStatusMonitor.class);
 
     public JobStatusMonitor(AWSCredentialsProvider credentialsProvider, ClientConfiguration clientConfiguration) {
@@ -88,7 +128,16 @@ public class JobStatusMonitor {
         return topicArn;
     }
 
+    /**
+     * Stops watching jobs, failing the futures of those still being watched,
+     * and deletes the queue and topic of this monitor.
+     */
     public void shutdown() {
+        synchronized (this) {
+            shutdown = true;
+        }
+        failWatchedJobs(new AmazonClientException("Job status monitor has been shut down"));
+
         try {
             sqs.deleteQueue(new DeleteQueueRequest(queueUrl));
         } catch (Exception e) {
@@ -102,49 +151,227 @@ public class JobStatusMonitor {
         }
     }
 
-    /** Poll the SQS queue to see if we've received a message about the job completion yet. **/
+    /**
+     * Waits until the specified job has completed.
+     *
+     * @param jobId
+     *            The ID of the job, which must have been initiated with the
+     *            topic of this monitor.
+     *
+     * @throws AmazonClientException
+     *             If the job failed, or the wait was interrupted.
+     */
     public void waitForJobToComplete(String jobId) {
-        while (true) {
-            List<Message> messages = sqs.receiveMessage(new ReceiveMessageRequest(queueUrl)).getMessages();
-            for (Message message : messages) {
-                String messageBody = message.getBody();
-                if (!messageBody.startsWith("{")) {
-                    messageBody = new String(BinaryUtils.fromBase64(messageBody));
-                }
-
-                try {
-                    JSONObject json = new JSONObject(messageBody);
-                    String jsonMessage = json.getString("Message").replace("\\\"", "\"");
+        Future<String> future = watchJob(jobId, null);
+        try {
+            future.get();
+        } catch (InterruptedException ie) {
+            future.cancel(false);
+            Thread.currentThread().interrupt();
+            throw new AmazonClientException("Archive download interrupted", ie);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AmazonClientException)
+                throw (AmazonClientException) cause;
+            throw new AmazonClientException(cause.getMessage(), cause);
+        }
+    }
 
-                    json = new JSONObject(jsonMessage);
-                    String messageJobId = json.getString("JobId");
-                    String messageStatus = json.getString("StatusMessage");
+    /**
+     * Starts watching the specified job, without waiting for it to complete.
+     *
+     * @param jobId
+     *            The ID of the job, which must have been initiated with the
+     *            topic of this monitor.
+     * @param listener
+     *            The optional listener to notify once the job has completed.
+     *            It is notified from the thread receiving notifications, so it
+     *            should hand off any long running work.
+     *
+     * @return A future that completes with the job ID once the job has
+     *         succeeded, or fails with an {@link AmazonClientException} if it
+     *         fails. Cancelling it stops watching the job.
+     *
+     * @throws AmazonClientException
+     *             If this monitor has been shut down.
+     */
+    public Future<String> watchJob(String jobId, JobStatusListener listener) {
+        JobFuture future = new JobFuture(jobId, listener);
+        String status;
+        synchronized (this) {
+            if (shutdown) {
+                throw new AmazonClientException("Job status monitor has been shut down");
+            }
+            status = unclaimedStatuses.remove(jobId);
+            if (status == null) {
+                List<JobFuture> futures = watchedJobs.get(jobId);
+                if (futures == null) {
+                    futures = new LinkedList<JobFuture>();
+                    watchedJobs.put(jobId, futures);
+                }
+                futures.add(future);
+                if (poller == null) {
+                    poller = new Thread(new Runnable() {
+                        public void run() {
+                            pollForJobStatus();
+                        }
+                    }, "glacier-job-status-monitor");
+                    poller.setDaemon(true);
+                    poller.start();
+                }
+            }
+        }
+        if (status != null) {
+            complete(future, status);
+        }
+        return future;
+    }
 
-                    // Don't process this message if it wasn't the job we were looking for
-                    if (!jobId.equals(messageJobId)) continue;
+    /**
+     * Fails the futures of all the jobs being watched, which are then no
+     * longer watched.
+     */
+    private void failWatchedJobs(AmazonClientException cause) {
+        List<JobFuture> abandoned = new ArrayList<JobFuture>();
+        synchronized (this) {
+            for (List<JobFuture> futures : watchedJobs.values()) {
+                abandoned.addAll(futures);
+            }
+            watchedJobs.clear();
+        }
+        for (JobFuture future : abandoned) {
+            future.fail(cause);
+        }
+    }
 
+    /**
+     * Long polls the SQS queue for job completion messages, for as long as
+     * there are jobs being watched. Failed receive calls are retried, unless
+     * the error is not retryable or too many fail in a row; the watched jobs
+     * then fail with that error.
+     */
+    private void pollForJobStatus() {
+        try {
+            int failures = 0;
+            while (true) {
+                synchronized (this) {
+                    if (shutdown || watchedJobs.isEmpty()) {
+                        poller = null;
+                        return;
+                    }
+                }
+                List<Message> messages;
+                try {
+                    messages = sqs.receiveMessage(new ReceiveMessageRequest(queueUrl)
+                            .withWaitTimeSeconds(RECEIVE_WAIT_TIME_SECONDS)
+                            .withMaxNumberOfMessages(10)).getMessages();
+                } catch (RuntimeException e) {
+                    synchronized (this) {
+                        if (shutdown) continue;
+                    }
+                    if (++failures >= MAX_CONSECUTIVE_RECEIVE_FAILURES || !isRetryable(e)) {
+                        failures = 0;
+                        failWatchedJobs(e instanceof AmazonClientException
+                                ? (AmazonClientException) e
+                                : new AmazonClientException("Unable to receive job status messages: "
+                                        + e.getMessage(), e));
+                        continue;
+                    }
+                    log.warn("Unable to receive job status messages from queue: " + queueUrl, e);
                     try {
-                        if (StatusCode.Succeeded.toString().equals(messageStatus)) return;
-                        if (StatusCode.Failed.toString().equals(messageStatus)) {
-                            throw new AmazonClientException("Archive retrieval failed");
-                        }
-                    } finally {
-                        deleteMessage(message);
+                        Thread.sleep(RECEIVE_RETRY_DELAY_MILLIS);
+                    } catch (InterruptedException ie) {
+                        // Keep polling; this thread stops only once no jobs are
+                        // watched, or the monitor has been shut down
+                        log.debug("Interrupted while waiting to receive job status messages again", ie);
                     }
-                } catch (JSONException e) {
-                    throw new AmazonClientException("Unable to parse status message: " + messageBody, e);
+                    continue;
+                }
+                failures = 0;
+                for (Message message : messages) {
+                    processMessage(message);
+                }
+            }
+        } finally {
+            // Let the next watch start a new poller if this one died
+            synchronized (this) {
+                if (poller == Thread.currentThread()) {
+                    poller = null;
                 }
             }
+        }
+    }
 
-            sleep(1000 * 30);
+    /**
+     * Returns whether receiving again may succeed after the given error: not
+     * for client errors of the service other than throttling, such as a
+     * deleted queue, denied access or invalid credentials.
+     */
+    private static boolean isRetryable(RuntimeException e) {
+        if (!(e instanceof AmazonClientException)) {
+            return false;
         }
+        if (e instanceof AmazonServiceException) {
+            AmazonServiceException ase = (AmazonServiceException) e;
+            return ase.getErrorType() != ErrorType.Client
+                    || RetryUtils.isThrottlingException(ase);
+        }
+        return true;
     }
 
-    private void sleep(long milliseconds) {
+    private void processMessage(Message message) {
+        String messageBody = message.getBody();
+        String messageJobId;
+        String messageStatus;
         try {
-            Thread.sleep(milliseconds);
-        } catch (InterruptedException ie) {
-            throw new AmazonClientException("Archive download interrupted", ie);
+            if (!messageBody.startsWith("{")) {
+                messageBody = new String(BinaryUtils.fromBase64(messageBody));
+            }
+            JsonNode json = Jackson.jsonNodeOf(messageBody);
+            String jsonMessage = json.get("Message").asText().replace("\\\"", "\"");
+
+            json = Jackson.jsonNodeOf(jsonMessage);
+            messageJobId = json.get("JobId").asText();
+            messageStatus = json.get("StatusMessage").asText();
+        } catch (RuntimeException e) {
+            log.warn("Unable to parse status message: " + messageBody, e);
+            deleteMessage(message);
+            return;
+        }
+
+        List<JobFuture> futures = null;
+        if (StatusCode.Succeeded.toString().equals(messageStatus)
+                || StatusCode.Failed.toString().equals(messageStatus)) {
+            synchronized (this) {
+                futures = watchedJobs.remove(messageJobId);
+                if (futures == null) {
+                    unclaimedStatuses.put(messageJobId, messageStatus);
+                }
+            }
+        }
+        deleteMessage(message);
+        if (futures != null) {
+            for (JobFuture future : futures) {
+                complete(future, messageStatus);
+            }
+        }
+    }
+
+    private void complete(JobFuture future, String status) {
+        if (StatusCode.Succeeded.toString().equals(status)) {
+            future.succeed();
+        } else {
+            future.fail(new AmazonClientException("Archive retrieval failed"));
+        }
+    }
+
+    /**
+     * Stops watching the job of the given future, if it is still watched.
+     */
+    private synchronized void unwatch(JobFuture future) {
+        List<JobFuture> futures = watchedJobs.get(future.jobId);
+        if (futures != null && futures.remove(future) && futures.isEmpty()) {
+            watchedJobs.remove(future.jobId);
         }
     }
 
@@ -175,6 +402,71 @@ public class JobStatusMonitor {
         sns.subscribe(new SubscribeRequest(topicArn, "sqs", queueARN));
     }
 
+    /**
+     * Listener notified once a watched job has completed.
+     *
+     * @see JobStatusMonitor#watchJob(String, JobStatusListener)
+     */
+    public interface JobStatusListener {
+        /**
+         * Called once the specified job has succeeded.
+         */
+        void jobSucceeded(String jobId);
+
+        /**
+         * Called once the specified job has failed, or can no longer be
+         * watched.
+         */
+        void jobFailed(String jobId, AmazonClientException cause);
+    }
+
+    /**
+     * The future of a watched job, completed by the thread receiving
+     * notifications.
+     */
+    private class JobFuture extends SettableFuture<String> {
+        private final String jobId;
+        private final JobStatusListener listener;
+
+        JobFuture(String jobId, JobStatusListener listener) {
+            this.jobId = jobId;
+            this.listener = listener;
+        }
+
+        void succeed() {
+            set(jobId);
+        }
+
+        void fail(AmazonClientException cause) {
+            setException(cause);
+        }
+
+        @Override
+        protected void done() {
+            if (isCancelled()) {
+                unwatch(this);
+                return;
+            }
+            if (listener == null) {
+                return;
+            }
+            try {
+                try {
+                    get();
+                } catch (ExecutionException e) {
+                    listener.jobFailed(jobId, (AmazonClientException) e.getCause());
+                    return;
+                }
+                listener.jobSucceeded(jobId);
+            } catch (InterruptedException e) {
+                // not possible once done
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("Job status listener failed for job: " + jobId, e);
+            }
+        }
+    }
+
     private Map<String, String> newAttributes(String... keyValuePairs) {
         if (keyValuePairs.length % 2 != 0)
             throw new IllegalArgumentException("Incorrect number of arguments passed.  Input must be specified as: key, value, key, value, ...");
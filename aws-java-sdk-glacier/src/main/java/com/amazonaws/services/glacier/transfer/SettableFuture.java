@@ -0,0 +1,130 @@
+/*
+ * Copyright 2015 Amazon Technologies, Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at:
+ *
+ *    http://aws.amazon.com/apache2.0
+ *
+ * This file is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES
+ * OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.amazonaws.services.glacier.transfer;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * A future completed by whoever holds it, rather than by running a task.
+ * Only the first of {@link #set}, {@link #setException} and {@link #cancel}
+ * takes effect; {@link #done()} is then called once, on the completing thread.
+ *
+ * @param <T>
+ *            the type of the result
+ */
+class SettableFuture<T> implements Future<T> {
+    private T result;
+    private Throwable failure;
+    private boolean done;
+    private boolean cancelled;
+
+    /**
+     * Completes this future with the given result.
+     *
+     * @return true if this future was completed by the call
+     */
+    boolean set(T result) {
+        synchronized (this) {
+            if (done) return false;
+            this.result = result;
+            done = true;
+            notifyAll();
+        }
+        done();
+        return true;
+    }
+
+    /**
+     * Completes this future with the given failure.
+     *
+     * @return true if this future was completed by the call
+     */
+    boolean setException(Throwable failure) {
+        synchronized (this) {
+            if (done) return false;
+            this.failure = failure;
+            done = true;
+            notifyAll();
+        }
+        done();
+        return true;
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        synchronized (this) {
+            if (done) return false;
+            cancelled = true;
+            done = true;
+            notifyAll();
+        }
+        done();
+        return true;
+    }
+
+    /**
+     * Called once this future has completed, whichever way. Does nothing by
+     * default.
+     */
+    protected void done() {
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return report();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        long toWait;
+        while (!done) {
+            toWait = deadline - System.nanoTime();
+            if (toWait <= 0) {
+                throw new TimeoutException("Timed out waiting for results after " + timeout + " " + unit);
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, toWait);
+        }
+        return report();
+    }
+
+    private T report() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+        return result;
+    }
+}
@@ -40,6 +40,7 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
     private static final String CHUNK_SIGNATURE_HEADER = ";chunk-signature=";
     private static final int SIGNATURE_LENGTH = 64;
     private static final byte[] FINAL_CHUNK = new byte[0];
+    private static final byte[] CLRF_BYTES = CLRF.getBytes(UTF8);
 
     private InputStream is = null;
     private final int maxBufferSize;
@@ -49,6 +50,15 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
     private final String headerSignature;
     private String priorChunkSignature;
     private final AWS4Signer aws4Signer;
+    /** Hex encoded hash of the (empty) non-signature chunk extension. */
+    private final String nonsigExtensionHash;
+
+    /**
+     * Buffers reused for every chunk, so that encoding a stream of any length
+     * takes a bounded amount of memory.
+     */
+    private final byte[] chunkData = new byte[DEFAULT_CHUNK_SIZE];
+    private final byte[] signedChunk = new byte[(int) calculateSignedChunkLength(DEFAULT_CHUNK_SIZE)];
 
     /** Iterator on the current chunk that has been signed */
     private ChunkContentIterator currentChunkIterator;
@@ -120,6 +130,7 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
         this.headerSignature = headerSignature;
         this.priorChunkSignature = headerSignature;
         this.aws4Signer = aws4Signer;
+        this.nonsigExtensionHash = BinaryUtils.toHex(aws4Signer.hash(""));
     }
 
     @Override
@@ -275,13 +286,13 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
      * 		Returns true if next chunk is the last empty chunk.
      */
     private boolean setUpNextChunk() throws IOException {
-        byte[] chunkData = new byte[DEFAULT_CHUNK_SIZE];
         int chunkSizeInBytes = 0;
         while (chunkSizeInBytes < DEFAULT_CHUNK_SIZE) {
             /** Read from the buffer of the decoded stream */
             if (null != decodedStreamBuffer
                     && decodedStreamBuffer.hasNext()) {
-                chunkData[chunkSizeInBytes++] = decodedStreamBuffer.next();
+                chunkSizeInBytes += decodedStreamBuffer.next(chunkData,
+                        chunkSizeInBytes, DEFAULT_CHUNK_SIZE - chunkSizeInBytes);
             }
             /** Read from the wrapped stream */
             else {
@@ -297,23 +308,28 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
             }
         }
         if (chunkSizeInBytes == 0){
-            byte[] signedFinalChunk = createSignedChunk(FINAL_CHUNK);
-            currentChunkIterator = new ChunkContentIterator(signedFinalChunk);
+            int signedChunkLength = createSignedChunk(FINAL_CHUNK);
+            currentChunkIterator = new ChunkContentIterator(signedChunk, signedChunkLength);
             return true;
         }
         else {
+            byte[] data = chunkData;
             if (chunkSizeInBytes < chunkData.length) {
-                byte[] temp = new byte[chunkSizeInBytes];
-                System.arraycopy(chunkData, 0, temp, 0, chunkSizeInBytes);
-                chunkData = temp;
+                // Only the last chunk of the stream is a partial one
+                data = new byte[chunkSizeInBytes];
+                System.arraycopy(chunkData, 0, data, 0, chunkSizeInBytes);
             }
-            byte[] signedChunkContent = createSignedChunk(chunkData);
-            currentChunkIterator = new ChunkContentIterator(signedChunkContent);
+            int signedChunkLength = createSignedChunk(data);
+            currentChunkIterator = new ChunkContentIterator(signedChunk, signedChunkLength);
             return false;
         }
     }
 
-    private byte[] createSignedChunk(byte[] chunkData) {
+    /**
+     * Writes the signed chunk for the given data into the reused signed chunk
+     * buffer, and returns its length.
+     */
+    private int createSignedChunk(byte[] chunkData) {
         StringBuilder chunkHeader = new StringBuilder();
         // chunk-size
         chunkHeader.append(Integer.toHexString(chunkData.length));
@@ -325,7 +341,7 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
                 dateTime + "\n" +
                 keyPath + "\n" +
                 priorChunkSignature + "\n" +
-                BinaryUtils.toHex(aws4Signer.hash(nonsigExtension)) + "\n" +
+                nonsigExtensionHash + "\n" +
                 BinaryUtils.toHex(aws4Signer.hash(chunkData));
         String chunkSignature = BinaryUtils.toHex(aws4Signer.sign(chunkStringToSign, kSigning, SigningAlgorithm.HmacSHA256));
         priorChunkSignature = chunkSignature;
@@ -334,14 +350,12 @@ public final class AwsChunkedEncodingInputStream extends SdkInputStream {
 
         try {
             byte[] header = chunkHeader.toString().getBytes(UTF8);
-            byte[] trailer = CLRF.getBytes(UTF8);
-            byte[] signedChunk = new byte[header.length + chunkData.length + trailer.length];
             System.arraycopy(header, 0, signedChunk, 0, header.length);
             System.arraycopy(chunkData, 0, signedChunk, header.length, chunkData.length);
-            System.arraycopy(trailer, 0,
+            System.arraycopy(CLRF_BYTES, 0,
                     signedChunk, header.length + chunkData.length,
-                    trailer.length);
-            return signedChunk;
+                    CLRF_BYTES.length);
+            return header.length + chunkData.length + CLRF_BYTES.length;
         } catch (Exception e) {
             throw new AmazonClientException("Unable to sign the chunked data. " + e.getMessage(), e);
         }
@@ -71,6 +71,17 @@ class DecodedStreamBuffer {
         return bufferArray[pos++];
     }
 
+    /**
+     * Reads up to <code>length</code> buffered bytes into the given array, and
+     * returns the number of bytes read.
+     */
+    public int next(byte[] array, int offset, int length) {
+        int count = Math.min(length, byteBuffered - pos);
+        System.arraycopy(bufferArray, pos, array, offset, count);
+        pos += count;
+        return count;
+    }
+
     public void startReadBuffer() {
         if (bufferSizeOverflow) {
             throw new AmazonClientException(
@@ -87,7 +87,6 @@ import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.http.ExecutionContext;
 import com.amazonaws.http.HttpMethodName;
 import com.amazonaws.http.HttpResponseHandler;
-import com.amazonaws.internal.ResettableInputStream;
 import com.amazonaws.internal.StaticCredentialsProvider;
 import com.amazonaws.metrics.AwsSdkMetrics;
 import com.amazonaws.metrics.RequestMetricCollector;
@@ -97,6 +96,7 @@ import com.amazonaws.services.s3.internal.BucketNameUtils;
 import com.amazonaws.services.s3.internal.Constants;
 import com.amazonaws.services.s3.internal.DeleteObjectsResponse;
 import com.amazonaws.services.s3.internal.DigestValidationInputStream;
+import com.amazonaws.services.s3.internal.FilePartInputStream;
 import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.s3.internal.MD5DigestCalculatingInputStream;
 import com.amazonaws.services.s3.internal.Mimetypes;
@@ -2776,18 +2776,21 @@ public class AmazonS3Client extends AmazonWebServiceClient implements AmazonS3 {
                     awsreq.getRequestClientOptions()
                         .setReadLimit(bufsize.intValue());
                 }
+                isCurr = new InputSubstream(isCurr,
+                        uploadPartRequest.getFileOffset(),
+                        partSize,
+                        uploadPartRequest.isLastPart());
             } else {
                 try {
-                    isCurr = new ResettableInputStream(fileOrig);
+                    // Read the part in place, so that retries neither re-open
+                    // the file nor skip to the part again
+                    isCurr = new FilePartInputStream(fileOrig,
+                            uploadPartRequest.getFileOffset(), partSize);
                 } catch(IOException e) {
                     throw new IllegalArgumentException("Failed to open file "
                             + fileOrig, e);
                 }
             }
-            isCurr = new InputSubstream(isCurr,
-                    uploadPartRequest.getFileOffset(),
-                    partSize,
-                    uploadPartRequest.isLastPart());
             MD5DigestCalculatingInputStream md5DigestStream = null;
             if (uploadPartRequest.getMd5Digest() == null
              && !skipContentMd5IntegrityCheck(uploadPartRequest)) {
@@ -0,0 +1,158 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import org.apache.http.annotation.NotThreadSafe;
+
+import com.amazonaws.internal.SdkInputStream;
+
+/**
+ * A mark-and-resettable input stream over a part of a file.
+ * <p>
+ * The part is read with positional {@link FileChannel} reads straight into
+ * the caller's buffer, so there is no intermediate buffering, the start of the
+ * part is never reached by skipping, and mark and reset merely record and
+ * restore a position in the file. A part can therefore be re-sent on retry
+ * any number of times without re-opening or re-reading the file up to the
+ * part.
+ * <p>
+ * This replaces an {@link InputSubstream} over a
+ * {@link com.amazonaws.internal.ResettableInputStream} for uploading parts of
+ * a file.
+ */
+@NotThreadSafe
+public class FilePartInputStream extends SdkInputStream {
+    private final File file;
+    private final FileInputStream fis;
+    private final FileChannel fileChannel;
+    /** Position in the file just past the end of the part. */
+    private final long endPosition;
+    /** Position in the file of the next byte to read. */
+    private long position;
+    /** Marked position in the file; defaults to the start of the part. */
+    private long markPosition;
+
+    /**
+     * @param file
+     *            the file to read a part of; opened upon construction.
+     * @param offset
+     *            the offset, in bytes, into the file at which the part starts.
+     * @param length
+     *            the length, in bytes, of the part.
+     */
+    public FilePartInputStream(File file, long offset, long length)
+            throws IOException {
+        if (offset < 0 || length < 0)
+            throw new IllegalArgumentException("offset: " + offset
+                    + ", length: " + length);
+        this.file = file;
+        this.fis = new FileInputStream(file);
+        this.fileChannel = fis.getChannel();
+        this.position = offset;
+        this.markPosition = offset;
+        this.endPosition = offset + length;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    /**
+     * Marks the current position in the part. The read limit is ignored since
+     * no bytes need to be buffered to reset.
+     */
+    @Override
+    public void mark(int readlimit) {
+        abortIfNeeded();
+        markPosition = position;
+    }
+
+    /**
+     * Repositions this stream at the last marked position, or at the start of
+     * the part if the stream has never been marked.
+     */
+    @Override
+    public void reset() throws IOException {
+        abortIfNeeded();
+        position = markPosition;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        int bytesRead = read(b, 0, 1);
+        return bytesRead == -1 ? -1 : (b[0] & 0xFF);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        abortIfNeeded();
+        if (off < 0 || len < 0 || len > b.length - off)
+            throw new IndexOutOfBoundsException();
+        long bytesRemaining = endPosition - position;
+        if (bytesRemaining <= 0)
+            return -1;
+        if (len == 0)
+            return 0;
+        len = (int) Math.min(len, bytesRemaining);
+        int bytesRead = fileChannel.read(ByteBuffer.wrap(b, off, len), position);
+        if (bytesRead > 0)
+            position += bytesRead;
+        return bytesRead;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        abortIfNeeded();
+        if (n <= 0)
+            return 0;
+        long skipped = Math.min(n, Math.max(0, endPosition - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        abortIfNeeded();
+        return (int) Math.min(Math.max(0, endPosition - position),
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        fis.close();
+        abortIfNeeded();
+    }
+
+    /**
+     * Returns the underlying file.
+     */
+    public File getFile() {
+        return file;
+    }
+
+    @Override
+    protected InputStream getWrappedInputStream() {
+        return null;
+    }
+}
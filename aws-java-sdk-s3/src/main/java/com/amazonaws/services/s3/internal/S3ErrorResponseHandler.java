@@ -53,9 +53,20 @@ public class S3ErrorResponseHandler implements
     private static final Log log = LogFactory
             .getLog(S3ErrorResponseHandler.class);
 
-    /** Shared factory for creating XML event readers */
-    private static final XMLInputFactory xmlInputFactory = XMLInputFactory
-            .newInstance();
+    /**
+     * Per-thread factories for creating XML stream readers.
+     * XMLInputFactory is not thread safe, so each thread gets its own
+     * instance rather than contending on a shared one.
+     * Reference :
+     * http://itdoc.hitachi.co.jp/manuals/3020/30203Y2210e/EY220140.HTM
+     */
+    private static final ThreadLocal<XMLInputFactory> xmlInputFactory =
+            new ThreadLocal<XMLInputFactory>() {
+                @Override
+                protected XMLInputFactory initialValue() {
+                    return XMLInputFactory.newInstance();
+                }
+            };
 
     private static enum S3ErrorTags {
         Error, Message, Code, RequestId, HostId
@@ -86,17 +97,9 @@ public class S3ErrorResponseHandler implements
             return createExceptionFromHeaders(httpResponse, null);
         }
 
-        /*
-         * XMLInputFactory is not thread safe and hence it is synchronized.
-         * Reference :
-         * http://itdoc.hitachi.co.jp/manuals/3020/30203Y2210e/EY220140.HTM
-         */
-        XMLStreamReader reader;
-        synchronized (xmlInputFactory) {
-            reader = xmlInputFactory
-                    .createXMLStreamReader(new ByteArrayInputStream(content
-                            .getBytes(UTF8)));
-        }
+        XMLStreamReader reader = xmlInputFactory.get()
+                .createXMLStreamReader(new ByteArrayInputStream(content
+                        .getBytes(UTF8)));
 
         try {
             /*
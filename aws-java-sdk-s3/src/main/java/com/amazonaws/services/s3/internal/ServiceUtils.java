@@ -25,6 +25,7 @@ import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.net.MalformedURLException;
 import java.net.SocketException;
 import java.net.URL;
@@ -227,6 +228,45 @@ public class ServiceUtils {
         return result.toString();
     }
 
+    /**
+     * Creates the specified file, and any missing parent directories, with the
+     * given length so that parts of an object can be written to it at their
+     * positions.
+     *
+     * @param destinationFile
+     *            The file to create.
+     * @param length
+     *            The length of the file.
+     * @param truncate
+     *            Whether to discard any existing content of the file.
+     */
+    public static void createFileOfLength(File destinationFile, long length,
+            boolean truncate) {
+        File parentDirectory = destinationFile.getParentFile();
+        if ( parentDirectory != null && !parentDirectory.exists() ) {
+            if (!(parentDirectory.mkdirs())) {
+                throw new AmazonClientException(
+                        "Unable to create directory in the path"
+                                + parentDirectory.getAbsolutePath());
+            }
+        }
+
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(destinationFile, "rw");
+            if (truncate) {
+                randomAccessFile.setLength(0);
+            }
+            randomAccessFile.setLength(length);
+        } catch (IOException e) {
+            throw new AmazonClientException(
+                    "Unable to create file " + destinationFile.getAbsolutePath()
+                            + ": " + e.getMessage(), e);
+        } finally {
+            closeQuietly(randomAccessFile, log);
+        }
+    }
+
     /**
      * Downloads an S3Object, as returned from
      * {@link AmazonS3Client#getObject(com.amazonaws.services.s3.model.GetObjectRequest)},
@@ -26,6 +26,7 @@ import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
 import javax.crypto.NullCipher;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * Functions like a {@link Cipher} but provides only a subset of all the
@@ -297,6 +298,47 @@ class CipherLite {
         return cipher.update(input, inputOffset, inputLen);
     }
 
+    /**
+     * Continues a multiple-part encryption or decryption operation (depending
+     * on how the underlying cipher was initialized), processing another data
+     * part into the given output buffer rather than a new one.
+     * 
+     * <p>
+     * The first <code>inputLen</code> bytes in the <code>input</code> buffer,
+     * starting at <code>inputOffset</code> inclusive, are processed, and the
+     * result is stored in the <code>output</code> buffer, starting at
+     * <code>outputOffset</code> inclusive.
+     * 
+     * <p>
+     * If the <code>output</code> buffer is too small to hold the result, a
+     * <code>ShortBufferException</code> is thrown, and the call can be
+     * repeated with a larger output buffer.
+     * 
+     * @param input
+     *            the input buffer
+     * @param inputOffset
+     *            the offset in <code>input</code> where the input starts
+     * @param inputLen
+     *            the input length
+     * @param output
+     *            the buffer for the result
+     * @param outputOffset
+     *            the offset in <code>output</code> where the result is stored
+     * 
+     * @return the number of bytes stored in <code>output</code>
+     * 
+     * @exception IllegalStateException
+     *                if the underlying cipher is in a wrong state (e.g., has
+     *                not been initialized)
+     * @exception ShortBufferException
+     *                if the given output buffer is too small to hold the
+     *                result
+     */
+    int update(byte[] input, int inputOffset, int inputLen, byte[] output,
+            int outputOffset) throws ShortBufferException {
+        return cipher.update(input, inputOffset, inputLen, output, outputOffset);
+    }
+
     /**
      * Returns the algorithm name of the underlying cipher.
      */
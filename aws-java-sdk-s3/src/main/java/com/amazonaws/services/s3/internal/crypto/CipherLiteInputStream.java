@@ -19,6 +19,7 @@ import java.io.InputStream;
 
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
+import javax.crypto.ShortBufferException;
 
 import com.amazonaws.internal.SdkFilterInputStream;
 
@@ -31,6 +32,12 @@ import com.amazonaws.internal.SdkFilterInputStream;
 public class CipherLiteInputStream extends SdkFilterInputStream {
     private static final int MAX_RETRY = 1000;
     private static final int DEFAULT_IN_BUFFER_SIZE = 512;
+    /**
+     * Room beyond the input buffer size left in the output buffer, for the
+     * partial blocks that block ciphers carry over from one update to the
+     * next.
+     */
+    private static final int OUT_BUFFER_SLACK = 32;
     private CipherLite cipherLite;
     /**
      * True if this input stream is currently involved in a multipart uploads;
@@ -44,6 +51,10 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
     private final boolean multipart;
     private boolean eof = false;
     private byte[] bufin;
+    /**
+     * Holds the output of the cipher; reused from one chunk to the next except
+     * for the final one, which the cipher returns in a buffer of its own.
+     */
     private byte[] bufout;
     private int curr_pos = 0;
     private int max_pos = 0;
@@ -67,6 +78,7 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
                     + DEFAULT_IN_BUFFER_SIZE);
         }
         this.bufin = new byte[buffsize];
+        this.bufout = new byte[buffsize + OUT_BUFFER_SLACK];
     }
 
     protected CipherLiteInputStream(InputStream is) {
@@ -211,27 +223,43 @@ public class CipherLiteInputStream extends SdkFilterInputStream {
         int len = in.read(bufin);
         if (len == -1) {
             eof = true;
+            byte[] finalBytes = null;
             try {
-                bufout = cipherLite.doFinal();
+                finalBytes = cipherLite.doFinal();
             } catch (IllegalBlockSizeException ignore) {
                 // like the RI
             } catch (BadPaddingException e) {
                 if (S3CryptoScheme.isAesGcm(cipherLite.getCipherAlgorithm()))
                     throw new SecurityException(e);
             }
-            if (bufout == null) {
+            if (finalBytes == null) {
                 return -1;
             }
+            bufout = finalBytes;
             curr_pos = 0;
             return max_pos = bufout.length;
         }
-        try {
-            bufout = cipherLite.update(bufin, 0, len);
-        } catch (IllegalStateException ignore) {
-            // like the RI
-        }
         curr_pos = 0;
-        return max_pos = (bufout == null ? 0 : bufout.length);
+        return max_pos = update(len);
+    }
+
+    /**
+     * Processes the given number of bytes of the input buffer into the output
+     * buffer, which is grown as needed, and returns the number of bytes
+     * output.
+     */
+    private int update(int len) {
+        while (true) {
+            try {
+                return cipherLite.update(bufin, 0, len, bufout, 0);
+            } catch (ShortBufferException e) {
+                bufout = new byte[Math.max(bufout.length * 2,
+                        cipherLite.getOutputSize(len))];
+            } catch (IllegalStateException ignore) {
+                // like the RI
+                return 0;
+            }
+        }
     }
 
     void renewCipherLite() {
@@ -20,6 +20,7 @@ import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
 
 /**
  * A AES/GCM specific {@link CipherLite} that support re-processing of input
@@ -184,6 +185,45 @@ final class GCMCipherLite extends CipherLite {
         return out;
     }
 
+    /**
+     * Same as {@link #update(byte[], int, int)}, but stores the result in the
+     * given output buffer rather than a new one.
+     * 
+     * @param inputLen
+     *            for {@link #mark()} and {@link #reset()} to work correctly,
+     *            inputLen should always be in multiple of 16 bytes except for
+     *            the very last part of the plaintext.
+     */
+    @Override
+    int update(byte[] input, int inputOffset, int inputLen, byte[] output,
+            int outputOffset) throws ShortBufferException {
+        int outLen;
+        if (aux == null) {
+            outLen = super.update(input, inputOffset, inputLen, output, outputOffset);
+            outputByteCount += checkMax(outLen);
+            invisiblyProcessed = outLen == 0 && inputLen > 0;
+        } else {
+            outLen = aux.update(input, inputOffset, inputLen, output, outputOffset);
+            currentCount += outLen;
+            if (currentCount == outputByteCount) {
+                aux = null; // flip back to the original GCM cipher
+            } else if (currentCount > outputByteCount) {
+                if (Cipher.ENCRYPT_MODE == getCipherMode()) {
+                    throw new IllegalStateException("currentCount=" + currentCount
+                        + " > outputByteCount=" + outputByteCount);
+                }
+                // For decryption, this is possible since AES/CTR doesn't know
+                // about the tag at the end
+                int finalBytesLen = (finalBytes == null ? 0 : finalBytes.length);
+                long diff = outputByteCount - (currentCount - outLen) - finalBytesLen;
+                currentCount = outputByteCount - finalBytesLen;
+                aux = null; // flip back to the original GCM cipher
+                return (int)diff;
+            }
+        }
+        return outLen;
+    }
+
     /**
      * Returns the input delta but only if it will not result in exceeding the
      * limit of the maximum number of bytes that can be processed by AES/GCM.
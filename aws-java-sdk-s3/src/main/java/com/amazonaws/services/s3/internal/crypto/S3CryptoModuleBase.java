@@ -55,6 +55,7 @@ import com.amazonaws.services.kms.AWSKMSClient;
 import com.amazonaws.services.kms.model.GenerateDataKeyRequest;
 import com.amazonaws.services.kms.model.GenerateDataKeyResult;
 import com.amazonaws.services.s3.Headers;
+import com.amazonaws.services.s3.internal.FilePartInputStream;
 import com.amazonaws.services.s3.internal.InputSubstream;
 import com.amazonaws.services.s3.internal.Mimetypes;
 import com.amazonaws.services.s3.internal.S3Direct;
@@ -351,14 +352,14 @@ public abstract class S3CryptoModuleBase<T extends MultipartUploadCryptoContext>
                     throw new IllegalArgumentException(
                         "A File or InputStream must be specified when uploading part");
                 }
-                isCurr = isOrig;
+                isCurr = new InputSubstream(isOrig,
+                        req.getFileOffset(),
+                        req.getPartSize(),
+                        req.isLastPart());
             } else {
-                isCurr = new ResettableInputStream(fileOrig);
+                isCurr = new FilePartInputStream(fileOrig,
+                        req.getFileOffset(), req.getPartSize());
             }
-            isCurr = new InputSubstream(isCurr,
-                    req.getFileOffset(),
-                    req.getPartSize(),
-                    req.isLastPart());
             return cipherLite.markSupported()
                  ? new CipherLiteInputStream(isCurr, cipherLite,
                        DEFAULT_BUFFER_SIZE,
@@ -0,0 +1,646 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.iterable;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.ListObjectsRequest;
+import com.amazonaws.services.s3.model.ObjectListing;
+import com.amazonaws.services.s3.model.S3ObjectSummary;
+
+/**
+ * Like {@link S3Objects}, provides an easy way to iterate Amazon S3 objects in
+ * a "foreach" statement, but lists several ranges of the key space at once to
+ * inventory large buckets faster. For example:
+ *
+ * <pre class="brush: java">
+ * for ( S3ObjectSummary summary : ParallelS3Objects.inBucket(s3, &quot;my-bucket&quot;).withMaxConcurrency(20) ) {
+ *     System.out.printf(&quot;Object with key '%s'\n&quot;, summary.getKey());
+ * }
+ * </pre>
+ * <p>
+ * The first page of objects is listed as usual. If there are more, the rest of
+ * the key space is split into shards at the common prefixes of the keys under
+ * the delimiter, and at the first key found after each of a set of sampled
+ * markers. Each shard is then listed by its own marker chain, up to
+ * {@link #getMaxConcurrency()} of them at a time.
+ * <p>
+ * Objects come out of a shard in key order, but the shards are interleaved,
+ * so the objects as a whole are not in key order. Listed pages are buffered
+ * until they are iterated, and the listing of all shards pauses while
+ * {@link #getMaxBufferedPages()} pages are waiting, which bounds the memory
+ * used however slowly the objects are consumed.
+ * <p>
+ * Unless an executor service is given, each iteration runs on its own daemon
+ * threads, which go away once the iteration completes or is
+ * {@link ObjectIterator#close() closed}.
+ */
+public class ParallelS3Objects implements Iterable<S3ObjectSummary> {
+
+    /** The default max number of shards listed at once. */
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    /** The default max number of listed pages waiting to be iterated. */
+    public static final int DEFAULT_MAX_BUFFERED_PAGES = 20;
+
+    /** The default delimiter whose common prefixes are used as split points. */
+    public static final String DEFAULT_DELIMITER = "/";
+
+    /**
+     * The characters appended to the prefix to make the sampled split markers,
+     * in ascending order; they cover the characters keys most often start with.
+     */
+    private static final String SPLIT_CHARACTERS =
+            "!-.0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ_abcdefghijklmnopqrstuvwxyz~";
+
+    /** How many shards to make per concurrent listing, to balance the load. */
+    private static final int SHARDS_PER_LISTING = 4;
+
+    /**
+     * How many times the sampling may move on to the longer prefix shared by
+     * all the keys found so far.
+     */
+    private static final int MAX_SAMPLING_ROUNDS = 4;
+
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private AmazonS3 s3;
+    private String bucketName;
+    private String prefix = null;
+    private Integer batchSize = null;
+    private String delimiter = DEFAULT_DELIMITER;
+    private int maxConcurrency = DEFAULT_MAX_CONCURRENCY;
+    private int maxBufferedPages = DEFAULT_MAX_BUFFERED_PAGES;
+    private ExecutorService executorService;
+
+    private ParallelS3Objects(AmazonS3 s3, String bucketName) {
+        this.s3 = s3;
+        this.bucketName = bucketName;
+    }
+
+    /**
+     * Constructs an iterable that covers all the objects in an Amazon S3
+     * bucket.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @return An iterator for object summaries.
+     */
+    public static ParallelS3Objects inBucket(AmazonS3 s3, String bucketName) {
+        return new ParallelS3Objects(s3, bucketName);
+    }
+
+    /**
+     * Constructs an iterable that covers the objects in an Amazon S3 bucket
+     * where the key begins with the given prefix.
+     *
+     * @param s3
+     *            The Amazon S3 client.
+     * @param bucketName
+     *            The bucket name.
+     * @param prefix
+     *            The prefix.
+     * @return An iterator for object summaries.
+     */
+    public static ParallelS3Objects withPrefix(AmazonS3 s3, String bucketName, String prefix) {
+        ParallelS3Objects objects = new ParallelS3Objects(s3, bucketName);
+        objects.prefix = prefix;
+        return objects;
+    }
+
+    /**
+     * Sets the batch size, i.e., how many {@link S3ObjectSummary}s will be
+     * fetched at once by each listing.
+     *
+     * @param batchSize
+     *            How many object summaries to fetch at once.
+     */
+    public ParallelS3Objects withBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    /**
+     * Sets the max number of shards listed at once, which is also the number
+     * of threads used when no executor service is given.
+     *
+     * @param maxConcurrency
+     *            The max number of concurrent listings; must be positive.
+     */
+    public ParallelS3Objects withMaxConcurrency(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("maxConcurrency must be positive");
+        }
+        this.maxConcurrency = maxConcurrency;
+        return this;
+    }
+
+    /**
+     * Sets the max number of listed pages waiting to be iterated before the
+     * listing pauses.
+     *
+     * @param maxBufferedPages
+     *            The max number of buffered pages; must be positive.
+     */
+    public ParallelS3Objects withMaxBufferedPages(int maxBufferedPages) {
+        if (maxBufferedPages < 1) {
+            throw new IllegalArgumentException("maxBufferedPages must be positive");
+        }
+        this.maxBufferedPages = maxBufferedPages;
+        return this;
+    }
+
+    /**
+     * Sets the delimiter whose common prefixes are used as split points; or
+     * null to only split at sampled markers.
+     *
+     * @param delimiter
+     *            The delimiter, which defaults to "/".
+     */
+    public ParallelS3Objects withDelimiter(String delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    /**
+     * Sets the executor service to list the shards on. It is not shut down at
+     * the end of an iteration, and must be able to run
+     * {@link #getMaxConcurrency()} tasks at once for the listing to reach that
+     * concurrency.
+     *
+     * @param executorService
+     *            The executor service; or null to use new daemon threads for
+     *            each iteration.
+     */
+    public ParallelS3Objects withExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    public Integer getBatchSize() {
+        return batchSize;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public String getBucketName() {
+        return bucketName;
+    }
+
+    public AmazonS3 getS3() {
+        return s3;
+    }
+
+    public String getDelimiter() {
+        return delimiter;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public int getMaxBufferedPages() {
+        return maxBufferedPages;
+    }
+
+    public ExecutorService getExecutorService() {
+        return executorService;
+    }
+
+    @Override
+    public ObjectIterator iterator() {
+        return new ObjectIterator();
+    }
+
+    /**
+     * Compares keys the way Amazon S3 orders them, which is by their UTF-8
+     * bytes, that is, by code point.
+     */
+    static int compareKeys(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            int ca = a.codePointAt(i);
+            int cb = b.codePointAt(j);
+            if (ca != cb) {
+                return ca < cb ? -1 : 1;
+            }
+            i += Character.charCount(ca);
+            j += Character.charCount(cb);
+        }
+        return (a.length() - i) - (b.length() - j);
+    }
+
+    private static final Comparator<String> KEY_ORDER = new Comparator<String>() {
+        @Override
+        public int compare(String a, String b) {
+            return compareKeys(a, b);
+        }
+    };
+
+    /**
+     * A range of the key space: the keys after the start marker, up to and
+     * including the end key.
+     */
+    private static class Shard {
+        final String startMarker;
+        /** The last key of the shard; or null for the end of the key space. */
+        final String endKey;
+
+        Shard(String startMarker, String endKey) {
+            this.startMarker = startMarker;
+            this.endKey = endKey;
+        }
+    }
+
+    /**
+     * Iterates over the objects listed by all the shards. Listing starts on
+     * the first call to {@link #hasNext()} or {@link #next()}.
+     * <p>
+     * An iterator abandoned before its end should be closed, so that its
+     * listings stop instead of waiting for their pages to be taken.
+     */
+    public class ObjectIterator implements Iterator<S3ObjectSummary>, Closeable {
+
+        /** Marks the end of the listing in the page queue. */
+        private final List<S3ObjectSummary> END = new ArrayList<S3ObjectSummary>(0);
+
+        private final BlockingQueue<List<S3ObjectSummary>> pages =
+                new LinkedBlockingQueue<List<S3ObjectSummary>>(maxBufferedPages);
+        private final ConcurrentLinkedQueue<Shard> shards = new ConcurrentLinkedQueue<Shard>();
+        private final AtomicInteger activeListings = new AtomicInteger();
+        private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        private volatile boolean closed;
+
+        private ExecutorService threadPool;
+        private boolean started;
+        private boolean finished;
+        private Iterator<S3ObjectSummary> currentIterator = Collections.<S3ObjectSummary>emptyList().iterator();
+
+        private ObjectIterator() {
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!currentIterator.hasNext()) {
+                if (finished) {
+                    return false;
+                }
+                if (!started) {
+                    started = true;
+                    boolean success = false;
+                    try {
+                        start();
+                        success = true;
+                    } finally {
+                        // No END page is queued if listing could not start,
+                        // so end the iteration here instead.
+                        if (!success) {
+                            close();
+                        }
+                    }
+                }
+                List<S3ObjectSummary> page = takePage();
+                if (page == END) {
+                    finished = true;
+                    close();
+                    throwIfFailed();
+                    return false;
+                }
+                currentIterator = page.iterator();
+            }
+            return true;
+        }
+
+        @Override
+        public S3ObjectSummary next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * Stops all the listings of this iterator, and releases its threads
+         * if it created any. Called automatically at the end of the iteration.
+         */
+        @Override
+        public void close() {
+            closed = true;
+            finished = true;
+            pages.clear();
+            if (threadPool != null && threadPool != executorService) {
+                threadPool.shutdownNow();
+            }
+        }
+
+        private List<S3ObjectSummary> takePage() {
+            List<S3ObjectSummary> page;
+            try {
+                page = pages.take();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException(e.getMessage(), e);
+            }
+            // Fail as soon as any listing fails, rather than after all the
+            // pages of the others have been handed out.
+            if (failure.get() != null) {
+                close();
+                throwIfFailed();
+            }
+            return page;
+        }
+
+        private void throwIfFailed() {
+            Throwable t = failure.get();
+            if (t == null) {
+                return;
+            }
+            if (t instanceof RuntimeException) {
+                throw (RuntimeException) t;
+            }
+            if (t instanceof Error) {
+                throw (Error) t;
+            }
+            throw new AmazonClientException("Unable to list objects: " + t.getMessage(), t);
+        }
+
+        /**
+         * Lists the first page, and if there are more, splits the rest of the
+         * key space into shards and starts listing them.
+         */
+        private void start() {
+            ListObjectsRequest req = new ListObjectsRequest()
+                .withBucketName(bucketName)
+                .withPrefix(prefix)
+                .withMaxKeys(batchSize);
+            ObjectListing first = s3.listObjects(req);
+            List<S3ObjectSummary> summaries = first.getObjectSummaries();
+            if (!summaries.isEmpty()) {
+                pages.offer(summaries);
+            }
+            if (!first.isTruncated() || summaries.isEmpty()) {
+                pages.offer(END);
+                return;
+            }
+            threadPool = executorService != null ? executorService : newThreadPool();
+
+            String lastKey = summaries.get(summaries.size() - 1).getKey();
+            List<String> markers = splitMarkers(lastKey);
+            String startMarker = lastKey;
+            for (String marker : markers) {
+                shards.add(new Shard(startMarker, marker));
+                startMarker = marker;
+            }
+            shards.add(new Shard(startMarker, null));
+
+            int listings = Math.min(maxConcurrency, shards.size());
+            activeListings.set(listings);
+            for (int i = 0; i < listings; i++) {
+                threadPool.execute(new ShardLister());
+            }
+        }
+
+        /**
+         * Returns the split markers after the given key, in ascending order:
+         * the common prefixes of the first page of keys under the delimiter,
+         * and the first key after each of the sampled markers, thinned out to
+         * one less than the number of shards wanted.
+         * <p>
+         * The sampled markers are the prefix followed by each of the split
+         * characters. When the keys found all share a longer prefix, as keys
+         * starting with a date do, sampling is repeated under that prefix.
+         */
+        private List<String> splitMarkers(String lastKey) {
+            int wanted = maxConcurrency * SHARDS_PER_LISTING - 1;
+            SortedSet<String> candidates = new TreeSet<String>(KEY_ORDER);
+            if (delimiter != null) {
+                ObjectListing listing = s3.listObjects(new ListObjectsRequest()
+                    .withBucketName(bucketName)
+                    .withPrefix(prefix)
+                    .withMarker(lastKey)
+                    .withDelimiter(delimiter));
+                for (String commonPrefix : listing.getCommonPrefixes()) {
+                    if (compareKeys(commonPrefix, lastKey) > 0) {
+                        candidates.add(commonPrefix);
+                    }
+                }
+            }
+            String base = prefix == null ? "" : prefix;
+            for (int round = 0; round < MAX_SAMPLING_ROUNDS && candidates.size() < wanted; round++) {
+                sample(base, lastKey, candidates);
+                String shared = sharedPrefix(lastKey, candidates);
+                if (shared.length() <= base.length()) {
+                    break;
+                }
+                base = shared;
+            }
+
+            List<String> markers = new ArrayList<String>(candidates);
+            if (markers.size() <= wanted) {
+                return markers;
+            }
+            List<String> thinned = new ArrayList<String>(wanted);
+            for (int i = 1; i <= wanted; i++) {
+                thinned.add(markers.get((int) ((long) i * markers.size() / (wanted + 1))));
+            }
+            return thinned;
+        }
+
+        /**
+         * Adds to the candidates the first key after each sampled marker under
+         * the given base, if after the last key. The probes run concurrently.
+         */
+        private void sample(String base, String lastKey, SortedSet<String> candidates) {
+            List<Future<ObjectListing>> probes = new ArrayList<Future<ObjectListing>>();
+            for (int i = 0; i < SPLIT_CHARACTERS.length(); i++) {
+                String marker = base + SPLIT_CHARACTERS.charAt(i);
+                if (compareKeys(marker, lastKey) > 0) {
+                    probes.add(threadPool.submit(new Lister(new ListObjectsRequest()
+                        .withBucketName(bucketName)
+                        .withPrefix(prefix)
+                        .withMarker(marker)
+                        .withMaxKeys(1))));
+                }
+            }
+            for (Future<ObjectListing> probe : probes) {
+                for (S3ObjectSummary summary : getProbe(probe).getObjectSummaries()) {
+                    candidates.add(summary.getKey());
+                }
+            }
+        }
+
+        /** Returns the longest prefix shared by the given key and all the candidates. */
+        private String sharedPrefix(String key, SortedSet<String> candidates) {
+            int length = key.length();
+            for (String candidate : candidates) {
+                int i = 0;
+                while (i < length && i < candidate.length() && key.charAt(i) == candidate.charAt(i)) {
+                    i++;
+                }
+                length = i;
+            }
+            if (length > 0 && Character.isHighSurrogate(key.charAt(length - 1))) {
+                length--;
+            }
+            return key.substring(0, length);
+        }
+
+        private ObjectListing getProbe(Future<ObjectListing> probe) {
+            try {
+                return probe.get();
+            } catch (InterruptedException e) {
+                close();
+                Thread.currentThread().interrupt();
+                throw new AmazonClientException(e.getMessage(), e);
+            } catch (ExecutionException e) {
+                close();
+                Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                throw new AmazonClientException("Unable to list objects: " + cause.getMessage(), cause);
+            }
+        }
+
+        private ExecutorService newThreadPool() {
+            ThreadFactory threadFactory = new ThreadFactory() {
+                private final AtomicInteger threadCount = new AtomicInteger(0);
+
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r);
+                    thread.setDaemon(true);
+                    thread.setName("s3-parallel-lister-" + threadCount.incrementAndGet());
+                    return thread;
+                }
+            };
+            return Executors.newFixedThreadPool(maxConcurrency, threadFactory);
+        }
+
+        /**
+         * Waits for room in the page queue, and returns false if the listing
+         * has stopped in the meantime.
+         */
+        private boolean offer(List<S3ObjectSummary> page) throws InterruptedException {
+            while (!closed) {
+                if (pages.offer(page, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /** Lists one page, to probe the key space. */
+        private class Lister implements Callable<ObjectListing> {
+            private final ListObjectsRequest req;
+
+            Lister(ListObjectsRequest req) {
+                this.req = req;
+            }
+
+            @Override
+            public ObjectListing call() {
+                return s3.listObjects(req);
+            }
+        }
+
+        /**
+         * Lists shards, one after the other, until there are none left. The
+         * last lister to finish marks the end of the listing.
+         */
+        private class ShardLister implements Runnable {
+            @Override
+            public void run() {
+                try {
+                    Shard shard;
+                    while (!closed && failure.get() == null
+                            && (shard = shards.poll()) != null) {
+                        list(shard);
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                } finally {
+                    if (activeListings.decrementAndGet() == 0) {
+                        try {
+                            offer(END);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    }
+                }
+            }
+
+            private void list(Shard shard) throws InterruptedException {
+                ObjectListing listing = s3.listObjects(new ListObjectsRequest()
+                    .withBucketName(bucketName)
+                    .withPrefix(prefix)
+                    .withMarker(shard.startMarker)
+                    .withMaxKeys(batchSize));
+                while (true) {
+                    List<S3ObjectSummary> summaries = listing.getObjectSummaries();
+                    boolean done = !listing.isTruncated();
+                    if (shard.endKey != null && !summaries.isEmpty()
+                            && compareKeys(summaries.get(summaries.size() - 1).getKey(), shard.endKey) >= 0) {
+                        int end = summaries.size();
+                        while (end > 0 && compareKeys(summaries.get(end - 1).getKey(), shard.endKey) > 0) {
+                            end--;
+                        }
+                        summaries = summaries.subList(0, end);
+                        done = true;
+                    }
+                    if (!summaries.isEmpty() && !offer(summaries)) {
+                        return;
+                    }
+                    if (done || closed || failure.get() != null) {
+                        return;
+                    }
+                    listing = s3.listNextBatchOfObjects(listing);
+                }
+            }
+        }
+    }
+}
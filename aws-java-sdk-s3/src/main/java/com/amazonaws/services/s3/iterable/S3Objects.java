@@ -34,6 +34,8 @@ import com.amazonaws.services.s3.model.S3ObjectSummary;
  * The list of {@link S3ObjectSummary}s will be fetched lazily, a page at a
  * time, as they are needed. The size of the page can be controlled with the
  * {@link S3Objects#withBatchSize(int)} method.
+ *
+ * @see ParallelS3Objects
  */
 public class S3Objects implements Iterable<S3ObjectSummary> {
 
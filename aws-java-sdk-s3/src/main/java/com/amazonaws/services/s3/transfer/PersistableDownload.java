@@ -15,6 +15,7 @@
 package com.amazonaws.services.s3.transfer;
 
 import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
+import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -63,10 +64,40 @@ public final class PersistableDownload extends PersistableTransfer {
     @JsonProperty
     private final String file;
 
+    /**
+     * Size of each byte range of a multi-part download, or zero if the object
+     * is downloaded over a single connection.
+     */
+    @JsonProperty
+    private final long partSize;
+
+    /**
+     * Numbers of the parts of a multi-part download that have already been
+     * written to the file and are skipped when the download is resumed.
+     */
+    @JsonProperty
+    private final int[] completedParts;
+
+    /**
+     * ETag of the object a multi-part download was started against; completed
+     * parts are only reused if the object still has this ETag.
+     */
+    @JsonProperty
+    private final String eTag;
+
     public PersistableDownload() {
         this(null, null, null, null, null, false, null);
     }
 
+    public PersistableDownload(String bucketName, String key,
+            String versionId, long[] range,
+            ResponseHeaderOverrides responseHeaders, boolean isRequesterPays,
+            String file) {
+        this(bucketName, key, versionId, range, responseHeaders,
+                isRequesterPays, file, 0, null, null);
+    }
+
+    @JsonCreator
     public PersistableDownload(
             @JsonProperty(value = "bucketName") String bucketName,
             @JsonProperty(value = "key") String key,
@@ -74,7 +105,10 @@ public final class PersistableDownload extends PersistableTransfer {
             @JsonProperty(value = "range") long[] range,
             @JsonProperty(value = "responseHeaders") ResponseHeaderOverrides responseHeaders,
             @JsonProperty(value = "isRequesterPays") boolean isRequesterPays,
-            @JsonProperty(value = "file") String file) {
+            @JsonProperty(value = "file") String file,
+            @JsonProperty(value = "partSize") long partSize,
+            @JsonProperty(value = "completedParts") int[] completedParts,
+            @JsonProperty(value = "eTag") String eTag) {
         this.bucketName = bucketName;
         this.key = key;
         this.versionId = versionId;
@@ -82,6 +116,9 @@ public final class PersistableDownload extends PersistableTransfer {
         this.responseHeaders = responseHeaders;
         this.isRequesterPays = isRequesterPays;
         this.file = file;
+        this.partSize = partSize;
+        this.completedParts = completedParts == null ? null : completedParts.clone();
+        this.eTag = eTag;
     }
 
     /**
@@ -134,6 +171,30 @@ public final class PersistableDownload extends PersistableTransfer {
         return file;
     }
 
+    /**
+     * Returns the size of each part of a multi-part download, or zero if the
+     * object is downloaded over a single connection.
+     */
+    long getPartSize() {
+        return partSize;
+    }
+
+    /**
+     * Returns the numbers of the parts of a multi-part download that have
+     * already been written to the file.
+     */
+    int[] getCompletedParts() {
+        return completedParts == null ? null : completedParts.clone();
+    }
+
+    /**
+     * Returns the ETag of the object a multi-part download was started
+     * against.
+     */
+    String getETag() {
+        return eTag;
+    }
+
     String getPauseType() {
         return pauseType;
     }
@@ -20,9 +20,12 @@ import static com.amazonaws.services.s3.internal.ServiceUtils.OVERWRITE_MODE;
 import java.io.File;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
@@ -67,11 +70,13 @@ import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.services.s3.transfer.internal.CompleteMultipartDownload;
 import com.amazonaws.services.s3.transfer.internal.CopyCallable;
 import com.amazonaws.services.s3.transfer.internal.CopyImpl;
 import com.amazonaws.services.s3.transfer.internal.CopyMonitor;
 import com.amazonaws.services.s3.transfer.internal.DownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.DownloadMonitor;
+import com.amazonaws.services.s3.transfer.internal.DownloadPartCallable;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileDownloadImpl;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileTransferMonitor;
 import com.amazonaws.services.s3.transfer.internal.MultipleFileUploadImpl;
@@ -748,6 +753,19 @@ public class TransferManager {
             final File file, final TransferStateChangeListener stateListener,
             final S3ProgressListener s3progressListener,
             final boolean resumeExistingDownload) {
+        return doDownload(getObjectRequest, file, stateListener,
+                s3progressListener, resumeExistingDownload, null);
+    }
+
+    /**
+     * Same as above, but resumes the given paused multi-part download when
+     * it is not null.
+     */
+    private Download doDownload(final GetObjectRequest getObjectRequest,
+            final File file, final TransferStateChangeListener stateListener,
+            final S3ProgressListener s3progressListener,
+            final boolean resumeExistingDownload,
+            final PersistableDownload pausedMultipartDownload) {
 
         appendSingleObjectUserAgent(getObjectRequest);
 
@@ -787,6 +805,27 @@ public class TransferManager {
         }
         final ObjectMetadata objectMetadata = s3.getObjectMetadata(getObjectMetadataRequest);
 
+        if (pausedMultipartDownload != null) {
+            int[] completedParts = pausedMultipartDownload.getCompletedParts();
+            // Parts written from a different version of the object can't be reused
+            if (pausedMultipartDownload.getETag() == null
+                    || !pausedMultipartDownload.getETag().equals(objectMetadata.getETag())) {
+                completedParts = null;
+            }
+            return doMultipartDownload(getObjectRequest, file, description,
+                    transferProgress, listenerChain, stateListener,
+                    objectMetadata, pausedMultipartDownload.getPartSize(),
+                    completedParts);
+        }
+        if (!resumeExistingDownload
+                && TransferManagerUtils.shouldUseMultipartDownload(
+                        getObjectRequest, objectMetadata, configuration, s3)) {
+            return doMultipartDownload(getObjectRequest, file, description,
+                    transferProgress, listenerChain, stateListener,
+                    objectMetadata, configuration.getMultipartDownloadPartSize(),
+                    null);
+        }
+
         // We still pass the unfiltered listener chain into DownloadImpl
         final DownloadImpl download = new DownloadImpl(description,
                 transferProgress, listenerChain, null, stateListener,
@@ -828,6 +867,86 @@ public class TransferManager {
         return download;
     }
 
+    /**
+     * Downloads the object as consecutive byte ranges of the given size that
+     * are fetched in parallel and written directly to their position in the
+     * file. Parts that were completed before the download was paused are
+     * skipped.
+     */
+    private Download doMultipartDownload(final GetObjectRequest getObjectRequest,
+            final File file, final String description,
+            final TransferProgress transferProgress,
+            final S3ProgressListenerChain listenerChain,
+            final TransferStateChangeListener stateListener,
+            final ObjectMetadata objectMetadata, final long partSize,
+            final int[] completedParts) {
+        // Through an encryption client, each part is a ranged get that comes
+        // back decrypted, so the parts cover the plaintext, which the MD5 in
+        // the ETag of the object doesn't match
+        final boolean isUsingEncryption = s3 instanceof AmazonS3Encryption;
+        final ObjectMetadata contentMetadata;
+        if (isUsingEncryption) {
+            contentMetadata = objectMetadata.clone();
+            contentMetadata.setContentLength(TransferManagerUtils.getPlaintextLength(objectMetadata));
+        } else {
+            contentMetadata = objectMetadata;
+        }
+        final long contentLength = contentMetadata.getContentLength();
+        transferProgress.setTotalBytesToTransfer(contentLength);
+
+        // The object's content is streamed by the individual parts
+        S3Object s3Object = new S3Object();
+        s3Object.setBucketName(getObjectRequest.getBucketName());
+        s3Object.setKey(getObjectRequest.getKey());
+        s3Object.setObjectMetadata(contentMetadata);
+
+        final DownloadImpl download = new DownloadImpl(description,
+                transferProgress, listenerChain, s3Object, stateListener,
+                getObjectRequest, file, partSize, completedParts);
+
+        Set<Integer> skippedParts = new HashSet<Integer>();
+        if (completedParts != null) {
+            for (int partNumber : completedParts) {
+                skippedParts.add(partNumber);
+            }
+        }
+        ServiceUtils.createFileOfLength(file, contentLength, skippedParts.isEmpty());
+
+        List<String> eTagConstraint = objectMetadata.getETag() == null
+                ? null : Collections.singletonList(objectMetadata.getETag());
+        List<Future<Integer>> partFutures = new ArrayList<Future<Integer>>();
+        int partNumber = 1;
+        for (long position = 0; position < contentLength; position += partSize, partNumber++) {
+            long lastByte = Math.min(position + partSize, contentLength) - 1;
+            if (skippedParts.contains(partNumber)) {
+                transferProgress.updateProgress(lastByte - position + 1);
+                continue;
+            }
+            GetObjectRequest partRequest = new GetObjectRequest(
+                    getObjectRequest.getBucketName(), getObjectRequest.getKey(),
+                    getObjectRequest.getVersionId())
+                .withRange(position, lastByte);
+            partRequest.setSSECustomerKey(getObjectRequest.getSSECustomerKey());
+            partRequest.setRequesterPays(getObjectRequest.isRequesterPays());
+            partRequest.setResponseHeaders(getObjectRequest.getResponseHeaders());
+            partRequest.setMatchingETagConstraints(eTagConstraint);
+            partRequest.setGeneralProgressListener(getObjectRequest.getGeneralProgressListener());
+            appendMultipartUserAgent(partRequest);
+            partFutures.add(threadPool.submit(new DownloadPartCallable(s3,
+                    partRequest, partNumber, file, position)));
+        }
+
+        // Submitted after all of its parts, so it never waits on a part that
+        // is queued behind it
+        final CountDownLatch latch = new CountDownLatch(1);
+        Future<File> future = threadPool.submit(new CompleteMultipartDownload(
+                download, partFutures, file, contentMetadata, !isUsingEncryption, latch));
+        download.setMonitor(new DownloadMonitor(download, future, partFutures));
+        download.setState(TransferState.InProgress);
+        latch.countDown();
+        return download;
+    }
+
     private Future<?> submitDownloadTask(
             final GetObjectRequest getObjectRequest, final File file,
             final boolean resumeExistingDownload,
@@ -1602,6 +1721,10 @@ public class TransferManager {
         request.setRequesterPays(persistableDownload.isRequesterPays());
         request.setResponseHeaders(persistableDownload.getResponseHeaders());
 
+        if (persistableDownload.getPartSize() > 0) {
+            return doDownload(request, new File(persistableDownload.getFile()), null, null,
+                    OVERWRITE_MODE, persistableDownload);
+        }
         return doDownload(request, new File(persistableDownload.getFile()), null, null,
                 APPEND_MODE);
     }
@@ -39,6 +39,18 @@ public class TransferManagerConfiguration {
     /** Default minimum size of each part for multi-part copy. */
     private static final long DEFAULT_MINIMUM_COPY_PART_SIZE = 100 * MB;
 
+    /**
+     * Default size threshold for when to use multi-part downloads; multi-part
+     * downloads are disabled unless a threshold is configured.
+     */
+    private static final long DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD = Long.MAX_VALUE;
+
+    /** Default size of each byte range fetched in a multi-part download. */
+    private static final long DEFAULT_MULTIPART_DOWNLOAD_PART_SIZE = 16 * MB;
+
+    /** Default max number of parts of a streaming upload held in memory. */
+    private static final int DEFAULT_STREAMING_UPLOAD_PARTS_IN_FLIGHT = 4;
+
     /**
      * The minimum part size for upload parts. Decreasing the minimum part size
      * will cause multipart uploads to be split into a larger number of smaller
@@ -77,6 +89,44 @@ public class TransferManagerConfiguration {
      */
     private long multipartCopyPartSize = DEFAULT_MINIMUM_COPY_PART_SIZE;
 
+    /**
+     * The size threshold, in bytes, for when to use multi-part downloads.
+     * Downloads of whole objects at least this large are split into byte
+     * ranges that are fetched concurrently on the transfer manager's thread
+     * pool and written directly into their offsets of the destination file.
+     * Smaller objects and ranged downloads still use a single connection, as
+     * do client-side encrypted objects unless
+     * {@link #encryptedMultipartDownloadEnabled} is set.
+     */
+    private long multipartDownloadThreshold = DEFAULT_MULTIPART_DOWNLOAD_THRESHOLD;
+
+    /**
+     * The size in bytes of each byte range fetched in a multi-part download.
+     * This is also the granularity at which a paused multi-part download can
+     * be resumed.
+     */
+    private long multipartDownloadPartSize = DEFAULT_MULTIPART_DOWNLOAD_PART_SIZE;
+
+    /**
+     * True if objects encrypted client-side with AES/GCM may be downloaded in
+     * parts through an encryption client, each part being decrypted on its
+     * own as it is fetched.
+     */
+    private boolean encryptedMultipartDownloadEnabled;
+
+    /**
+     * True if input streams of unknown length are uploaded in parts, as they
+     * are read, rather than buffered in memory as a whole by a single
+     * connection upload.
+     */
+    private boolean streamingUploadEnabled;
+
+    /**
+     * The max number of parts of a streaming upload held in memory, which
+     * are either being read from the stream or being uploaded.
+     */
+    private int streamingUploadPartsInFlight = DEFAULT_STREAMING_UPLOAD_PARTS_IN_FLIGHT;
+
     /**
      * Returns the minimum part size for upload parts.
      * Decreasing the minimum part size causes
@@ -192,4 +242,149 @@ public class TransferManagerConfiguration {
     public void setMultipartCopyThreshold(long multipartCopyThreshold) {
         this.multipartCopyThreshold = multipartCopyThreshold;
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the size threshold in bytes for when to use multi-part
+     * downloads. Downloads of whole objects at least this large are split
+     * into byte ranges that are fetched concurrently. Multi-part downloads are
+     * disabled by default.
+     *
+     * @return The size threshold in bytes for when to use multi-part
+     *         downloads.
+     */
+    public long getMultipartDownloadThreshold() {
+        return multipartDownloadThreshold;
+    }
+
+    /**
+     * Sets the size threshold in bytes for when to use multi-part downloads.
+     * Downloads of whole objects at least this large are split into byte
+     * ranges that are fetched concurrently on the transfer manager's thread
+     * pool, while smaller objects, ranged downloads and, unless
+     * {@link #setEncryptedMultipartDownloadEnabled(boolean)} is set,
+     * client-side encrypted objects use a single connection.
+     *
+     * @param multipartDownloadThreshold
+     *            The size threshold in bytes for when to use multi-part
+     *            downloads.
+     */
+    public void setMultipartDownloadThreshold(long multipartDownloadThreshold) {
+        this.multipartDownloadThreshold = multipartDownloadThreshold;
+    }
+
+    /**
+     * Returns the size in bytes of each byte range fetched in a multi-part
+     * download.
+     *
+     * @return The size in bytes of each part in a multi-part download.
+     */
+    public long getMultipartDownloadPartSize() {
+        return multipartDownloadPartSize;
+    }
+
+    /**
+     * Sets the size in bytes of each byte range fetched in a multi-part
+     * download. Smaller parts increase the number of requests sent to Amazon
+     * S3, larger parts make pausing and resuming a download less granular.
+     *
+     * @param multipartDownloadPartSize
+     *            The size in bytes of each part in a multi-part download; must
+     *            be positive.
+     */
+    public void setMultipartDownloadPartSize(long multipartDownloadPartSize) {
+        if (multipartDownloadPartSize <= 0) {
+            throw new IllegalArgumentException(
+                    "The multi-part download part size must be positive: " + multipartDownloadPartSize);
+        }
+        this.multipartDownloadPartSize = multipartDownloadPartSize;
+    }
+
+    /**
+     * Returns true if objects encrypted client-side with AES/GCM may be
+     * downloaded in parts through an encryption client. Disabled by default.
+     *
+     * @return True if encrypted objects may be downloaded in parts.
+     */
+    public boolean isEncryptedMultipartDownloadEnabled() {
+        return encryptedMultipartDownloadEnabled;
+    }
+
+    /**
+     * Sets whether objects encrypted client-side with AES/GCM may be
+     * downloaded in parts through an encryption client, like any other object
+     * at or above the multi-part download threshold. Each part is fetched as a
+     * ranged get, and decrypted with AES/CTR concurrently with the other
+     * parts.
+     * <p>
+     * Like any ranged get of such an object, the parts are not authenticated
+     * by the GCM tag of the object, so this is not available in the
+     * <code>StrictAuthenticatedEncryption</code> crypto mode; clients in that
+     * mode download over a single connection regardless. Only objects
+     * whose encryption materials are stored in their metadata, rather than in
+     * an instruction file, are downloaded in parts. Each part retrieves the
+     * content encryption key of the object on its own, which, for keys
+     * managed by AWS KMS, means one call to AWS KMS per part.
+     *
+     * @param encryptedMultipartDownloadEnabled
+     *            True if encrypted objects may be downloaded in parts.
+     */
+    public void setEncryptedMultipartDownloadEnabled(boolean encryptedMultipartDownloadEnabled) {
+        this.encryptedMultipartDownloadEnabled = encryptedMultipartDownloadEnabled;
+    }
+
+    /**
+     * Returns true if input streams of unknown length are uploaded in parts,
+     * as they are read. Disabled by default, in which case such streams are
+     * buffered in memory as a whole and uploaded by a single connection.
+     *
+     * @return True if streaming uploads are enabled.
+     */
+    public boolean isStreamingUploadEnabled() {
+        return streamingUploadEnabled;
+    }
+
+    /**
+     * Sets whether input streams of unknown length are uploaded in parts, as
+     * they are read. Each part is the minimum upload part size, and is
+     * uploaded on the transfer manager's thread pool while the next parts are
+     * read; the memory held by an upload is bounded by the number of parts in
+     * flight times the part size. A stream that ends within the first part is
+     * uploaded by a single connection. Uploads through an encryption client
+     * are never streamed.
+     * <p>
+     * Since a multipart upload has at most 10,000 parts, the minimum upload
+     * part size also bounds the size of a streamed object.
+     *
+     * @param streamingUploadEnabled
+     *            True if streaming uploads are to be enabled.
+     */
+    public void setStreamingUploadEnabled(boolean streamingUploadEnabled) {
+        this.streamingUploadEnabled = streamingUploadEnabled;
+    }
+
+    /**
+     * Returns the max number of parts of a streaming upload held in memory,
+     * which are either being read from the stream or being uploaded.
+     *
+     * @return The max number of parts of a streaming upload in flight.
+     */
+    public int getStreamingUploadPartsInFlight() {
+        return streamingUploadPartsInFlight;
+    }
+
+    /**
+     * Sets the max number of parts of a streaming upload held in memory,
+     * which are either being read from the stream or being uploaded. Once
+     * that many parts are in flight, reading from the stream waits for the
+     * oldest part to be uploaded.
+     *
+     * @param streamingUploadPartsInFlight
+     *            The max number of parts of a streaming upload in flight; must
+     *            be at least 1.
+     */
+    public void setStreamingUploadPartsInFlight(int streamingUploadPartsInFlight) {
+        if (streamingUploadPartsInFlight < 1)
+            throw new IllegalArgumentException("streamingUploadPartsInFlight must be at least 1");
+        this.streamingUploadPartsInFlight = streamingUploadPartsInFlight;
+    }
+}
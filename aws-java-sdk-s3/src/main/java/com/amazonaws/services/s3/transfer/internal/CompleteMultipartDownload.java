@@ -0,0 +1,138 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.internal.ServiceUtils;
+import com.amazonaws.services.s3.model.ObjectMetadata;
+import com.amazonaws.services.s3.transfer.Transfer.TransferState;
+import com.amazonaws.util.BinaryUtils;
+import com.amazonaws.util.Md5Utils;
+
+/**
+ * Waits for all the parts of a TransferManager multi-part download, then
+ * verifies the downloaded file and marks the download as completed. This task
+ * is submitted to the thread pool after all of its parts, so the parts are
+ * always scheduled ahead of it.
+ */
+public class CompleteMultipartDownload implements Callable<File> {
+
+    private static final Log log = LogFactory.getLog(CompleteMultipartDownload.class);
+
+    private final DownloadImpl download;
+    private final List<Future<Integer>> partFutures;
+    private final File file;
+    private final ObjectMetadata objectMetadata;
+    private final boolean performIntegrityCheck;
+    private final CountDownLatch latch;
+
+    /**
+     * @param objectMetadata
+     *            the metadata of the whole object, used to verify the length
+     *            and, where possible, the MD5 of the downloaded file
+     * @param latch
+     *            released once the download's monitor has been set
+     */
+    public CompleteMultipartDownload(DownloadImpl download,
+            List<Future<Integer>> partFutures, File file,
+            ObjectMetadata objectMetadata, boolean performIntegrityCheck,
+            CountDownLatch latch) {
+        this.download = download;
+        this.partFutures = partFutures;
+        this.file = file;
+        this.objectMetadata = objectMetadata;
+        this.performIntegrityCheck = performIntegrityCheck;
+        this.latch = latch;
+    }
+
+    @Override
+    public File call() throws Exception {
+        try {
+            latch.await();
+            for (Future<Integer> partFuture : partFutures) {
+                try {
+                    partFuture.get();
+                } catch (ExecutionException e) {
+                    for (Future<Integer> f : partFutures) {
+                        f.cancel(true);
+                    }
+                    Throwable cause = e.getCause();
+                    if (cause instanceof AmazonClientException)
+                        throw (AmazonClientException) cause;
+                    throw new AmazonClientException(
+                            "Unable to complete multi-part download. Individual part download failed : "
+                                    + cause.getMessage(), cause);
+                }
+            }
+            verifyDownloadedFile();
+            download.setState(TransferState.Completed);
+            return file;
+        } catch (Throwable t) {
+            // Downloads aren't allowed to move from canceled to failed
+            if (download.getState() != TransferState.Canceled) {
+                download.setState(TransferState.Failed);
+            }
+            if (t instanceof Exception)
+                throw (Exception) t;
+            else
+                throw (Error) t;
+        }
+    }
+
+    /**
+     * Checks the length of the downloaded file and, for objects whose ETag is
+     * the MD5 of their content, the MD5 of the file.
+     */
+    private void verifyDownloadedFile() {
+        if (file.length() != objectMetadata.getContentLength()) {
+            throw new AmazonClientException("Unable to verify integrity of data download.  "
+                    + "Expected " + objectMetadata.getContentLength()
+                    + " bytes but the file '" + file.getAbsolutePath()
+                    + "' has " + file.length() + " bytes.");
+        }
+        String eTag = objectMetadata.getETag();
+        if (!performIntegrityCheck || eTag == null
+                || ServiceUtils.isMultipartUploadETag(eTag)
+                || ServiceUtils.skipContentMd5IntegrityCheck(objectMetadata)) {
+            return;
+        }
+        byte[] clientSideHash = null;
+        byte[] serverSideHash = null;
+        try {
+            clientSideHash = Md5Utils.computeMD5Hash(new FileInputStream(file));
+            serverSideHash = BinaryUtils.fromHex(eTag);
+        } catch (Exception e) {
+            log.warn("Unable to calculate MD5 hash to validate download: " + e.getMessage(), e);
+        }
+        if (clientSideHash != null && serverSideHash != null
+                && !Arrays.equals(clientSideHash, serverSideHash)) {
+            throw new AmazonClientException("Unable to verify integrity of data download.  " +
+                    "Client calculated content hash didn't match hash calculated by Amazon S3.  " +
+                    "The data stored in '" + file.getAbsolutePath() + "' may be corrupt.");
+        }
+    }
+}
@@ -16,6 +16,9 @@ package com.amazonaws.services.s3.transfer.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Future;
 
 import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.event.ProgressListenerChain;
@@ -35,13 +38,47 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      */
     private final PersistableDownload persistableDownload;
 
+    /**
+     * Size of each part of a multi-part download, or zero if the object is
+     * downloaded over a single connection.
+     */
+    private final long partSize;
+
+    /**
+     * Parts of a multi-part download that were already completed before it
+     * was resumed.
+     */
+    private final int[] completedParts;
+
+    /** The request and file of the download, to capture its state on pause. */
+    private final GetObjectRequest getObjectRequest;
+    private final File file;
+
     public DownloadImpl(String description, TransferProgress transferProgress,
             ProgressListenerChain progressListenerChain, S3Object s3Object,
             TransferStateChangeListener listener,
             GetObjectRequest getObjectRequest, File file) {
+        this(description, transferProgress, progressListenerChain, s3Object,
+                listener, getObjectRequest, file, 0, null);
+    }
+
+    /**
+     * Constructs a download that is carried out in parts of the given size,
+     * skipping the parts that were already completed before a resume.
+     */
+    public DownloadImpl(String description, TransferProgress transferProgress,
+            ProgressListenerChain progressListenerChain, S3Object s3Object,
+            TransferStateChangeListener listener,
+            GetObjectRequest getObjectRequest, File file, long partSize,
+            int[] completedParts) {
         super(description, transferProgress, progressListenerChain, listener);
         this.s3Object = s3Object;
-        this.persistableDownload = captureDownloadState(getObjectRequest, file);
+        this.partSize = partSize;
+        this.completedParts = completedParts == null ? new int[0] : completedParts.clone();
+        this.getObjectRequest = getObjectRequest;
+        this.file = file;
+        this.persistableDownload = captureDownloadState(getObjectRequest, file,
+                this.completedParts);
         S3ProgressPublisher.publishTransferPersistable(progressListenerChain,
                 persistableDownload);
     }
@@ -80,9 +117,9 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      */
     public synchronized void abort() throws IOException {
 
-        this.monitor.getFuture().cancel(true);
+        cancelFutures();
 
-        if ( s3Object != null ) {
+        if ( s3Object != null && s3Object.getObjectContent() != null ) {
               s3Object.getObjectContent().abort();
         }
         setState(TransferState.Canceled);
@@ -94,10 +131,18 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      * @throws IOException
      */
     public synchronized void abortWithoutNotifyingStateChangeListener() throws IOException {
-        this.monitor.getFuture().cancel(true);
+        cancelFutures();
         this.state = TransferState.Canceled;
     }
 
+    /**
+     * Cancels the download, including all parts of a multi-part download that
+     * are still in flight.
+     */
+    private void cancelFutures() {
+        ((DownloadMonitor) this.monitor).cancelFutures();
+    }
+
     /**
      *  Set the S3 object to download.
      */
@@ -123,18 +168,48 @@ public class DownloadImpl extends AbstractTransfer implements Download {
      * captured (for security reason).
      */
     private PersistableDownload captureDownloadState(
-            final GetObjectRequest getObjectRequest, final File file) {
+            final GetObjectRequest getObjectRequest, final File file,
+            final int[] completedParts) {
         if (getObjectRequest.getSSECustomerKey() == null) {
             return new PersistableDownload(
                     getObjectRequest.getBucketName(),
                     getObjectRequest.getKey(), getObjectRequest.getVersionId(),
                     getObjectRequest.getRange(),
                     getObjectRequest.getResponseHeaders(),
-                    getObjectRequest.isRequesterPays(), file.getAbsolutePath());
+                    getObjectRequest.isRequesterPays(), file.getAbsolutePath(),
+                    partSize, completedParts,
+                    partSize > 0 ? s3Object.getObjectMetadata().getETag() : null);
         }
         return null;
     }
 
+    /**
+     * Returns the captured state of a multi-part download, recording every
+     * part written to the file so far, so that resuming only fetches the
+     * remaining parts.
+     */
+    private PersistableDownload capturePartialDownloadState() {
+        SortedSet<Integer> parts = new TreeSet<Integer>();
+        for (int partNumber : completedParts) {
+            parts.add(partNumber);
+        }
+        for (Future<Integer> partFuture : ((DownloadMonitor) monitor).getPartFutures()) {
+            if (partFuture.isDone() && !partFuture.isCancelled()) {
+                try {
+                    parts.add(partFuture.get());
+                } catch (Exception e) {
+                    // The part failed, and will be fetched again on resume
+                }
+            }
+        }
+        int[] completed = new int[parts.size()];
+        int i = 0;
+        for (Integer partNumber : parts) {
+            completed[i++] = partNumber;
+        }
+        return captureDownloadState(getObjectRequest, file, completed);
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -144,12 +219,18 @@ public class DownloadImpl extends AbstractTransfer implements Download {
     public PersistableDownload pause() throws PauseException {
         boolean forceCancel = true;
         TransferState currentState = getState();
-        this.monitor.getFuture().cancel(true);
 
         if (persistableDownload == null) {
+            cancelFutures();
             throw new PauseException(TransferManagerUtils.determinePauseStatus(
                     currentState, forceCancel));
         }
+        if (partSize > 0) {
+            PersistableDownload partialDownload = capturePartialDownloadState();
+            cancelFutures();
+            return partialDownload;
+        }
+        cancelFutures();
         return persistableDownload;
     }
 }
\ No newline at end of file
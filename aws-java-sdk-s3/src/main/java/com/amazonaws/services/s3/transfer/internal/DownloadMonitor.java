@@ -14,6 +14,8 @@
  */
 package com.amazonaws.services.s3.transfer.internal;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.Future;
 
 public class DownloadMonitor implements TransferMonitor {
@@ -21,9 +23,39 @@ public class DownloadMonitor implements TransferMonitor {
     private final Future<?> future;
     private final DownloadImpl download;
 
+    /**
+     * Futures of the tasks fetching the individual parts of a multi-part
+     * download; empty for a download over a single connection.
+     */
+    private final List<Future<Integer>> partFutures;
+
     public DownloadMonitor(DownloadImpl download, Future<?> future) {
+        this(download, future, Collections.<Future<Integer>>emptyList());
+    }
+
+    public DownloadMonitor(DownloadImpl download, Future<?> future,
+            List<Future<Integer>> partFutures) {
         this.download = download;
         this.future = future;
+        this.partFutures = partFutures;
+    }
+
+    /**
+     * Returns the futures of the tasks fetching the individual parts of a
+     * multi-part download, each of which yields its part number.
+     */
+    public List<Future<Integer>> getPartFutures() {
+        return partFutures;
+    }
+
+    /**
+     * Cancels the download and any of its parts still in flight.
+     */
+    void cancelFutures() {
+        if (future != null) future.cancel(true);
+        for (Future<Integer> partFuture : partFutures) {
+            partFuture.cancel(true);
+        }
     }
 
     @Override
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010-2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+package com.amazonaws.services.s3.transfer.internal;
+
+import static com.amazonaws.event.SDKProgressPublisher.publishResponseBytesDiscarded;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.amazonaws.AmazonClientException;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
+import com.amazonaws.services.s3.model.S3ObjectInputStream;
+
+/**
+ * Fetches one byte range of an object and writes it into the same offset of
+ * the destination file through a positional {@link FileChannel} write, so that
+ * parts can complete in any order. A part whose data transfer fails midway is
+ * fetched again on its own, without affecting the other parts; the bytes
+ * already received for it are reported as discarded to the progress listener
+ * of the request, so that they are not counted twice.
+ */
+public class DownloadPartCallable implements Callable<Integer> {
+
+    private static final Log log = LogFactory.getLog(DownloadPartCallable.class);
+
+    /** Number of times a part is fetched before its failure is reported. */
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final int BUFFER_SIZE = 128 * 1024;
+
+    private final AmazonS3 s3;
+    private final GetObjectRequest request;
+    /** The range of the part, as the request may be changed by the client. */
+    private final long[] range;
+    private final int partNumber;
+    private final File destinationFile;
+    private final long position;
+    /** The number of bytes read by the current attempt. */
+    private long bytesRead;
+
+    /**
+     * @param request
+     *            the ranged request for the part, which should carry a
+     *            matching ETag constraint so that all parts come from the same
+     *            version of the object
+     * @param partNumber
+     *            the one-based number of the part, returned on success
+     * @param position
+     *            the offset in the destination file where the part is written
+     */
+    public DownloadPartCallable(AmazonS3 s3, GetObjectRequest request,
+            int partNumber, File destinationFile, long position) {
+        this.s3 = s3;
+        this.request = request;
+        this.range = request.getRange();
+        this.partNumber = partNumber;
+        this.destinationFile = destinationFile;
+        this.position = position;
+    }
+
+    public Integer call() throws Exception {
+        for (int attempt = 1;; attempt++) {
+            // An encryption client widens the range of the request to whole
+            // cipher blocks
+            request.setRange(range[0], range[1]);
+            S3Object s3Object = s3.getObject(request);
+            if (s3Object == null) {
+                throw new AmazonClientException("Unable to download part "
+                        + partNumber + " of " + request.getBucketName() + "/"
+                        + request.getKey()
+                        + ": the object was modified during the download");
+            }
+            S3ObjectInputStream content = s3Object.getObjectContent();
+            bytesRead = 0;
+            try {
+                writePart(content);
+                content.close();
+                return partNumber;
+            } catch (IOException e) {
+                content.abort();
+                if (attempt >= MAX_ATTEMPTS || Thread.currentThread().isInterrupted()) {
+                    throw new AmazonClientException("Unable to download part "
+                            + partNumber + " of " + request.getBucketName()
+                            + "/" + request.getKey() + ": " + e.getMessage(), e);
+                }
+                log.info("Retrying the download of part " + partNumber + " of "
+                        + request.getBucketName() + "/" + request.getKey(), e);
+                publishResponseBytesDiscarded(request.getGeneralProgressListener(), bytesRead);
+            } catch (RuntimeException e) {
+                content.abort();
+                throw e;
+            }
+        }
+    }
+
+    private void writePart(InputStream content) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(destinationFile, "rw");
+        try {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            long offset = position;
+            int count;
+            while ((count = content.read(buffer.array())) > -1) {
+                bytesRead += count;
+                buffer.limit(count);
+                while (buffer.hasRemaining()) {
+                    offset += channel.write(buffer, offset);
+                }
+                buffer.clear();
+            }
+        } finally {
+            raf.close();
+        }
+    }
+}
@@ -17,11 +17,19 @@ package com.amazonaws.services.s3.transfer.internal;
 import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
 
 import java.io.File;
+import java.util.Map;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.AmazonS3Encryption;
+import com.amazonaws.services.s3.AmazonS3EncryptionClient;
+import com.amazonaws.services.s3.Headers;
 import com.amazonaws.services.s3.model.CopyObjectRequest;
+import com.amazonaws.services.s3.model.CryptoMode;
+import com.amazonaws.services.s3.model.GetObjectRequest;
+import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.transfer.PauseStatus;
 import com.amazonaws.services.s3.transfer.Transfer.TransferState;
@@ -32,6 +40,9 @@ import com.amazonaws.services.s3.transfer.TransferManagerConfiguration;
  */
 public class TransferManagerUtils {
 
+    /** The content cipher whose ranges can be decrypted with AES/CTR. */
+    private static final String AES_GCM_CIPHER = "AES/GCM/NoPadding";
+
     /**
      * Returns a new thread pool configured with the default settings.
      *
@@ -132,6 +143,124 @@ public class TransferManagerUtils {
         return (contentLength > configuration.getMultipartUploadThreshold());
     }
 
+    /**
+     * Returns true if the the specified request should be processed as a
+     * streaming upload, which reads an input stream of unknown length into
+     * parts and uploads them as they are read.
+     *
+     * @param putObjectRequest
+     *            The request containing all the details of the upload.
+     * @param configuration
+     *            Configuration settings controlling how transfer manager
+     *            processes requests.
+     * @param isUsingEncryption
+     *            True if the upload is an encrypted upload, otherwise false.
+     *
+     * @return True if the the specified request should be processed as a
+     *         streaming upload.
+     */
+    public static boolean shouldUseStreamingUpload(PutObjectRequest putObjectRequest,
+            TransferManagerConfiguration configuration, boolean isUsingEncryption) {
+        // Encrypted parts depend on the cipher state of the previous part, and
+        // the last one must be known before it is read; so never stream them.
+        return configuration.isStreamingUploadEnabled()
+                && !isUsingEncryption
+                && getRequestFile(putObjectRequest) == null
+                && putObjectRequest.getInputStream() != null
+                && getContentLength(putObjectRequest) == -1;
+    }
+
+    /**
+     * Returns the size, in bytes, of each part of a streaming upload.
+     *
+     * @param configuration
+     *            Configuration values to use when calculating size.
+     *
+     * @return The size, in bytes, of each part of a streaming upload.
+     */
+    public static int calculateStreamingPartSize(TransferManagerConfiguration configuration) {
+        // Parts are read into byte arrays.
+        return (int) Math.min(configuration.getMinimumUploadPartSize(),
+                Integer.MAX_VALUE - 8);
+    }
+
+    /**
+     * Returns true if the specified download should be split into byte
+     * ranges that are fetched in parallel. Ranged downloads are always
+     * fetched over a single connection, and so are downloads through an
+     * encryption client unless they are enabled by the configuration, the
+     * object is {@link #isRangeDecryptable(ObjectMetadata) range decryptable}
+     * and the client is not in
+     * {@link CryptoMode#StrictAuthenticatedEncryption strict authenticated
+     * encryption} mode, which refuses ranged gets.
+     *
+     * @param getObjectRequest
+     *            The request containing all the details of the download.
+     * @param objectMetadata
+     *            The metadata of the object being downloaded.
+     * @param configuration
+     *            Configuration settings controlling how transfer manager
+     *            processes requests.
+     * @param s3
+     *            The client performing the download.
+     *
+     * @return True if the specified request should be processed as a
+     *         multipart download.
+     */
+    public static boolean shouldUseMultipartDownload(GetObjectRequest getObjectRequest,
+            ObjectMetadata objectMetadata, TransferManagerConfiguration configuration,
+            AmazonS3 s3) {
+        if (getObjectRequest.getRange() != null) {
+            return false;
+        }
+        if (s3 instanceof AmazonS3Encryption) {
+            return configuration.isEncryptedMultipartDownloadEnabled()
+                    && !isStrictAuthenticatedEncryption(s3)
+                    && isRangeDecryptable(objectMetadata)
+                    && getPlaintextLength(objectMetadata) >= configuration.getMultipartDownloadThreshold();
+        }
+        return objectMetadata.getContentLength() >= configuration.getMultipartDownloadThreshold();
+    }
+
+    /**
+     * Returns true if the given client is an encryption client in
+     * {@link CryptoMode#StrictAuthenticatedEncryption} mode.
+     */
+    private static boolean isStrictAuthenticatedEncryption(AmazonS3 s3) {
+        return s3 instanceof AmazonS3EncryptionClient
+                && ((AmazonS3EncryptionClient) s3).getCryptoConfiguration()
+                        .getCryptoMode() == CryptoMode.StrictAuthenticatedEncryption;
+    }
+
+    /**
+     * Returns true if any byte range of the given client-side encrypted object
+     * can be fetched and decrypted on its own, which is the case for objects
+     * encrypted with AES/GCM whose encryption materials are stored in their
+     * metadata.
+     */
+    public static boolean isRangeDecryptable(ObjectMetadata objectMetadata) {
+        Map<String, String> userMetadata = objectMetadata.getUserMetadata();
+        if (!AES_GCM_CIPHER.equals(userMetadata.get(Headers.CRYPTO_CEK_ALGORITHM))) {
+            return false;
+        }
+        try {
+            return Integer.parseInt(userMetadata.get(Headers.CRYPTO_TAG_LENGTH)) % 8 == 0;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns the length of the plaintext of the given
+     * {@link #isRangeDecryptable(ObjectMetadata) range decryptable} object,
+     * that is, its content length without the authentication tag.
+     */
+    public static long getPlaintextLength(ObjectMetadata objectMetadata) {
+        int tagLengthInBits = Integer.parseInt(
+                objectMetadata.getUserMetadata().get(Headers.CRYPTO_TAG_LENGTH));
+        return objectMetadata.getContentLength() - tagLengthInBits / 8;
+    }
+
     /**
      * Convenience method for getting the file specified in a request.
      */
@@ -15,20 +15,27 @@
 package com.amazonaws.services.s3.transfer.internal;
 
 import static com.amazonaws.event.SDKProgressPublisher.publishProgress;
+import static com.amazonaws.services.s3.internal.Constants.MAXIMUM_UPLOAD_PARTS;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import com.amazonaws.AmazonClientException;
 import com.amazonaws.event.ProgressEventType;
 import com.amazonaws.event.ProgressListenerChain;
 import com.amazonaws.services.s3.AmazonS3;
@@ -75,6 +82,12 @@ public class UploadCallable implements Callable<UploadResult> {
 
     private PersistableUpload persistableUpload;
 
+    /**
+     * The first part read from the input stream of a streaming upload; or
+     * null if not streaming or once uploaded.
+     */
+    private byte[] firstStreamedPart;
+
     public UploadCallable(TransferManager transferManager,
             ExecutorService threadPool, UploadImpl upload,
             PutObjectRequest putObjectRequest,
@@ -112,11 +125,25 @@ public class UploadCallable implements Callable<UploadResult> {
      * @return True if this UploadCallable is processing a multipart upload.
      */
     public boolean isMultipartUpload() {
-        return TransferManagerUtils.shouldUseMultipartUpload(putObjectRequest, configuration);
+        return isStreamingUpload()
+            || TransferManagerUtils.shouldUseMultipartUpload(putObjectRequest, configuration);
+    }
+
+    /**
+     * Returns true if this UploadCallable is uploading an input stream of
+     * unknown length in parts as they are read.
+     */
+    private boolean isStreamingUpload() {
+        return TransferManagerUtils.shouldUseStreamingUpload(putObjectRequest,
+                configuration, s3 instanceof AmazonS3Encryption);
     }
 
     public UploadResult call() throws Exception {
         upload.setState(TransferState.InProgress);
+        if (isStreamingUpload() && readFirstStreamedPart()) {
+            publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
+            return uploadStreamInParts();
+        }
         if ( isMultipartUpload() ) {
             publishProgress(listener, ProgressEventType.TRANSFER_STARTED_EVENT);
             return uploadInParts();
@@ -202,6 +229,150 @@ public class UploadCallable implements Callable<UploadResult> {
         }
     }
 
+    /**
+     * Reads the first part of a streaming upload. Returns true if the stream
+     * goes on past the first part; otherwise the request is changed to upload
+     * the bytes read, now of known length, and false is returned.
+     */
+    private boolean readFirstStreamedPart() throws IOException {
+        InputStream input = putObjectRequest.getInputStream();
+        byte[] part = new byte[TransferManagerUtils.calculateStreamingPartSize(configuration)];
+        int length = readFully(input, part);
+        if (length == part.length) {
+            firstStreamedPart = part;
+            return true;
+        }
+        try {
+            input.close();
+        } catch (Exception e) {
+            log.warn("Unable to cleanly close input stream: " + e.getMessage(), e);
+        }
+        putObjectRequest.setInputStream(new ByteArrayInputStream(part, 0, length));
+        putObjectRequest.getMetadata().setContentLength(length);
+        transferProgress.setTotalBytesToTransfer(length);
+        return false;
+    }
+
+    /**
+     * Uploads the input stream of unknown length of the request in parts as
+     * they are read, and returns null; the upload is completed once all the
+     * parts recorded as futures have been uploaded.
+     */
+    private UploadResult uploadStreamInParts() throws Exception {
+        multipartUploadId = initiateMultipartUpload(putObjectRequest, false);
+        try {
+            uploadStreamedParts();
+            return null;
+        } catch (Exception e) {
+            for (Future<PartETag> future : futures) {
+                future.cancel(true);
+            }
+            publishProgress(listener, ProgressEventType.TRANSFER_FAILED_EVENT);
+            performAbortMultipartUpload();
+            throw e;
+        } finally {
+            firstStreamedPart = null;
+            try {
+                putObjectRequest.getInputStream().close();
+            } catch (Exception e) {
+                log.warn("Unable to cleanly close input stream: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * Reads the input stream into parts and submits each part for upload to
+     * the thread pool, recording its future. At most the configured number of
+     * parts are held in memory: once they are all in flight, the buffer of
+     * the oldest part is reused for the next one after it has been uploaded.
+     */
+    private void uploadStreamedParts() throws Exception {
+        InputStream input = putObjectRequest.getInputStream();
+        int maxPartsInFlight = configuration.getStreamingUploadPartsInFlight();
+        LinkedList<StreamedPart> partsInFlight = new LinkedList<StreamedPart>();
+        byte[] buffer = firstStreamedPart;
+        int length = buffer.length;
+        int partNumber = 1;
+
+        while (true) {
+            if (threadPool.isShutdown()) throw new CancellationException("TransferManager has been shutdown");
+            if (partNumber > MAXIMUM_UPLOAD_PARTS) {
+                throw new AmazonClientException("Unable to upload a stream of more than "
+                        + MAXIMUM_UPLOAD_PARTS + " parts of " + buffer.length
+                        + " bytes; increase the minimum upload part size");
+            }
+            UploadPartRequest request = new UploadPartRequest()
+                .withBucketName(putObjectRequest.getBucketName())
+                .withKey(putObjectRequest.getKey())
+                .withUploadId(multipartUploadId)
+                .withInputStream(new ByteArrayInputStream(buffer, 0, length))
+                .withPartNumber(partNumber++)
+                .withPartSize(length);
+            TransferManager.appendMultipartUserAgent(request);
+            if (putObjectRequest.getSSECustomerKey() != null)
+                request.setSSECustomerKey(putObjectRequest.getSSECustomerKey());
+            request.setGeneralProgressListener(putObjectRequest.getGeneralProgressListener());
+
+            FutureTask<PartETag> task = new FutureTask<PartETag>(new UploadPartCallable(s3, request));
+            futures.add(task);
+            partsInFlight.add(new StreamedPart(task, buffer));
+            threadPool.execute(task);
+            if (length < buffer.length) {
+                return;
+            }
+
+            if (partsInFlight.size() < maxPartsInFlight) {
+                buffer = new byte[buffer.length];
+            } else {
+                StreamedPart oldest = partsInFlight.removeFirst();
+                // Upload the part in this thread if the pool has yet to start
+                // it, so that a pool busy with this very upload can't stall.
+                oldest.task.run();
+                try {
+                    oldest.task.get();
+                } catch (ExecutionException e) {
+                    throw new AmazonClientException("Unable to upload part: "
+                            + e.getCause().getMessage(), e.getCause());
+                }
+                buffer = oldest.buffer;
+            }
+            length = readFully(input, buffer);
+            if (length == 0) {
+                // The stream ended right after the previous part.
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reads from the given stream until the given buffer is full or the end of
+     * the stream is reached, and returns the number of bytes read.
+     */
+    private static int readFully(InputStream input, byte[] buffer) throws IOException {
+        int length = 0;
+        while (length < buffer.length) {
+            int read = input.read(buffer, length, buffer.length - length);
+            if (read == -1) {
+                break;
+            }
+            length += read;
+        }
+        return length;
+    }
+
+    /**
+     * A part of a streaming upload being uploaded, and the buffer holding it.
+     */
+    private static final class StreamedPart {
+        final FutureTask<PartETag> task;
+        final byte[] buffer;
+
+        StreamedPart(FutureTask<PartETag> task, byte[] buffer) {
+            this.task = task;
+            this.buffer = buffer;
+        }
+    }
+
     /**
      * Performs an
      * {@link AmazonS3#abortMultipartUpload(AbortMultipartUploadRequest)}
@@ -384,6 +384,24 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
         return buffer.deleteMessage(deleteMessageRequest, null);
     }
 
+    /**
+     * Returns a snapshot of the receive buffer of the given queue, such as
+     * the number of pre-fetched messages it holds and how long receive calls
+     * have been waiting for messages. Looking up the buffer does not count as
+     * a use of it, so polling the metrics of an idle queue does not keep its
+     * buffer from being evicted.
+     *
+     * @return the state of the receive buffer of the queue, or null if this
+     *         client holds no buffer for the queue
+     */
+    public ReceiveQueueBufferMetrics getReceiveQueueBufferMetrics(String queueUrl) {
+        QueueBuffer buffer;
+        synchronized (this) {
+            buffer = buffers.peek(queueUrl);
+        }
+        return buffer == null ? null : buffer.getReceiveQueueBufferMetrics();
+    }
+
     /**
      * Returns (creating it if necessary) a queue buffer for a particular queue
      * Since we are only storing a limited number of queue buffers, it is
@@ -415,6 +433,22 @@ public class AmazonSQSBufferedAsyncClient implements AmazonSQSAsync {
             return size() > MAX_ENTRIES;
         }
 
+        /**
+         * Returns the buffer of the given queue without making it the most
+         * recently used, unlike {@link #get(Object)}; or null if there is none.
+         */
+        QueueBuffer peek(String qUrl) {
+            if (!containsKey(qUrl)) {
+                return null;
+            }
+            for (Map.Entry<String, QueueBuffer> entry : entrySet()) {
+                if (entry.getKey().equals(qUrl)) {
+                    return entry.getValue();
+                }
+            }
+            return null;
+        }
+
     }
 
     public Future<Void> changeMessageVisibilityAsync(
@@ -18,6 +18,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -65,11 +66,16 @@ class QueueBuffer {
      *  */
     static ExecutorService executor = Executors.newCachedThreadPool(new DaemonThreadFactory());;
 
+    /** Schedules the visibility checks of adaptively pre-fetched messages,
+     * which then run on the executor. Shared among all queue buffers for the
+     * same reasons. */
+    static ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory());
+
     QueueBuffer( QueueBufferConfig paramConfig, String url, AmazonSQSAsync sqs) {
         realSqs = sqs;
         config = paramConfig;
         sendBuffer = new SendQueueBuffer(sqs, executor, paramConfig, url);
-        receiveBuffer =  new ReceiveQueueBuffer(sqs, executor, paramConfig, url);
+        receiveBuffer =  new ReceiveQueueBuffer(sqs, executor, scheduler, paramConfig, url);
     }
 
 
@@ -192,6 +198,13 @@ class QueueBuffer {
         return waitForFuture(future);
     }
 
+    /**
+     * @return a snapshot of the state of the receive buffer
+     */
+    public ReceiveQueueBufferMetrics getReceiveQueueBufferMetrics() {
+        return receiveBuffer.getMetrics();
+    }
+
     /**
      * Shuts down the queue buffer.  Once this method has been called, the
      * queue buffer is not operational and all subsequent calls to it may fail
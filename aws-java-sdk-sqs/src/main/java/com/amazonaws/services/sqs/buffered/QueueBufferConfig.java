@@ -125,6 +125,16 @@ public class QueueBufferConfig {
 
     public static final int LONGPOLL_WAIT_TIMEOUT_SECONDS_DEFAULT = 20;
 
+    /**
+     * Should the number of in-flight and pre-fetched receive batches follow
+     * the rate at which messages are consumed, rather than stay at their
+     * maximum?
+     */
+    private boolean adaptivePrefetching = ADAPTIVE_PREFETCHING_DEFAULT;
+
+    /** false */
+    public static final boolean ADAPTIVE_PREFETCHING_DEFAULT = false;
+
     public QueueBufferConfig( long maxBatchOpenMs,
             int maxInflightOutboundBatches,
             int maxInflightReceiveBatches,
@@ -171,6 +181,7 @@ public class QueueBufferConfig {
         maxInflightOutboundBatches = other.maxInflightOutboundBatches;
         maxInflightReceiveBatches = other.maxInflightReceiveBatches;
         visibilityTimeoutSeconds = other.visibilityTimeoutSeconds;
+        adaptivePrefetching = other.adaptivePrefetching;
     }
 
 
@@ -185,7 +196,8 @@ public class QueueBufferConfig {
                 + maxDoneReceiveBatches + ", maxBatchSizeBytes="
                 + maxBatchSizeBytes + ", visibilityTimeoutSeconds="
                 + visibilityTimeoutSeconds + ", longPollWaitTimeoutSeconds="
-                + longPollWaitTimeoutSeconds + "]";
+                + longPollWaitTimeoutSeconds + ", adaptivePrefetching="
+                + adaptivePrefetching + "]";
     }
 
     /**
@@ -450,6 +462,39 @@ public class QueueBufferConfig {
         return this;
     }
 
+    /**
+     * @return true if the queue buffer sizes its pre-fetching to the rate at
+     *         which messages are consumed, false if it always keeps up to
+     *         maxInflightReceiveBatches receive batches in flight and
+     *         maxDoneReceiveBatches batches pre-fetched.
+     * */
+    public boolean isAdaptivePrefetching() {
+        return adaptivePrefetching;
+    }
+
+    /**
+     * Specify "true" for the queue buffer to size its pre-fetching to the
+     * rate at which messages are consumed. <br>
+     *
+     * The queue buffer then keeps only as many receive batches in flight as
+     * it takes to keep up with the consumers, so that an idle consumer does
+     * not hold on to messages other clients could process.
+     * maxInflightReceiveBatches and maxDoneReceiveBatches become upper
+     * bounds. <br>
+     *
+     * Pre-fetched messages that are about to become visible again have their
+     * visibility timeout extended if the consumers are expected to get to
+     * them in time, and are released back to the queue otherwise.
+     * */
+    public void setAdaptivePrefetching(boolean adaptivePrefetching) {
+        this.adaptivePrefetching = adaptivePrefetching;
+    }
+
+    public QueueBufferConfig withAdaptivePrefetching(boolean adaptivePrefetching) {
+        this.adaptivePrefetching = adaptivePrefetching;
+        return this;
+    }
+
     /**
      * this method checks the config for validity. If the config is deemed to be
      * invalid, an informative exception is thrown.
@@ -17,9 +17,14 @@ package com.amazonaws.services.sqs.buffered;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
@@ -27,8 +32,10 @@ import org.apache.commons.logging.LogFactory;
 
 import com.amazonaws.AmazonClientException;
 import com.amazonaws.services.sqs.AmazonSQS;
+import com.amazonaws.services.sqs.model.BatchResultErrorEntry;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequest;
 import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchRequestEntry;
+import com.amazonaws.services.sqs.model.ChangeMessageVisibilityBatchResult;
 import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
@@ -40,6 +47,13 @@ import com.amazonaws.services.sqs.model.ReceiveMessageResult;
  * pre-fetched and kept in the buffer, as well as the maximum number of threads used to retrieve
  * the messages are configurable. <p>
  *
+ * With adaptive prefetching enabled, the number of batches kept in flight and
+ * in the buffer follows the rate at which the consumers take messages instead:
+ * enough messages are pre-fetched to cover a couple of receive round trips at
+ * that rate, and none at all while nobody is receiving. Buffered batches about
+ * to become visible again have their visibility extended if they are expected
+ * to be consumed in time, and are released back to the queue otherwise. <p>
+ *
  *  Synchronization strategy:
  *  - Threads must hold the TaskSpawnSyncPoint object monitor to spawn a new task or modify
  *    the number of inflight tasks
@@ -47,6 +61,8 @@ import com.amazonaws.services.sqs.model.ReceiveMessageResult;
  *  - Threads must hold the monitor of the "finishedTasks" list to modify the list
  *  - If you need to lock both futures and finishedTasks, lock futures first and
  *    finishedTasks second
+ *  - Threads must hold the monitor of the "statistics" object to read or update
+ *    it, and must not take any other lock while holding it
  * */
 public class ReceiveQueueBuffer {
 
@@ -58,6 +74,9 @@ public class ReceiveQueueBuffer {
 
     private final Executor executor;
 
+    /** Schedules the visibility checks of buffered batches. */
+    private final ScheduledExecutorService scheduler;
+
     private final AmazonSQS sqsClient;
 
     private long bufferCounter = 0;
@@ -92,9 +111,26 @@ public class ReceiveQueueBuffer {
     /** finished batches are stored in this list. */
     private LinkedList<ReceiveMessageBatchTask> finishedTasks = new LinkedList<ReceiveMessageBatchTask>();
 
-    ReceiveQueueBuffer( AmazonSQS paramSQS, Executor paramExecutor, QueueBufferConfig paramConfig, String url ) {
+    /** what the consumers and SQS have been doing lately */
+    private final ReceiveStatistics statistics = new ReceiveStatistics();
+
+    /**
+     * How many receive round trips worth of messages adaptive prefetching
+     * keeps buffered at the current drain rate.
+     */
+    private static final double PREFETCH_ROUND_TRIPS = 2;
+
+    /**
+     * The visibility of a buffered batch is checked when this fraction of the
+     * visibility timeout is left.
+     */
+    private static final int VISIBILITY_CHECK_DIVISOR = 5;
+
+    ReceiveQueueBuffer( AmazonSQS paramSQS, Executor paramExecutor, ScheduledExecutorService paramScheduler,
+            QueueBufferConfig paramConfig, String url ) {
         config = paramConfig;
         executor = paramExecutor;
+        scheduler = paramScheduler;
         sqsClient = paramSQS;
         qUrl = url;
 
@@ -189,6 +225,7 @@ public class ReceiveQueueBuffer {
         LinkedList<Message> messages = new LinkedList<Message>();
         r.setMessages(messages);
         Exception exception = null;
+        long now = System.nanoTime();
 
         if ( !finishedTasks.isEmpty() ) {
             ReceiveMessageBatchTask t = finishedTasks.getFirst();
@@ -217,7 +254,9 @@ public class ReceiveQueueBuffer {
                 finishedTasks.removeFirst();
             }
             r.setMessages(messages);
+            statistics.recordDelivery(retrieved, now - t.getOpenedNanos(), now);
         }
+        statistics.recordReceiveWait(now - f.getIssuedNanos());
 
         //if after the above runs the exception is not null,
         //the finished batch has encountered an error, and we will
@@ -252,6 +291,11 @@ public class ReceiveQueueBuffer {
         if( shutDown )
             return;
 
+        if ( config.isAdaptivePrefetching() ) {
+            spawnReceiveTasksAdaptively();
+            return;
+        }
+
         int desiredBatches = config.getMaxDoneReceiveBatches();
         desiredBatches = desiredBatches < 1 ? 1 : desiredBatches;
 
@@ -268,14 +312,7 @@ public class ReceiveQueueBuffer {
         }
 
         synchronized (taskSpawnSyncPoint) {
-            if (visibilityTimeoutNanos == -1) {
-                GetQueueAttributesRequest request = new GetQueueAttributesRequest().
-                        withQueueUrl(qUrl).
-                        withAttributeNames("VisibilityTimeout");
-                ResultConverter.appendUserAgent(request, AmazonSQSBufferedAsyncClient.USER_AGENT);
-                long visibilityTimeoutSeconds = Long.parseLong(sqsClient.getQueueAttributes( request ).getAttributes().get("VisibilityTimeout"));
-                visibilityTimeoutNanos = TimeUnit.NANOSECONDS.convert(visibilityTimeoutSeconds, TimeUnit.SECONDS);
-            }
+            initVisibilityTimeout();
 
             int max = config.getMaxInflightReceiveBatches();
             //must allow at least one inflight receive task, or receive won't
@@ -283,16 +320,131 @@ public class ReceiveQueueBuffer {
             max = max > 0 ? max : 1;
             int toSpawn =  max - inflightReceiveMessageBatches;
             if (toSpawn > 0) {
-                ReceiveMessageBatchTask task = new ReceiveMessageBatchTask(this );
-                ++inflightReceiveMessageBatches;
-                ++bufferCounter;
-                if (log.isTraceEnabled()) {
-                    log.trace("Spawned receive batch #" + bufferCounter + " (" + inflightReceiveMessageBatches
-                            + " of " + max + " inflight) for queue " + qUrl);
-                }
-                executor.execute(task);
+                spawnReceiveTask(max);
+            }
+        }
+    }
+
+    /**
+     * Creates as many receive tasks as it takes for the buffer to keep up with
+     * the consumers, as measured by the rate they have recently taken messages
+     * at and by how long a receive batch takes. While receive requests are
+     * waiting, at least enough tasks are in flight to answer them.
+     */
+    private void spawnReceiveTasksAdaptively() {
+        int waitingMessages = 0;
+        synchronized ( futures ) {
+            for ( ReceiveMessageFuture f : futures ) {
+                waitingMessages += f.getRequestedSize();
+            }
+        }
+
+        int bufferedBatches;
+        int bufferedMessages;
+        synchronized ( finishedTasks ) {
+            bufferedBatches = finishedTasks.size();
+            bufferedMessages = countBufferedMessages();
+        }
+
+        synchronized (taskSpawnSyncPoint) {
+            initVisibilityTimeout();
+
+            int max = config.getMaxInflightReceiveBatches();
+            max = max > 0 ? max : 1;
+            int maxDone = config.getMaxDoneReceiveBatches();
+            maxDone = maxDone > 0 ? maxDone : 1;
+
+            double drainRate;
+            double receiveLatencySeconds;
+            double messagesPerReceive;
+            synchronized ( statistics ) {
+                drainRate = statistics.getDrainRate(System.nanoTime());
+                receiveLatencySeconds = Math.max(0, statistics.receiveLatencyNanos) / 1e9;
+                messagesPerReceive = statistics.messagesPerReceive;
             }
+            if ( messagesPerReceive < 1 ) {
+                messagesPerReceive = Math.max(1, config.getMaxBatchSize());
+            }
+
+            // Enough messages to cover a couple of round trips at the current
+            // drain rate, but no more than can be consumed well within their
+            // visibility timeout.
+            double target = drainRate * receiveLatencySeconds * PREFETCH_ROUND_TRIPS;
+            double visibilitySeconds = getVisibilityTimeoutNanos() / 1e9;
+            target = Math.min(target, drainRate * visibilitySeconds / 2);
+
+            // One more receive's worth while messages are being consumed, so
+            // that the buffer is topped up before it runs dry.
+            if ( drainRate > 0 ) {
+                target += messagesPerReceive;
+            }
+
+            double shortfall = target + waitingMessages - bufferedMessages;
+            int desired = (int) Math.ceil(shortfall / messagesPerReceive);
+            if ( waitingMessages > 0 && desired < 1 ) {
+                desired = 1;
+            }
+            desired = Math.min(desired, max);
+            if ( bufferedBatches > 0 ) {
+                desired = Math.min(desired, maxDone - bufferedBatches);
+            }
+
+            while ( inflightReceiveMessageBatches < desired ) {
+                spawnReceiveTask(max);
+            }
+        }
+    }
+
+    /**
+     * Fetches the visibility timeout of the queue the first time it is needed.
+     * Must be called holding the taskSpawnSyncPoint monitor.
+     */
+    private void initVisibilityTimeout() {
+        if (visibilityTimeoutNanos == -1) {
+            GetQueueAttributesRequest request = new GetQueueAttributesRequest().
+                    withQueueUrl(qUrl).
+                    withAttributeNames("VisibilityTimeout");
+            ResultConverter.appendUserAgent(request, AmazonSQSBufferedAsyncClient.USER_AGENT);
+            long visibilityTimeoutSeconds = Long.parseLong(sqsClient.getQueueAttributes( request ).getAttributes().get("VisibilityTimeout"));
+            visibilityTimeoutNanos = TimeUnit.NANOSECONDS.convert(visibilityTimeoutSeconds, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * @return the visibility timeout of the messages this buffer receives
+     */
+    private long getVisibilityTimeoutNanos() {
+        if ( config.getVisibilityTimeoutSeconds() > 0 ) {
+            return TimeUnit.NANOSECONDS.convert(config.getVisibilityTimeoutSeconds(), TimeUnit.SECONDS);
+        }
+        return visibilityTimeoutNanos;
+    }
+
+    /**
+     * Starts a new receive task. Must be called holding the
+     * taskSpawnSyncPoint monitor.
+     */
+    private void spawnReceiveTask( int max ) {
+        ReceiveMessageBatchTask task = new ReceiveMessageBatchTask(this );
+        ++inflightReceiveMessageBatches;
+        ++bufferCounter;
+        if (log.isTraceEnabled()) {
+            log.trace("Spawned receive batch #" + bufferCounter + " (" + inflightReceiveMessageBatches
+                    + " of " + max + " inflight) for queue " + qUrl);
+        }
+        executor.execute(task);
+    }
+
+    /**
+     * @return the number of messages in the finished batches. Must be called
+     * holding the finishedTasks monitor.
+     */
+    private int countBufferedMessages() {
+        int count = 0;
+        for ( ReceiveMessageBatchTask t : finishedTasks ) {
+            count += t.getSize();
         }
+        return count;
     }
 
     /**
@@ -311,10 +463,169 @@ public class ReceiveQueueBuffer {
         synchronized( taskSpawnSyncPoint )    {
             --inflightReceiveMessageBatches;
         }
+        if ( config.isAdaptivePrefetching() && batch.getException() == null && !batch.isEmpty() ) {
+            scheduleVisibilityCheck( batch );
+        }
         satisfyFuturesFromBuffer();
         spawnMoreReceiveTasks();
     }
 
+    /**
+     * Schedules a visibility check of the batch for when a fifth of the
+     * visibility timeout of its messages is left.
+     */
+    private void scheduleVisibilityCheck( final ReceiveMessageBatchTask batch ) {
+        long delay = batch.getVisibilityDeadlineNano() - System.nanoTime()
+                - getVisibilityTimeoutNanos() / VISIBILITY_CHECK_DIVISOR;
+        try {
+            scheduler.schedule(new Runnable() {
+                public void run() {
+                    // Hand over to the executor, as the check calls SQS.
+                    try {
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                checkVisibility( batch );
+                            }
+                        });
+                    } catch ( RejectedExecutionException e ) {
+                        log.warn("Could not check the visibility of buffered messages of queue " + qUrl, e);
+                    }
+                }
+            }, Math.max(0, delay), TimeUnit.NANOSECONDS);
+        } catch ( RejectedExecutionException e ) {
+            log.warn("Could not schedule a visibility check for buffered messages of queue " + qUrl, e);
+        }
+    }
+
+    /**
+     * Extends the visibility timeout of the messages left in a buffered batch
+     * if the consumers, at the rate they have recently been taking messages,
+     * are expected to get through this batch within one more visibility
+     * timeout. Releases the messages back to the queue otherwise, so that
+     * other clients can process them.
+     */
+    private void checkVisibility( ReceiveMessageBatchTask batch ) {
+        if ( shutDown ) {
+            return;
+        }
+
+        int messagesUpToBatch = 0;
+        synchronized ( finishedTasks ) {
+            boolean buffered = false;
+            for ( ReceiveMessageBatchTask t : finishedTasks ) {
+                messagesUpToBatch += t.getSize();
+                if ( t == batch ) {
+                    buffered = true;
+                    break;
+                }
+            }
+            if ( !buffered || batch.isEmpty() ) {
+                return;
+            }
+        }
+
+        long timeoutNanos = getVisibilityTimeoutNanos();
+        double drainRate;
+        synchronized ( statistics ) {
+            drainRate = statistics.getDrainRate(System.nanoTime());
+        }
+        double drainNanos = drainRate > 0 ? messagesUpToBatch / drainRate * 1e9 : Double.POSITIVE_INFINITY;
+
+        if ( drainNanos < timeoutNanos ) {
+            extendVisibility( batch, timeoutNanos );
+        } else {
+            synchronized ( finishedTasks ) {
+                if ( !finishedTasks.remove( batch ) ) {
+                    return;
+                }
+            }
+            int released = batch.getSize();
+            batch.clear();
+            synchronized ( statistics ) {
+                statistics.releasedMessages += released;
+            }
+        }
+    }
+
+    /**
+     * Restarts the visibility timeout of the messages left in the batch.
+     * Messages whose visibility could not be changed are dropped from the
+     * batch, as they may become visible to other clients at any time.
+     */
+    private void extendVisibility( ReceiveMessageBatchTask batch, long timeoutNanos ) {
+        List<String> receiptHandles = batch.getReceiptHandles();
+        if ( receiptHandles.isEmpty() ) {
+            return;
+        }
+
+        ChangeMessageVisibilityBatchRequest batchRequest = new ChangeMessageVisibilityBatchRequest()
+                .withQueueUrl(qUrl);
+        ResultConverter.appendUserAgent(batchRequest, AmazonSQSBufferedAsyncClient.USER_AGENT);
+        int timeoutSeconds = (int) TimeUnit.SECONDS.convert(timeoutNanos, TimeUnit.NANOSECONDS);
+        List<ChangeMessageVisibilityBatchRequestEntry> entries =
+                new ArrayList<ChangeMessageVisibilityBatchRequestEntry>(receiptHandles.size());
+        for ( int i = 0; i < receiptHandles.size(); i++ ) {
+            entries.add(new ChangeMessageVisibilityBatchRequestEntry()
+                    .withId(Integer.toString(i))
+                    .withReceiptHandle(receiptHandles.get(i))
+                    .withVisibilityTimeout(timeoutSeconds));
+        }
+        batchRequest.setEntries(entries);
+
+        long start = System.nanoTime();
+        ChangeMessageVisibilityBatchResult result;
+        try {
+            result = sqsClient.changeMessageVisibilityBatch(batchRequest);
+        } catch (AmazonClientException e) {
+            // Log and ignore; the messages expire from the buffer as usual.
+            log.warn("ReceiveQueueBuffer: extending visibility failed " + e);
+            return;
+        }
+
+        Set<String> failed = new HashSet<String>();
+        if ( result.getFailed() != null ) {
+            for ( BatchResultErrorEntry entry : result.getFailed() ) {
+                failed.add(receiptHandles.get(Integer.parseInt(entry.getId())));
+            }
+        }
+        batch.extendVisibility(start + timeoutNanos, failed);
+        synchronized ( statistics ) {
+            statistics.extendedMessages += receiptHandles.size() - failed.size();
+        }
+        scheduleVisibilityCheck( batch );
+    }
+
+    /**
+     * @return a snapshot of the state of this buffer
+     */
+    ReceiveQueueBufferMetrics getMetrics() {
+        int waiting;
+        synchronized ( futures ) {
+            waiting = futures.size();
+        }
+        int bufferedBatches;
+        int bufferedMessages;
+        synchronized ( finishedTasks ) {
+            bufferedBatches = finishedTasks.size();
+            bufferedMessages = countBufferedMessages();
+        }
+        synchronized ( statistics ) {
+            return new ReceiveQueueBufferMetrics(bufferedMessages, bufferedBatches,
+                    inflightReceiveMessageBatches, waiting,
+                    statistics.getDrainRate(System.nanoTime()),
+                    toMillis(statistics.receiveWaitNanos),
+                    toMillis(statistics.bufferedNanos),
+                    toMillis(statistics.receiveLatencyNanos),
+                    statistics.extendedMessages,
+                    statistics.releasedMessages,
+                    statistics.expiredMessages);
+        }
+    }
+
+    private static long toMillis( long nanos ) {
+        return nanos < 0 ? -1 : TimeUnit.MILLISECONDS.convert(nanos, TimeUnit.NANOSECONDS);
+    }
+
 
     /**
      * Clears and nacks any pre-fetched messages in this buffer.
@@ -341,6 +652,9 @@ public class ReceiveQueueBuffer {
         /* how many messages did the request ask for*/
         private int requestedSize;
 
+        /* when the request was made */
+        private final long issuedNanos = System.nanoTime();
+
         ReceiveMessageFuture( int paramSize ) {
             this(null,paramSize);
         }
@@ -354,6 +668,73 @@ public class ReceiveQueueBuffer {
             return requestedSize;
         }
 
+        public long getIssuedNanos() {
+            return issuedNanos;
+        }
+
+    }
+
+    /**
+     * Recent activity of the consumers and of SQS. Averages are exponentially
+     * weighted moving averages, -1 until the first sample. All fields are
+     * guarded by the monitor of this object.
+     */
+    private static class ReceiveStatistics {
+
+        /** The time constant of the drain rate. */
+        private static final long DRAIN_RATE_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+        /** The weight of a new sample in the averages. */
+        private static final double SAMPLE_WEIGHT = 0.125;
+
+        /** messages handed out per second, as of lastDeliveryNanos */
+        private double drainRate;
+        private long lastDeliveryNanos = System.nanoTime();
+
+        long receiveWaitNanos = -1;
+        long bufferedNanos = -1;
+        long receiveLatencyNanos = -1;
+        double messagesPerReceive = -1;
+
+        long extendedMessages;
+        long releasedMessages;
+        long expiredMessages;
+
+        /**
+         * @return the drain rate, decayed for the time elapsed since the
+         * last delivery
+         */
+        double getDrainRate( long now ) {
+            return drainRate * Math.exp(-(double) (now - lastDeliveryNanos) / DRAIN_RATE_WINDOW_NANOS);
+        }
+
+        synchronized void recordDelivery( int messages, long bufferedNanos, long now ) {
+            if ( messages == 0 ) {
+                return;
+            }
+            drainRate = getDrainRate(now) + messages * 1e9 / DRAIN_RATE_WINDOW_NANOS;
+            lastDeliveryNanos = now;
+            this.bufferedNanos = average(this.bufferedNanos, bufferedNanos);
+        }
+
+        synchronized void recordReceiveWait( long waitNanos ) {
+            receiveWaitNanos = average(receiveWaitNanos, waitNanos);
+        }
+
+        synchronized void recordReceive( long latencyNanos, int messages ) {
+            receiveLatencyNanos = average(receiveLatencyNanos, latencyNanos);
+            messagesPerReceive = messagesPerReceive < 0
+                    ? messages
+                    : messagesPerReceive + (messages - messagesPerReceive) * SAMPLE_WEIGHT;
+        }
+
+        synchronized void recordExpired( int messages ) {
+            expiredMessages += messages;
+        }
+
+        private static long average( long average, long sample ) {
+            return average < 0 ? sample : average + (long) ((sample - average) * SAMPLE_WEIGHT);
+        }
     }
 
     /**
@@ -367,6 +748,7 @@ public class ReceiveQueueBuffer {
         private Exception exception = null;
         private List<Message> messages;
         private long visibilityDeadlineNano;
+        private long openedNanos;
         private boolean open = false;
         private ReceiveQueueBuffer parentBuffer;
 
@@ -419,6 +801,7 @@ public class ReceiveQueueBuffer {
 
             // our messages expired.
             if ( System.nanoTime() > visibilityDeadlineNano ) {
+                statistics.recordExpired(messages.size());
                 messages.clear();
                 return null;
             }
@@ -429,6 +812,45 @@ public class ReceiveQueueBuffer {
                 return messages.remove(messages.size() - 1);
         }
 
+        /** @return when the batch was received */
+        long getOpenedNanos() {
+            return openedNanos;
+        }
+
+        synchronized long getVisibilityDeadlineNano() {
+            return visibilityDeadlineNano;
+        }
+
+        /** @return the receipt handles of the messages remaining in the batch */
+        synchronized List<String> getReceiptHandles() {
+            if (!open)
+                throw new IllegalStateException("batch is not open");
+
+            List<String> receiptHandles = new ArrayList<String>(messages.size());
+            for (Message m : messages) {
+                receiptHandles.add(m.getReceiptHandle());
+            }
+            return receiptHandles;
+        }
+
+        /**
+         * Moves the visibility deadline of the batch, after dropping the
+         * messages whose visibility was not changed.
+         */
+        synchronized void extendVisibility(long deadlineNano, Set<String> failedReceiptHandles) {
+            if (!open)
+                throw new IllegalStateException("batch is not open");
+
+            if (!failedReceiptHandles.isEmpty()) {
+                for (Iterator<Message> it = messages.iterator(); it.hasNext(); ) {
+                    if (failedReceiptHandles.contains(it.next().getReceiptHandle())) {
+                        it.remove();
+                    }
+                }
+            }
+            visibilityDeadlineNano = deadlineNano;
+        }
+
         /**
          * Nacks and clears all messages remaining in the batch.
          */
@@ -485,11 +907,17 @@ public class ReceiveQueueBuffer {
                     request.withWaitTimeSeconds(config.getLongPollWaitTimeoutSeconds());
                 }
 
+                long start = System.nanoTime();
                 messages = sqsClient.receiveMessage(request).getMessages();
+                // empty long polls measure the queue, not the round trip
+                if ( !messages.isEmpty() ) {
+                    statistics.recordReceive(System.nanoTime() - start, messages.size());
+                }
             } catch (AmazonClientException e) {
                 exception = e;
             } finally {
                 //whatever happened, we are done and can be considered open
+                openedNanos = System.nanoTime();
                 open = true;
                 parentBuffer.reportBatchFinished(this);
             }
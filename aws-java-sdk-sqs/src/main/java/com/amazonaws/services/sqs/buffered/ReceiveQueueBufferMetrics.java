@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 Amazon.com, Inc. or its affiliates. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License").
+ * You may not use this file except in compliance with the License.
+ * A copy of the License is located at
+ *
+ *  http://aws.amazon.com/apache2.0
+ *
+ * or in the "license" file accompanying this file. This file is distributed
+ * on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either
+ * express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ */
+
+package com.amazonaws.services.sqs.buffered;
+
+/**
+ * A snapshot of the state of the receive buffer of a queue: how many messages
+ * it holds, how fast they are consumed, and how long receive calls and
+ * messages wait.
+ * <p>
+ * Averages are exponentially weighted towards recent events, and are -1 until
+ * the first such event.
+ *
+ * @see AmazonSQSBufferedAsyncClient#getReceiveQueueBufferMetrics(String)
+ */
+public class ReceiveQueueBufferMetrics {
+
+    private final int bufferedMessages;
+    private final int bufferedBatches;
+    private final int inflightReceiveBatches;
+    private final int waitingReceiveRequests;
+    private final double drainRate;
+    private final long averageReceiveWaitMillis;
+    private final long averageBufferedMillis;
+    private final long averageReceiveLatencyMillis;
+    private final long extendedMessages;
+    private final long releasedMessages;
+    private final long expiredMessages;
+
+    ReceiveQueueBufferMetrics(int bufferedMessages, int bufferedBatches,
+            int inflightReceiveBatches, int waitingReceiveRequests,
+            double drainRate, long averageReceiveWaitMillis,
+            long averageBufferedMillis, long averageReceiveLatencyMillis,
+            long extendedMessages, long releasedMessages, long expiredMessages) {
+        this.bufferedMessages = bufferedMessages;
+        this.bufferedBatches = bufferedBatches;
+        this.inflightReceiveBatches = inflightReceiveBatches;
+        this.waitingReceiveRequests = waitingReceiveRequests;
+        this.drainRate = drainRate;
+        this.averageReceiveWaitMillis = averageReceiveWaitMillis;
+        this.averageBufferedMillis = averageBufferedMillis;
+        this.averageReceiveLatencyMillis = averageReceiveLatencyMillis;
+        this.extendedMessages = extendedMessages;
+        this.releasedMessages = releasedMessages;
+        this.expiredMessages = expiredMessages;
+    }
+
+    /**
+     * @return the number of pre-fetched messages waiting in the buffer.
+     */
+    public int getBufferedMessages() {
+        return bufferedMessages;
+    }
+
+    /**
+     * @return the number of completed receive batches waiting in the buffer.
+     */
+    public int getBufferedBatches() {
+        return bufferedBatches;
+    }
+
+    /**
+     * @return the number of receive batches being fetched from SQS.
+     */
+    public int getInflightReceiveBatches() {
+        return inflightReceiveBatches;
+    }
+
+    /**
+     * @return the number of receive calls waiting for messages.
+     */
+    public int getWaitingReceiveRequests() {
+        return waitingReceiveRequests;
+    }
+
+    /**
+     * @return the rate, in messages per second, at which messages are handed
+     *         out to receive calls.
+     */
+    public double getDrainRate() {
+        return drainRate;
+    }
+
+    /**
+     * @return the average time, in milliseconds, a receive call waits before
+     *         it is answered.
+     */
+    public long getAverageReceiveWaitMillis() {
+        return averageReceiveWaitMillis;
+    }
+
+    /**
+     * @return the average time, in milliseconds, a message spends in the
+     *         buffer before it is handed out. Its visibility timeout runs
+     *         during that time.
+     */
+    public long getAverageBufferedMillis() {
+        return averageBufferedMillis;
+    }
+
+    /**
+     * @return the average time, in milliseconds, SQS takes to answer a receive
+     *         batch that returns messages.
+     */
+    public long getAverageReceiveLatencyMillis() {
+        return averageReceiveLatencyMillis;
+    }
+
+    /**
+     * @return the number of times the visibility timeout of a buffered
+     *         message has been extended.
+     */
+    public long getExtendedMessages() {
+        return extendedMessages;
+    }
+
+    /**
+     * @return the number of buffered messages released back to the queue
+     *         because they were not expected to be consumed in time.
+     */
+    public long getReleasedMessages() {
+        return releasedMessages;
+    }
+
+    /**
+     * @return the number of buffered messages dropped because their
+     *         visibility timeout expired before they were handed out.
+     */
+    public long getExpiredMessages() {
+        return expiredMessages;
+    }
+
+    @Override
+    public String toString() {
+        return "ReceiveQueueBufferMetrics [bufferedMessages=" + bufferedMessages
+                + ", bufferedBatches=" + bufferedBatches
+                + ", inflightReceiveBatches=" + inflightReceiveBatches
+                + ", waitingReceiveRequests=" + waitingReceiveRequests
+                + ", drainRate=" + drainRate
+                + ", averageReceiveWaitMillis=" + averageReceiveWaitMillis
+                + ", averageBufferedMillis=" + averageBufferedMillis
+                + ", averageReceiveLatencyMillis=" + averageReceiveLatencyMillis
+                + ", extendedMessages=" + extendedMessages
+                + ", releasedMessages=" + releasedMessages
+                + ", expiredMessages=" + expiredMessages + "]";
+    }
+}
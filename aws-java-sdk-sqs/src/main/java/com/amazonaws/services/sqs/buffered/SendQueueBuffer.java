@@ -16,10 +16,15 @@ package com.amazonaws.services.sqs.buffered;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -50,10 +55,17 @@ import com.amazonaws.services.sqs.model.SendMessageResult;
  * This class is responsible for buffering outgoing SQS requests, i.e. requests
  * to send a message, delete a message and change the visibility of the message. <br>
  *
- * When a request arrives, the buffer adds the message to a message batch of an
- * appropriate type (creating such a batch if there currently isn't one
- * outstanding). When the outstanding batch becomes full, or when a configurable
- * timeout expires, the buffer makes a call to SQS to execute the current batch. <br>
+ * Each type of request has its own batcher. Callers append their requests to
+ * the batcher's lock-free queue and return right away with a future; they never
+ * wait for a lock or for room in a batch, only for room in the queue, which
+ * holds up to {@code maxInflightOutboundBatches} full batches so that callers
+ * are held back when SQS falls behind. A single flush task per batcher, run
+ * on the executor while requests are pending, takes the requests off the queue
+ * in order and groups them into batches. A batch is sent as soon as enough
+ * requests are pending to fill it, or when its oldest request has been waiting
+ * for {@code maxBatchOpenMs}, and no more than
+ * {@code maxInflightOutboundBatches} batches of each type are in flight at
+ * once. <br>
  *
  * Internally, the batch objects maintain a list of futures corresponding to the
  * requests added to them. When a batch completes, it loads the results into the
@@ -84,54 +96,15 @@ public class SendQueueBuffer {
     private final Executor executor;
 
     /**
-     * Object used to serialize sendMessage calls.
+     * The max number of batches of each type in flight.
      */
-    private final Object sendMessageLock = new Object();
+    private final int maxInflightBatches;
 
-    /**
-     * Object used to serialize deleteMessage calls.
-     */
-    private final Object deleteMessageLock = new Object();
-
-    /**
-     * Object used to serialize changeMessageVisibility calls.
-     */
-    private final Object changeMessageVisibilityLock = new Object();
-
-    /**
-     * Current batching task for sendMessage. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code sendMessageLock}.
-     */
-    private final SendMessageBatchTask[] openSendMessageBatchTask = new SendMessageBatchTask[1];
-
-    /**
-     * Current batching task for deleteMessage. Using a size 1 array to allow
-     * "passing by reference". Synchronized by {@code deleteMessageLock}.
-     */
-    private final DeleteMessageBatchTask[] openDeleteMessageBatchTask = new DeleteMessageBatchTask[1];
-
-    /**
-     * Current batching task for changeMessageVisibility. Using a size 1 array
-     * to allow "passing by reference". Synchronized by
-     * {@code changeMessageVisibilityLock}.
-     */
-    private final ChangeMessageVisibilityBatchTask[] openChangeMessageVisibilityBatchTask = new ChangeMessageVisibilityBatchTask[1];
-
-    /**
-     * Permits controlling the number of in flight SendMessage batches.
-     */
-    private final Semaphore inflightSendMessageBatches;
+    private final OutboundBatcher<SendMessageRequest, SendMessageResult> sendMessageBatcher;
 
-    /**
-     * Permits controlling the number of in flight DeleteMessage batches.
-     */
-    private final Semaphore inflightDeleteMessageBatches;
+    private final OutboundBatcher<DeleteMessageRequest, Void> deleteMessageBatcher;
 
-    /**
-     * Permits controlling the number of in flight ChangeMessageVisibility
-     * batches.
-     */
-    private final Semaphore inflightChangeMessageVisibilityBatches;
+    private final OutboundBatcher<ChangeMessageVisibilityRequest, Void> changeMessageVisibilityBatcher;
 
     SendQueueBuffer(AmazonSQS sqsClient, Executor executor, QueueBufferConfig paramConfig, String url) {
         this.sqsClient = sqsClient;
@@ -141,10 +114,31 @@ public class SendQueueBuffer {
         int maxBatch = config.getMaxInflightOutboundBatches();
 
         //must allow at least one outbound batch.
-        maxBatch = maxBatch > 0 ? maxBatch : 1;
-        this.inflightSendMessageBatches = new Semaphore( maxBatch);
-        this.inflightDeleteMessageBatches = new Semaphore( maxBatch);
-        this.inflightChangeMessageVisibilityBatches = new Semaphore( maxBatch);
+        this.maxInflightBatches = maxBatch > 0 ? maxBatch : 1;
+
+        this.sendMessageBatcher = new OutboundBatcher<SendMessageRequest, SendMessageResult>() {
+            @Override
+            OutboundBatchTask<SendMessageRequest, SendMessageResult> newBatchTask() {
+                return new SendMessageBatchTask();
+            }
+
+            @Override
+            int sizeInBytes(SendMessageRequest request) {
+                return request.getMessageBody().getBytes().length;
+            }
+        };
+        this.deleteMessageBatcher = new OutboundBatcher<DeleteMessageRequest, Void>() {
+            @Override
+            OutboundBatchTask<DeleteMessageRequest, Void> newBatchTask() {
+                return new DeleteMessageBatchTask();
+            }
+        };
+        this.changeMessageVisibilityBatcher = new OutboundBatcher<ChangeMessageVisibilityRequest, Void>() {
+            @Override
+            OutboundBatchTask<ChangeMessageVisibilityRequest, Void> newBatchTask() {
+                return new ChangeMessageVisibilityBatchTask();
+            }
+        };
     }
 
     public QueueBufferConfig getConfig() {
@@ -156,51 +150,23 @@ public class SendQueueBuffer {
        */
       public QueueBufferFuture< SendMessageRequest, SendMessageResult > sendMessage( SendMessageRequest request, QueueBufferCallback<SendMessageRequest, SendMessageResult> callback)
       {
-          QueueBufferFuture<SendMessageRequest, SendMessageResult>  result =
-                  submitOutboundRequest(sendMessageLock, openSendMessageBatchTask, request, inflightSendMessageBatches, callback);
-          return result;
+          return sendMessageBatcher.submit(request, callback);
       }
 
       /**
        * @return never null
        */
       public QueueBufferFuture<DeleteMessageRequest, Void> deleteMessage(DeleteMessageRequest request, QueueBufferCallback<DeleteMessageRequest, Void > callback) {
-          return submitOutboundRequest(deleteMessageLock,
-                  openDeleteMessageBatchTask,
-                  request,
-                  inflightDeleteMessageBatches,
-                  callback);
+          return deleteMessageBatcher.submit(request, callback);
       }
 
       /**
        * @return never null
        */
       public QueueBufferFuture<ChangeMessageVisibilityRequest, Void> changeMessageVisibility(ChangeMessageVisibilityRequest request, QueueBufferCallback<ChangeMessageVisibilityRequest, Void> callback) {
-          return submitOutboundRequest(
-                changeMessageVisibilityLock,
-                openChangeMessageVisibilityBatchTask,
-                request,
-                inflightChangeMessageVisibilityBatches,
-                callback);
+          return changeMessageVisibilityBatcher.submit(request, callback);
       }
 
-    /**
-     * @return new {@code OutboundBatchTask} of appropriate type, never null
-     */
-    @SuppressWarnings("unchecked")
-    private <R extends AmazonWebServiceRequest, Result> OutboundBatchTask<R, Result> newOutboundBatchTask(
-            R request) {
-        if (request instanceof SendMessageRequest)
-            return (OutboundBatchTask<R, Result>) new SendMessageBatchTask();
-        else if (request instanceof DeleteMessageRequest)
-            return (OutboundBatchTask<R, Result>) new DeleteMessageBatchTask();
-        else if (request instanceof ChangeMessageVisibilityRequest)
-            return (OutboundBatchTask<R, Result>) new ChangeMessageVisibilityBatchTask();
-        else
-            // this should never happen
-            throw new IllegalArgumentException("Unsupported request type " + request.getClass().getName());
-    }
-
     /**
      * Flushes all outstanding outbound requests ({@code SendMessage},
      * {@code DeleteMessage}, {@code ChangeMessageVisibility}) in this buffer.
@@ -211,215 +177,340 @@ public class SendQueueBuffer {
     public void flush() {
 
         try {
-            synchronized (sendMessageLock) {
-                inflightSendMessageBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
-                inflightSendMessageBatches
-                        .release(config.getMaxInflightOutboundBatches());
-            }
-            synchronized (deleteMessageLock) {
-                inflightDeleteMessageBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
-                inflightDeleteMessageBatches
-                        .release(config.getMaxInflightOutboundBatches());
-            }
-            synchronized (changeMessageVisibilityLock) {
-                inflightChangeMessageVisibilityBatches
-                        .acquire(config.getMaxInflightOutboundBatches());
-                inflightChangeMessageVisibilityBatches
-                        .release(config.getMaxInflightOutboundBatches());
-            }
+            sendMessageBatcher.flush();
+            deleteMessageBatcher.flush();
+            changeMessageVisibilityBatcher.flush();
         } catch( InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
     /**
-     * Submits an outbound request for delivery to the queue associated with
-     * this buffer.
-     * <p>
-     *
-     * @param operationLock
-     *            the lock synchronizing calls for the call type (
-     *            {@code sendMessage}, {@code deleteMessage},
-     *            {@code changeMessageVisibility} )
-     * @param openOutboundBatchTask
-     *            the open batch task for this call type
-     * @param request
-     *            the request to submit
-     * @param inflightOperationBatches
-     *            the permits controlling the batches for this type of request
-     * @return never null
-     * @throws AmazonClientException
-     *             (see the various outbound calls for details)
+     * A request waiting in the queue of a batcher.
      */
-    @SuppressWarnings("unchecked")
-    <OBT extends OutboundBatchTask<R, Result>, R extends AmazonWebServiceRequest, Result> QueueBufferFuture<R, Result> submitOutboundRequest(
-            Object operationLock,
-            OBT[] openOutboundBatchTask,
-            R request,
-            final Semaphore inflightOperationBatches,
-            QueueBufferCallback<R, Result> callback) {
-        /*
-         * Callers add requests to a single batch task (openOutboundBatchTask)
-         * until it is full or maxBatchOpenMs elapses. The total number of batch
-         * task in flight is controlled by the inflightOperationBatch semaphore
-         * capped at maxInflightOutboundBatches.
-         */
-        QueueBufferFuture<R, Result> theFuture = null;
-        try {
-            synchronized (operationLock) {
-                if (openOutboundBatchTask[0] == null || ((theFuture = openOutboundBatchTask[0].addRequest(request, callback))) == null) {
-                    OBT obt = (OBT) newOutboundBatchTask(request);
-                    inflightOperationBatches.acquire();
-                    openOutboundBatchTask[0] = obt;
-                    // Register a listener for the event signaling that the
-                    // batch task has completed (successfully or not).
-                    openOutboundBatchTask[0].onCompleted = new Listener<OutboundBatchTask<R, Result>>() {
-                        public void invoke(OutboundBatchTask<R, Result> task) {
-                            inflightOperationBatches.release();
-                        }
-                    };
-
-                    if ( log.isTraceEnabled() ) {
-                        log.trace("Queue " + qUrl + " created new batch for " + request.getClass().toString()
-                                + " " + inflightOperationBatches.availablePermits()
-                                + " free slots remain");
-                    }
-
-                    theFuture = openOutboundBatchTask[0].addRequest(request, callback);
-                    executor.execute(openOutboundBatchTask[0]);
-                    if ( null == theFuture ) {
-                        //this can happen only if the request itself is flawed,
-                        //so that it can't be added to any batch, even a brand
-                        //new one
-                        throw new AmazonClientException("Failed to schedule request "+ request + " for execution" );
-                    }
-                }
-            }
-
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            AmazonClientException toThrow = new AmazonClientException("Interrupted while waiting for lock.");
-            toThrow.initCause(e);
-            throw toThrow;
+    private static final class PendingRequest<R extends AmazonWebServiceRequest, Result> {
+        final R request;
+        final QueueBufferFuture<R, Result> future;
+        final int sizeInBytes;
+        final long enqueuedNanos;
+
+        PendingRequest(R request, QueueBufferFuture<R, Result> future, int sizeInBytes) {
+            this.request = request;
+            this.future = future;
+            this.sizeInBytes = sizeInBytes;
+            this.enqueuedNanos = System.nanoTime();
         }
-
-        return theFuture;
     }
 
-
     /**
-     * Task to send a batch of outbound requests to SQS.
+     * Groups the outbound requests of one type into batches.
      * <p>
-     * The batch task is constructed open and accepts requests until full, or
-     * until {@code maxBatchOpenMs} elapses. At that point, the batch closes and
-     * the collected requests are assembled into a single batch request to SQS.
-     * Specialized for each type of outbound request.
-     * <p>
-     * Instances of this class (and subclasses) are thread-safe.
+     * Any number of threads may submit requests concurrently; they are
+     * appended to a {@link ConcurrentLinkedQueue} and only block while it
+     * already holds {@code maxInflightOutboundBatches} full batches. The queue
+     * has a single consumer: this batcher's {@link #run()} method, which is
+     * scheduled on the executor when the first request arrives and runs until
+     * the queue is empty. It waits until a full batch is pending, a flush is
+     * requested or the oldest pending request has waited for
+     * {@code maxBatchOpenMs}, then takes a permit for an in flight batch and
+     * hands the batch over to the executor.
      *
      * @param <R>
      *            the type of the SQS request to batch
      * @param <Result>
-     *            the type of result he futures issued by this task will return
+     *            the type of result the futures issued by this batcher return
      */
-    private abstract class OutboundBatchTask<R extends AmazonWebServiceRequest, Result> implements Runnable {
-        final List<R> requests;
-        final ArrayList<QueueBufferFuture<R, Result>> futures;
-        AtomicBoolean open = new AtomicBoolean(true);
-        volatile Listener<OutboundBatchTask<R, Result>> onCompleted = null;
+    private abstract class OutboundBatcher<R extends AmazonWebServiceRequest, Result> implements Runnable {
 
-        OutboundBatchTask() {
-            requests = new ArrayList<R>(config.getMaxBatchSize());
-            futures = new ArrayList<QueueBufferFuture<R, Result>>(config.getMaxBatchSize());
+        private final ConcurrentLinkedQueue<PendingRequest<R, Result>> pending =
+                new ConcurrentLinkedQueue<PendingRequest<R, Result>>();
+
+        private final AtomicInteger pendingCount = new AtomicInteger();
+
+        private final AtomicLong pendingBytes = new AtomicLong();
+
+        /** Permits bounding the number of pending requests. */
+        private final Semaphore queueSlots =
+                new Semaphore(maxInflightBatches * Math.max(1, config.getMaxBatchSize()));
+
+        /** Whether the flush task is scheduled or running. */
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        /** The thread running the flush task, to wake it up early. */
+        private volatile Thread flushThread;
+
+        /** The number of requests ever submitted. */
+        private final AtomicLong submittedCount = new AtomicLong();
+
+        /**
+         * The number of requests ever handed over in a batch. Written by the
+         * flush task only.
+         */
+        private volatile long dispatchedCount;
+
+        /** The number of requests to dispatch regardless of the open time. */
+        private final AtomicLong flushTarget = new AtomicLong();
+
+        /** Guards waiting for flushed requests to be dispatched. */
+        private final Object flushLock = new Object();
+
+        private final AtomicInteger flushWaiters = new AtomicInteger();
+
+        /** Permits controlling the number of batches in flight. */
+        private final Semaphore inflightBatches = new Semaphore(maxInflightBatches);
+
+        private final long maxBatchOpenNanos = TimeUnit.MILLISECONDS.toNanos(config.getMaxBatchOpenMs());
+
+        /**
+         * @return a new, empty batch task for this type of request
+         */
+        abstract OutboundBatchTask<R, Result> newBatchTask();
+
+        /**
+         * @return the size the request counts for against
+         *         {@code maxBatchSizeBytes}; zero for requests not limited by
+         *         size
+         */
+        int sizeInBytes(R request) {
+            return 0;
         }
 
         /**
-         * Adds a request to the batch if it is still open and has capacity.
+         * Queues a request for the next batch.
          *
-         * @return the future that can be used to get the results of the
-         * execution, or null if the addition failed.
+         * @return never null
+         * @throws AmazonClientException
+         *             if the request can't fit in any batch, or the thread is
+         *             interrupted while waiting for room in the queue
          */
-        synchronized QueueBufferFuture<R, Result> addRequest(R request, QueueBufferCallback<R, Result> callback) {
-            if (!open.get())
-                return null;
-
-            QueueBufferFuture<R, Result> theFuture = addIfAllowed(request, callback);
+        QueueBufferFuture<R, Result> submit(R request, QueueBufferCallback<R, Result> callback) {
+            int size = sizeInBytes(request);
+            if (size > 0 && size >= config.getMaxBatchSizeBytes()) {
+                //the request itself is flawed, so that it can't be added to
+                //any batch, even a brand new one
+                throw new AmazonClientException("Failed to schedule request "+ request + " for execution" );
+            }
 
-            // if the addition did not work, or this addition made us full,
-            // we can close the request
-            if ((null == theFuture) || isFull()) {
-                open.set(false);
+            try {
+                queueSlots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                AmazonClientException toThrow = new AmazonClientException("Interrupted while waiting for room in the queue.");
+                toThrow.initCause(e);
+                throw toThrow;
             }
 
-            // the batch request is as full as it will ever be. no need to wait
-            // for the timeout, we can run it now.
-            if (!open.get())
-                notify();
+            QueueBufferFuture<R, Result> theFuture = new QueueBufferFuture<R, Result>(callback);
+            pending.add(new PendingRequest<R, Result>(request, theFuture, size));
+            submittedCount.incrementAndGet();
+            int count = pendingCount.incrementAndGet();
+            long bytes = pendingBytes.addAndGet(size);
 
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                if ( log.isTraceEnabled() ) {
+                    log.trace("Queue " + qUrl + " scheduling batcher for " + request.getClass().toString());
+                }
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // No flusher will run; fail what it would have sent,
+                    // including requests added by threads that saw this task
+                    // still scheduled, and let the next submit try again.
+                    do {
+                        failPending(e);
+                        scheduled.set(false);
+                    } while (!pending.isEmpty() && scheduled.compareAndSet(false, true));
+                    throw e;
+                }
+            } else if (count >= config.getMaxBatchSize() || bytes >= config.getMaxBatchSizeBytes()) {
+                // A full batch is waiting; no need to wait for the timeout.
+                Thread thread = flushThread;
+                if (thread != null) {
+                    LockSupport.unpark(thread);
+                }
+            }
             return theFuture;
         }
 
         /**
-         * Adds the request to the batch if capacity allows it.
-         *
-         * @param request
-         * @return the future that will be signaled when the request is
-         *         completed and can be used to retrieve the result. Can be null
-         *         if the addition could not be done
+         * Sends all requests submitted before the call, and waits for all
+         * batches in flight to complete.
          */
-        synchronized QueueBufferFuture<R, Result> addIfAllowed(R request, QueueBufferCallback<R,Result> callback) {
-            if (isOkToAdd(request)) {
-                requests.add(request);
+        void flush() throws InterruptedException {
+            long target = submittedCount.get();
+            while (true) {
+                long current = flushTarget.get();
+                if (current >= target || flushTarget.compareAndSet(current, target)) {
+                    break;
+                }
+            }
+            Thread thread = flushThread;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
 
-                QueueBufferFuture<R, Result> theFuture = new QueueBufferFuture<R, Result>(callback);
+            flushWaiters.incrementAndGet();
+            try {
+                synchronized (flushLock) {
+                    while (dispatchedCount < target) {
+                        flushLock.wait();
+                    }
+                }
+            } finally {
+                flushWaiters.decrementAndGet();
+            }
 
-                futures.add(theFuture);
-                onRequestAdded(request);
-                return theFuture;
-            } else
-                return null;
+            inflightBatches.acquire(maxInflightBatches);
+            inflightBatches.release(maxInflightBatches);
         }
 
-        protected synchronized boolean isOkToAdd(R request) {
-            return requests.size() < config.getMaxBatchSize();
+        @Override
+        public void run() {
+            flushThread = Thread.currentThread();
+            try {
+                while (true) {
+                    PendingRequest<R, Result> head = pending.peek();
+                    if (head == null) {
+                        flushThread = null;
+                        scheduled.set(false);
+                        // A request may have been added after the peek, by a
+                        // thread that saw this task still scheduled.
+                        if (pending.isEmpty() || !scheduled.compareAndSet(false, true)) {
+                            return;
+                        }
+                        flushThread = Thread.currentThread();
+                        continue;
+                    }
+
+                    long deadline = head.enqueuedNanos + maxBatchOpenNanos;
+                    long toWait;
+                    while (!isBatchReady() && (toWait = deadline - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(this, toWait);
+                    }
+
+                    inflightBatches.acquire();
+                    dispatch(takeBatch());
+                }
+            } catch (InterruptedException e) {
+                flushThread = null;
+                failPending(e);
+                scheduled.set(false);
+            } catch (RuntimeException e) {
+                flushThread = null;
+                failPending(e);
+                scheduled.set(false);
+                throw e;
+            }
         }
 
-        protected synchronized void onRequestAdded(R request) {
-            // to be overridden by subclasses
+        private boolean isBatchReady() {
+            return pendingCount.get() >= config.getMaxBatchSize()
+                    || pendingBytes.get() >= config.getMaxBatchSizeBytes()
+                    || flushTarget.get() > dispatchedCount;
         }
 
         /**
-         * @return whether the buffer is filled to capacity
+         * Takes the oldest pending requests, as many as fit in a batch.
          */
-        synchronized boolean isFull() {
-            return requests.size() >= config.getMaxBatchSize();
+        private OutboundBatchTask<R, Result> takeBatch() {
+            OutboundBatchTask<R, Result> task = newBatchTask();
+            int batchSizeBytes = 0;
+            PendingRequest<R, Result> next;
+            while (task.requests.size() < config.getMaxBatchSize()
+                    && (next = pending.peek()) != null
+                    && (next.sizeInBytes == 0
+                        || next.sizeInBytes + batchSizeBytes < config.getMaxBatchSizeBytes())) {
+                pending.poll();
+                pendingCount.decrementAndGet();
+                pendingBytes.addAndGet(-next.sizeInBytes);
+                queueSlots.release();
+                batchSizeBytes += next.sizeInBytes;
+                task.requests.add(next.request);
+                task.futures.add(next.future);
+            }
+            return task;
+        }
+
+        private void dispatch(OutboundBatchTask<R, Result> task) {
+            task.onCompleted = new Listener<OutboundBatchTask<R, Result>>() {
+                public void invoke(OutboundBatchTask<R, Result> task) {
+                    inflightBatches.release();
+                }
+            };
+
+            if ( log.isTraceEnabled() ) {
+                log.trace("Queue " + qUrl + " created new batch of " + task.requests.size() + " requests, "
+                        + inflightBatches.availablePermits() + " free slots remain");
+            }
+
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                task.failAll(e);
+                inflightBatches.release();
+            } finally {
+                dispatchedCount += task.requests.size();
+                if (flushWaiters.get() > 0) {
+                    synchronized (flushLock) {
+                        flushLock.notifyAll();
+                    }
+                }
+            }
         }
 
         /**
-         * Processes the batch once closed.
+         * Fails all pending requests, counting them as dispatched so that
+         * callers waiting in {@link #flush()} are not left waiting for them.
+         */
+        private void failPending(Exception e) {
+            PendingRequest<R, Result> next;
+            int failed = 0;
+            while ((next = pending.poll()) != null) {
+                pendingCount.decrementAndGet();
+                pendingBytes.addAndGet(-next.sizeInBytes);
+                queueSlots.release();
+                next.future.setFailure(e);
+                failed++;
+            }
+            dispatchedCount += failed;
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Task to send a batch of outbound requests to SQS.
+     * <p>
+     * The batch task is filled by its {@link OutboundBatcher} before it is
+     * handed over to the executor, at which point the collected requests are
+     * assembled into a single batch request to SQS. Specialized for each type
+     * of outbound request.
+     *
+     * @param <R>
+     *            the type of the SQS request to batch
+     * @param <Result>
+     *            the type of result he futures issued by this task will return
+     */
+    private abstract class OutboundBatchTask<R extends AmazonWebServiceRequest, Result> implements Runnable {
+        final List<R> requests;
+        final ArrayList<QueueBufferFuture<R, Result>> futures;
+        volatile Listener<OutboundBatchTask<R, Result>> onCompleted = null;
+
+        OutboundBatchTask() {
+            requests = new ArrayList<R>(config.getMaxBatchSize());
+            futures = new ArrayList<QueueBufferFuture<R, Result>>(config.getMaxBatchSize());
+        }
+
+        /**
+         * Processes the batch.
          */
         abstract void process();
 
         @Override
-        public synchronized void run() {
+        public void run() {
             try {
-                long deadlineMs = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS ) +
-                        config.getMaxBatchOpenMs() +1;
-                long t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS );
-                while (open.get()  && (t  < deadlineMs ) ) {
-                    t = TimeUnit.MILLISECONDS.convert(System.nanoTime(), TimeUnit.NANOSECONDS );
-
-                    //zero means "wait forever", can't have that.
-                    long toWait = Math.max(1, deadlineMs - t);
-                    wait(toWait);
-                }
-
-                open.set(false);
                 process();
-            } catch (InterruptedException e) {
-                failAll( e );
             } catch (AmazonClientException e) {
                 failAll( e );
             } catch (RuntimeException e) {
@@ -436,7 +527,7 @@ public class SendQueueBuffer {
             }
         }
 
-        private void failAll( Exception e) {
+        void failAll( Exception e) {
             for( QueueBufferFuture<R, Result> f : futures ) {
                 f.setFailure(e);
             }
@@ -445,24 +536,6 @@ public class SendQueueBuffer {
 
     private class SendMessageBatchTask extends
             OutboundBatchTask<SendMessageRequest, SendMessageResult> {
-        int batchSizeBytes = 0;
-
-        @Override
-        protected synchronized boolean isOkToAdd(SendMessageRequest request) {
-            return ( requests.size() < config.getMaxBatchSize() ) &&
-                    ((request.getMessageBody().getBytes().length + batchSizeBytes) < config.getMaxBatchSizeBytes());
-        }
-
-        @Override
-        protected void onRequestAdded(SendMessageRequest request) {
-            batchSizeBytes += request.getMessageBody().getBytes().length;
-        }
-
-        @Override
-        synchronized boolean isFull() {
-            return ( requests.size() >= config.getMaxBatchSize() ) ||
-                    ( batchSizeBytes >= config.getMaxBatchSizeBytes());
-        }
 
         @Override
         void process() {